@@ -0,0 +1,181 @@
+package TSP;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Synthetic instances for the benchmarks.
+ *
+ * <p>
+ * Nodes are random points in a 1000 x 1000 square and distances are the
+ * rounded Euclidean distances, at least 1, so every instance is symmetric and
+ * metric. The same layout, size and seed always give the same matrix.
+ */
+public class InstanceGenerator {
+	static final int SIDE = 1000; // Side length of the square the points lie in
+	static final int SPARSE_DEGREE = 8; // Nearest neighbors each node connects to in a sparse instance
+
+	public enum Layout {
+		UNIFORM, // Points spread evenly over the square
+		CLUSTERED, // Points gathered around a few centers
+		SPARSE // Uniform points, connected only to their nearest neighbors
+	}
+
+	private InstanceGenerator() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Generates an instance.
+	 *
+	 * @param layout How the points are placed and connected.
+	 * @param size   Number of nodes; 26 nodes are named A - Z like the sample matrix.
+	 * @param seed   Seed of the random points.
+	 * @return The distance matrix.
+	 */
+	public static Matrix generate(Layout layout, int size, long seed) {
+		Random random = new Random(seed);
+		double[] x = new double[size];
+		double[] y = new double[size];
+		if (layout == Layout.CLUSTERED) {
+			placeClustered(random, x, y);
+		} else {
+			for (int i = 0; i < size; i++) {
+				x[i] = random.nextDouble() * SIDE;
+				y[i] = random.nextDouble() * SIDE;
+			}
+		}
+
+		int[] distances = new int[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				distances[i * size + j] = i == j ? Integer.MAX_VALUE : distance(x, y, i, j);
+			}
+		}
+		if (layout == Layout.SPARSE) {
+			distances = sparsify(distances, x, size);
+		}
+		return new Matrix(names(size), distances);
+	}
+
+	// Node names: A - Z for the sample size, N0, N1, ... otherwise
+	static String[] names(int size) {
+		String[] names = new String[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = size <= 26 ? String.valueOf((char) ('A' + i)) : "N" + i;
+		}
+		return names;
+	}
+
+	// Place the points around sqrt(n) / 2 centers with a normal spread
+	private static void placeClustered(Random random, double[] x, double[] y) {
+		int centers = Math.max(2, (int) Math.sqrt(x.length) / 2);
+		double[] centerX = new double[centers];
+		double[] centerY = new double[centers];
+		for (int c = 0; c < centers; c++) {
+			centerX[c] = random.nextDouble() * SIDE;
+			centerY[c] = random.nextDouble() * SIDE;
+		}
+		double spread = SIDE / (4.0 * Math.sqrt(centers));
+		for (int i = 0; i < x.length; i++) {
+			int c = random.nextInt(centers);
+			x[i] = clamp(centerX[c] + random.nextGaussian() * spread);
+			y[i] = clamp(centerY[c] + random.nextGaussian() * spread);
+		}
+	}
+
+	/**
+	 * Keeps only the connections to the nearest neighbors of every node, in both
+	 * directions, plus a path through the nodes sorted by x so that the graph
+	 * stays connected.
+	 */
+	private static int[] sparsify(int[] complete, double[] x, int size) {
+		int[] sparse = new int[size * size];
+		Arrays.fill(sparse, Integer.MAX_VALUE);
+		int[][] nearest = NeighborLists.nearest(new Matrix(names(size), complete), identity(size), SPARSE_DEGREE);
+		for (int i = 0; i < size; i++) {
+			for (int j : nearest[i]) {
+				sparse[i * size + j] = complete[i * size + j];
+				sparse[j * size + i] = complete[j * size + i];
+			}
+		}
+
+		Integer[] byX = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			byX[i] = i;
+		}
+		Arrays.sort(byX, (a, b) -> Double.compare(x[a], x[b]));
+		for (int k = 0; k + 1 < size; k++) {
+			int i = byX[k];
+			int j = byX[k + 1];
+			sparse[i * size + j] = complete[i * size + j];
+			sparse[j * size + i] = complete[j * size + i];
+		}
+		return sparse;
+	}
+
+	// Rounded Euclidean distance, at least 1 so that distinct nodes never coincide
+	private static int distance(double[] x, double[] y, int i, int j) {
+		double dx = x[i] - x[j];
+		double dy = y[i] - y[j];
+		return Math.max(1, (int) Math.round(Math.sqrt(dx * dx + dy * dy)));
+	}
+
+	// Keep a coordinate inside the square
+	private static double clamp(double value) {
+		return Math.max(0, Math.min(SIDE, value));
+	}
+
+	// The ids 0..size-1
+	private static int[] identity(int size) {
+		int[] ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+		return ids;
+	}
+
+	// Write an instance in the JSON format Main reads, with null for missing connections
+	static void writeJson(Matrix matrix, String filePath) throws IOException {
+		Map<String, Map<String, Integer>> rows = new LinkedHashMap<>();
+		for (int from = 0; from < matrix.size(); from++) {
+			Map<String, Integer> row = new LinkedHashMap<>();
+			for (int to = 0; to < matrix.size(); to++) {
+				int distance = matrix.getDistance(from, to);
+				row.put(matrix.getName(to), distance == Integer.MAX_VALUE ? null : distance);
+			}
+			rows.put(matrix.getName(from), row);
+		}
+		try (Writer writer = new FileWriter(filePath)) {
+			new GsonBuilder().serializeNulls().create().toJson(rows, writer);
+		}
+	}
+
+	// Command-line generator: InstanceGenerator <uniform|clustered|sparse> <size> <seed> <output.json|output.bin>
+	public static void main(String[] args) {
+		if (args.length != 4) {
+			System.err.println("Usage: InstanceGenerator <uniform|clustered|sparse> <size> <seed> <output.json|output.bin>");
+			System.exit(2);
+		}
+		try {
+			Matrix matrix = generate(Layout.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]),
+					Long.parseLong(args[2]));
+			if (args[3].endsWith(".bin")) {
+				MatrixFile.write(matrix, args[3]);
+			} else {
+				writeJson(matrix, args[3]);
+			}
+			System.out.println("Wrote " + matrix.size() + " nodes to " + args[3]);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Error generating instance: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of each Christofides phase as Main runs it, on every layout and
+ * size. The inputs of a phase are built once per trial from the outputs of the
+ * phases before it, so each benchmark measures only its own phase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+public class PipelineBenchmark {
+	static final int LOOKUPS = 1024; // Distance lookups per getDistance invocation
+
+	@Param({ "UNIFORM", "CLUSTERED", "SPARSE" })
+	public InstanceGenerator.Layout layout;
+
+	@Param({ "26", "1000", "10000" })
+	public int size;
+
+	private Matrix matrix; // Generated instance
+	private int[] ids; // Matrix id of each route position, every node in id order
+	private List<String> names; // Name of each route position
+	private int[] lookupFrom; // Random ids for the distance lookups
+	private int[] lookupTo; // Random ids for the distance lookups
+	private SpanningTree mst; // Output of Prim
+	private int[] oddDegreeNodes; // Output of the odd-degree phase
+	private EdgeArrays mwpm; // Output of the matching phase
+	private EdgeArrays multigraph; // Output of the multigraph phase
+
+	@Setup
+	public void setUp() {
+		matrix = InstanceGenerator.generate(layout, size, 42);
+		ids = new int[size];
+		String[] nameArray = new String[size];
+		for (int id = 0; id < size; id++) {
+			ids[id] = id;
+			nameArray[id] = matrix.getName(id);
+		}
+		names = Arrays.asList(nameArray);
+		Random random = new Random(7);
+		lookupFrom = new int[LOOKUPS];
+		lookupTo = new int[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookupFrom[i] = random.nextInt(size);
+			lookupTo[i] = random.nextInt(size);
+		}
+		mst = Main.findMST(matrix, ids, "prim");
+		oddDegreeNodes = Main.findOddDegreeNodes(mst);
+		mwpm = Main.findMWPM(oddDegreeNodes, ids, matrix);
+		multigraph = Main.createMultigraph(mst, mwpm, names);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public long getDistance() {
+		long sum = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			sum += matrix.getDistance(lookupFrom[i], lookupTo[i]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public SpanningTree primsAlgorithm() {
+		return Main.findMST(matrix, ids, "prim");
+	}
+
+	@Benchmark
+	public int[] findOddDegreeNodes() {
+		return Main.findOddDegreeNodes(mst);
+	}
+
+	@Benchmark
+	public EdgeArrays findMWPM() {
+		return Main.findMWPM(oddDegreeNodes, ids, matrix);
+	}
+
+	@Benchmark
+	public EdgeArrays createMultigraph() {
+		return Main.createMultigraph(mst, mwpm, names);
+	}
+
+	@Benchmark
+	public int[] createHamiltonianCircuit() {
+		return Main.createHamiltonianCircuit(multigraph, size);
+	}
+}
@@ -0,0 +1,68 @@
+package TSP;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Shortest-path queries through RouteOptimizer after its per-matrix tables are
+ * built. Dense matrices of up to RouteOptimizer.ALL_PAIRS_LIMIT nodes answer
+ * from the all-pairs table; larger and sparse matrices run a landmark (ALT)
+ * search per query, so the 5k and 10k sizes measure that path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+public class ShortestPathBenchmark {
+	static final int QUERIES = 64; // Path queries per invocation
+
+	@Param({ "UNIFORM", "CLUSTERED", "SPARSE" })
+	public InstanceGenerator.Layout layout;
+
+	@Param({ "26", "1000", "5000", "10000" })
+	public int size;
+
+	private Matrix matrix; // Generated instance
+	private String[] from; // Random start nodes
+	private String[] to; // Random end nodes
+
+	@Setup
+	public void setUp() {
+		matrix = InstanceGenerator.generate(layout, size, 42);
+		Random random = new Random(7);
+		from = new String[QUERIES];
+		to = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			from[i] = matrix.getName(random.nextInt(size));
+			to[i] = matrix.getName(random.nextInt(size));
+		}
+		RouteOptimizer.findShortestPath(from[0], to[0], matrix); // Build the cached tables outside the measurement
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public int findShortestPath() {
+		int hops = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			List<String> path = RouteOptimizer.findShortestPath(from[i], to[i], matrix);
+			hops += path.size();
+		}
+		return hops;
+	}
+}
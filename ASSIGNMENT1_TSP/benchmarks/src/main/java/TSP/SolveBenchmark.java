@@ -0,0 +1,52 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end solve of a route through every node with {@link TspSolver}. Sparse
+ * instances are left out because the solver needs a direct connection between
+ * consecutive stops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+public class SolveBenchmark {
+
+	@Param({ "UNIFORM", "CLUSTERED" })
+	public InstanceGenerator.Layout layout;
+
+	@Param({ "26", "1000", "10000" })
+	public int size;
+
+	private TspSolver solver; // Solver over the generated instance
+	private List<String> stops; // Every node of the instance
+
+	@Setup
+	public void setUp() {
+		Matrix matrix = InstanceGenerator.generate(layout, size, 42);
+		solver = new TspSolver(matrix);
+		stops = new ArrayList<>(matrix.getNodes());
+	}
+
+	@Benchmark
+	public Route solve() {
+		return solver.solve(stops);
+	}
+}
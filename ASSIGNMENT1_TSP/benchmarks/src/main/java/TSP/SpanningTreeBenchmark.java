@@ -0,0 +1,58 @@
+package TSP;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The MST engines side by side on the CSR form of the sparse instances, where
+ * all of them do work proportional to the edges. Run with {@code -t} or on
+ * machines with different core counts to see how Boruvka and Kruskal scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+public class SpanningTreeBenchmark {
+	@Param({ "1000", "10000" })
+	public int size;
+
+	private SparseGraph graph; // Sparse instance in CSR form
+	private int[] ids; // Every node of the instance
+
+	@Setup
+	public void setUp() {
+		graph = SparseGraph.fromMatrix(InstanceGenerator.generate(InstanceGenerator.Layout.SPARSE, size, 42));
+		ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+	}
+
+	@Benchmark
+	public SpanningTree prim() {
+		return PrimsAlgorithm.heap(graph, ids, 0);
+	}
+
+	@Benchmark
+	public SpanningTree boruvka() {
+		return BoruvkaAlgorithm.run(graph, ids, 0);
+	}
+
+	@Benchmark
+	public SpanningTree kruskal() {
+		return KruskalAlgorithm.run(graph, ids, 0);
+	}
+}
@@ -0,0 +1,404 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * All-pairs shortest-path distances and predecessors for a {@link Matrix}.
+ *
+ * <p>
+ * The tables are built once per matrix: Floyd-Warshall for small matrices and
+ * one array-based Dijkstra per source, run in parallel, for larger ones. Queries
+ * afterwards are plain array lookups.
+ *
+ * <p>
+ * When distances change, {@link #repair} derives the tables of the updated
+ * matrix from these instead of building them again. A lowered connection can
+ * only shorten paths, so each source that reaches it sooner is patched in one
+ * pass over its row. A raised or removed connection only matters to the sources
+ * whose shortest-path tree used it, and of those only to the nodes below it in
+ * the tree; they are settled again by a Dijkstra limited to those nodes, seeded
+ * from the rest of the tree, which keeps its distances.
+ */
+public class AllPairsShortestPaths {
+	static final int FLOYD_WARSHALL_LIMIT = 512; // Largest matrix solved with Floyd-Warshall
+	private static final byte UNKNOWN = 0; // Repair state of a node not visited yet
+	private static final byte BROKEN = 1; // Repair state of a node whose tree path uses a raised connection
+	private static final byte INTACT = 2; // Repair state of a node whose tree path keeps its distance
+
+	// Tables already built, keyed by matrix identity
+	private static final Map<Matrix, AllPairsShortestPaths> TABLES = Collections.synchronizedMap(new WeakHashMap<>());
+	// Builds in progress, guarded by TABLES; each entry is removed when its build ends
+	private static final Map<Matrix, CompletableFuture<AllPairsShortestPaths>> BUILDS = new HashMap<>();
+
+	private final int size; // Number of nodes
+	private final int[] distances; // Row-major shortest distances, Integer.MAX_VALUE if unreachable
+	private final int[] predecessors; // Row-major node before the target on the shortest path, -1 if none
+
+	private AllPairsShortestPaths(int size, int[] distances, int[] predecessors) {
+		this.size = size;
+		this.distances = distances;
+		this.predecessors = predecessors;
+	}
+
+	/**
+	 * Returns the shortest-path tables of a matrix, building them on first use.
+	 * The build runs outside the cache lock, so lookups for other matrices do not
+	 * wait for it; concurrent callers for the same matrix wait for the one build.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @return The cached tables for this matrix.
+	 */
+	public static AllPairsShortestPaths forMatrix(Matrix matrix) {
+		Matrix key = matrix.getSource();
+		CompletableFuture<AllPairsShortestPaths> pending;
+		synchronized (TABLES) {
+			AllPairsShortestPaths table = TABLES.get(key);
+			if (table != null) {
+				return table;
+			}
+			pending = BUILDS.get(key);
+			if (pending == null) {
+				BUILDS.put(key, new CompletableFuture<>()); // This caller builds
+			}
+		}
+		if (pending != null) {
+			try {
+				return pending.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException cause ? cause : e;
+			}
+		}
+
+		AllPairsShortestPaths table;
+		try {
+			table = build(matrix);
+		} catch (RuntimeException | Error e) {
+			synchronized (TABLES) {
+				BUILDS.remove(key).completeExceptionally(e); // A later call tries again
+			}
+			throw e;
+		}
+		synchronized (TABLES) {
+			TABLES.put(key, table);
+			BUILDS.remove(key).complete(table);
+		}
+		return table;
+	}
+
+	/**
+	 * Repairs the cached tables of a matrix for an updated copy of it and caches
+	 * the result for the copy. Nothing is built if the old matrix has no tables;
+	 * the copy then builds its own on first use.
+	 *
+	 * @param old     The matrix before the update.
+	 * @param updated The matrix after the update.
+	 * @param changes The changed connections, as passed to
+	 *                {@link Matrix#withDistances}.
+	 * @return The repaired tables, or null if there were none to repair.
+	 */
+	public static AllPairsShortestPaths forUpdate(Matrix old, Matrix updated, EdgeArrays changes) {
+		AllPairsShortestPaths table = TABLES.get(old.getSource());
+		if (table == null) {
+			return null;
+		}
+		AllPairsShortestPaths repaired = table.repair(old, updated, changes);
+		TABLES.put(updated.getSource(), repaired);
+		return repaired;
+	}
+
+	/**
+	 * Builds the shortest-path tables of a matrix without caching them.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @return The shortest-path tables.
+	 */
+	public static AllPairsShortestPaths build(Matrix matrix) {
+		return matrix.size() <= FLOYD_WARSHALL_LIMIT ? floydWarshall(matrix) : parallelDijkstra(matrix);
+	}
+
+	// Floyd-Warshall over the whole matrix
+	static AllPairsShortestPaths floydWarshall(Matrix matrix) {
+		int n = matrix.size();
+		int[] dist = new int[n * n];
+		int[] pred = new int[n * n];
+
+		// Start with the direct connections
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				int distance = i == j ? 0 : matrix.getDistance(i, j);
+				dist[i * n + j] = distance;
+				pred[i * n + j] = i != j && distance != Integer.MAX_VALUE ? i : -1;
+			}
+		}
+
+		// Allow each node in turn as an intermediate stop
+		for (int k = 0; k < n; k++) {
+			int rowK = k * n;
+			for (int i = 0; i < n; i++) {
+				int rowI = i * n;
+				int viaK = dist[rowI + k];
+				if (viaK == Integer.MAX_VALUE || i == k) {
+					continue; // No path through k from this source
+				}
+				for (int j = 0; j < n; j++) {
+					int fromK = dist[rowK + j];
+					if (fromK != Integer.MAX_VALUE && (long) viaK + fromK < dist[rowI + j]) {
+						dist[rowI + j] = viaK + fromK;
+						pred[rowI + j] = pred[rowK + j];
+					}
+				}
+			}
+		}
+		return new AllPairsShortestPaths(n, dist, pred);
+	}
+
+	// One dense Dijkstra per source, sources processed in parallel
+	static AllPairsShortestPaths parallelDijkstra(Matrix matrix) {
+		int n = matrix.size();
+		int[] dist = new int[n * n];
+		int[] pred = new int[n * n];
+		IntStream.range(0, n).parallel().forEach(source -> singleSource(matrix, source, dist, pred));
+		return new AllPairsShortestPaths(n, dist, pred);
+	}
+
+	// Array-based Dijkstra filling one row of the tables, O(V^2) for a dense matrix
+	static void singleSource(Matrix matrix, int source, int[] dist, int[] pred) {
+		int n = matrix.size();
+		int row = source * n;
+		boolean[] settled = new boolean[n];
+		Arrays.fill(dist, row, row + n, Integer.MAX_VALUE);
+		Arrays.fill(pred, row, row + n, -1);
+		dist[row + source] = 0;
+
+		for (int round = 0; round < n; round++) {
+			// Pick the closest unsettled node
+			int current = -1;
+			int best = Integer.MAX_VALUE;
+			for (int v = 0; v < n; v++) {
+				if (!settled[v] && dist[row + v] < best) {
+					best = dist[row + v];
+					current = v;
+				}
+			}
+			if (current == -1) {
+				break; // Remaining nodes are unreachable
+			}
+			settled[current] = true;
+
+			// Relax all connections of the settled node
+			for (int v = 0; v < n; v++) {
+				int weight = matrix.getDistance(current, v);
+				if (!settled[v] && weight != Integer.MAX_VALUE && (long) best + weight < dist[row + v]) {
+					dist[row + v] = best + weight;
+					pred[row + v] = current;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Derives the tables of an updated matrix from these tables of the old one.
+	 * These tables are left unchanged.
+	 *
+	 * @param old     The matrix these tables belong to.
+	 * @param updated The matrix after the update.
+	 * @param changes The changed connections; entries whose distance did not
+	 *                change are skipped.
+	 * @return The tables of the updated matrix.
+	 */
+	public AllPairsShortestPaths repair(Matrix old, Matrix updated, EdgeArrays changes) {
+		int n = size;
+		int[] dist = distances.clone();
+		int[] pred = predecessors.clone();
+
+		// Split the changes by direction, each connection once
+		EdgeArrays raised = new EdgeArrays(); // Old distance of each raised connection
+		EdgeArrays lowered = new EdgeArrays(); // New distance of each lowered connection
+		LongHashSet seen = new LongHashSet(changes.size());
+		for (int i = 0; i < changes.size(); i++) {
+			int from = changes.getFrom(i);
+			int to = changes.getTo(i);
+			if (from == to || !seen.add((long) from * n + to)) {
+				continue; // The diagonal is always 0, and a repeated change was applied as its last value
+			}
+			int before = old.getDistance(from, to);
+			int after = updated.getDistance(from, to);
+			if (after > before) {
+				raised.add(from, to, before);
+			} else if (after < before) {
+				lowered.add(from, to, after);
+			}
+		}
+
+		// Raise first, reading lowered connections at their old distance, then lower one at a time
+		IntStream sources = IntStream.range(0, n);
+		if (n > FLOYD_WARSHALL_LIMIT) {
+			sources = sources.parallel();
+		}
+		if (!raised.isEmpty()) {
+			sources.forEach(source -> raise(old, updated, source, raised, dist, pred));
+		}
+		for (int i = 0; i < lowered.size(); i++) {
+			int from = lowered.getFrom(i);
+			int to = lowered.getTo(i);
+			int weight = lowered.getWeight(i);
+			IntStream rows = IntStream.range(0, n);
+			if (n > FLOYD_WARSHALL_LIMIT) {
+				rows = rows.parallel();
+			}
+			rows.forEach(source -> lower(n, source, from, to, weight, dist, pred));
+		}
+		return new AllPairsShortestPaths(n, dist, pred);
+	}
+
+	// Shorten the paths from one source that gain from a lowered connection; row "to" never changes
+	private static void lower(int n, int source, int from, int to, int weight, int[] dist, int[] pred) {
+		int row = source * n;
+		if (dist[row + from] == Integer.MAX_VALUE || (long) dist[row + from] + weight >= dist[row + to]) {
+			return; // The source does not reach the connection sooner than before
+		}
+		long viaTo = (long) dist[row + from] + weight;
+		int rowTo = to * n;
+		for (int target = 0; target < n; target++) {
+			int rest = dist[rowTo + target];
+			if (rest != Integer.MAX_VALUE && viaTo + rest < dist[row + target]) {
+				dist[row + target] = (int) (viaTo + rest);
+				pred[row + target] = target == to ? from : pred[rowTo + target];
+			}
+		}
+	}
+
+	// Settle again the nodes whose shortest path from one source used a raised connection
+	private static void raise(Matrix old, Matrix updated, int source, EdgeArrays raised, int[] dist, int[] pred) {
+		int n = old.size();
+		int row = source * n;
+		boolean used = false;
+		for (int i = 0; i < raised.size(); i++) {
+			used |= pred[row + raised.getTo(i)] == raised.getFrom(i);
+		}
+		if (!used) {
+			return; // The tree of this source avoids every raised connection
+		}
+
+		// Mark the subtrees below the raised tree edges by walking up from each node
+		byte[] state = new byte[n]; // UNKNOWN, BROKEN or INTACT
+		state[source] = INTACT;
+		for (int i = 0; i < raised.size(); i++) {
+			if (pred[row + raised.getTo(i)] == raised.getFrom(i)) {
+				state[raised.getTo(i)] = BROKEN;
+			}
+		}
+		int[] walk = new int[n];
+		int[] broken = new int[n]; // Nodes to settle again
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			int depth = 0;
+			int at = v;
+			while (state[at] == UNKNOWN) {
+				if (pred[row + at] == -1) {
+					state[at] = INTACT; // Unreachable before, and raising cannot make it reachable
+					break;
+				}
+				walk[depth++] = at;
+				at = pred[row + at];
+			}
+			while (depth > 0) {
+				state[walk[--depth]] = state[at];
+			}
+			if (state[v] == BROKEN) {
+				broken[count++] = v;
+			}
+		}
+
+		// Best distance of each broken node through an intact node, whose distance is final
+		for (int i = 0; i < count; i++) {
+			int v = broken[i];
+			long best = Integer.MAX_VALUE;
+			int via = -1;
+			for (int u = 0; u < n; u++) {
+				if (state[u] == INTACT && u != v && dist[row + u] != Integer.MAX_VALUE) {
+					int weight = raisedWeight(old, updated, u, v);
+					if (weight != Integer.MAX_VALUE && dist[row + u] + (long) weight < best) {
+						best = dist[row + u] + (long) weight;
+						via = u;
+					}
+				}
+			}
+			dist[row + v] = (int) best;
+			pred[row + v] = via;
+		}
+
+		// Dijkstra among the broken nodes
+		while (count > 0) {
+			int pick = 0;
+			for (int i = 1; i < count; i++) {
+				if (dist[row + broken[i]] < dist[row + broken[pick]]) {
+					pick = i;
+				}
+			}
+			int current = broken[pick];
+			int best = dist[row + current];
+			if (best == Integer.MAX_VALUE) {
+				break; // The rest is no longer reachable
+			}
+			broken[pick] = broken[--count]; // Settle it
+			for (int i = 0; i < count; i++) {
+				int v = broken[i];
+				int weight = raisedWeight(old, updated, current, v);
+				if (weight != Integer.MAX_VALUE && (long) best + weight < dist[row + v]) {
+					dist[row + v] = best + weight;
+					pred[row + v] = current;
+				}
+			}
+		}
+	}
+
+	// Distance of a connection while raising: lowered connections still count at their old distance
+	private static int raisedWeight(Matrix old, Matrix updated, int from, int to) {
+		return Math.max(old.getDistance(from, to), updated.getDistance(from, to));
+	}
+
+	// Get the shortest distance between two node ids, Integer.MAX_VALUE if unreachable
+	public int getDistance(int from, int to) {
+		return distances[from * size + to];
+	}
+
+	// Get the node before the target on the shortest path, -1 if none
+	public int getPredecessor(int from, int to) {
+		return predecessors[from * size + to];
+	}
+
+	// Get the number of nodes covered by the tables
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Reconstructs the shortest path between two node ids. An unreachable target
+	 * yields a path containing only the target, as the Dijkstra search did.
+	 *
+	 * @param from Id of the start node.
+	 * @param to   Id of the end node.
+	 * @return Node ids from start to end.
+	 */
+	public int[] getPath(int from, int to) {
+		int length = 1;
+		for (int at = to; predecessors[from * size + at] != -1; at = predecessors[from * size + at]) {
+			length++; // Count the nodes on the path first
+		}
+		int[] path = new int[length];
+		int at = to;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = at;
+			at = predecessors[from * size + at];
+		}
+		return path;
+	}
+}
@@ -0,0 +1,443 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Solver that trades quality for latency per request: it has a tour as soon as
+ * Christofides is done and improves it until a {@link Deadline}, then returns
+ * the best tour found.
+ *
+ * <p>
+ * The stages run in order: Held-Karp for stop sets of up to the exact limit,
+ * which is optimal and fast, otherwise the Christofides tour, 2-opt / Or-opt and
+ * chained LK. Held-Karp cannot stop early, so it is also skipped when its
+ * estimated 2^(n-1) (n-1)^2 steps would not finish in the time left. The LK
+ * stage runs on several workers with different kick seeds, all starting from
+ * the local-search tour and polling the same deadline; a worker also stops
+ * after {@link #STALL_KICKS} kicks in a row that found nothing shorter. Every
+ * shorter tour is offered to one shared best, and the optional listener sees
+ * each improvement as it happens. The result reports the time and tour length
+ * after each stage.
+ */
+public class AnytimeSolver {
+	static final int STALL_KICKS = 1000; // Kicks in a row without improvement after which a worker gives up
+	static final long EXACT_STEPS_PER_MILLI = 100_000; // Held-Karp steps assumed per millisecond, on the slow side
+
+	private final LiveMatrix matrix; // Distances between matrix ids, read once per solve
+	private final int exactLimit; // Largest stop count solved exactly with Held-Karp
+	private final int workers; // Threads running chained LK
+	private final ForkJoinPool pool; // Runs the workers beyond the calling thread
+
+	public AnytimeSolver(Matrix matrix) {
+		this(new LiveMatrix(matrix), HeldKarp.DEFAULT_LIMIT, 1);
+	}
+
+	public AnytimeSolver(LiveMatrix matrix, int exactLimit, int workers) {
+		this(matrix, exactLimit, workers, ForkJoinPool.commonPool());
+	}
+
+	public AnytimeSolver(LiveMatrix matrix, int exactLimit, int workers, ForkJoinPool pool) {
+		this.matrix = matrix;
+		this.exactLimit = Math.min(exactLimit, HeldKarp.MAX_VERTICES);
+		this.workers = Math.max(1, workers);
+		this.pool = pool;
+	}
+
+	/**
+	 * Solves the route through the given stops by the deadline. Repeated stops
+	 * are visited once, and the route starts at the first stop.
+	 *
+	 * @param stops    Names of the stops to visit.
+	 * @param deadline When to stop improving; the Christofides tour is built even
+	 *                 if it has already expired.
+	 * @return The best route found and the stage report.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the best route are not connected.
+	 */
+	public Result solve(List<String> stops, Deadline deadline) {
+		return solve(stops, deadline, null);
+	}
+
+	/**
+	 * Solves the route through the given stops by the deadline and reports every
+	 * improvement.
+	 *
+	 * @param stops     Names of the stops to visit.
+	 * @param deadline  When to stop improving.
+	 * @param onImprove Receives each shorter route as it is found, on the thread
+	 *                  that found it; null for no reports.
+	 * @return The best route found and the stage report.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the best route are not connected.
+	 */
+	public Result solve(List<String> stops, Deadline deadline, Consumer<Route> onImprove) {
+		return solve(stops, deadline, onImprove, SolveMetrics.NOOP);
+	}
+
+	/**
+	 * Solves the route through the given stops by the deadline, reports every
+	 * improvement and records the phases of the solve. Lookups of the LK workers
+	 * are counted; their heap operations and allocations are not, since they run
+	 * on other threads.
+	 *
+	 * @param stops     Names of the stops to visit.
+	 * @param deadline  When to stop improving.
+	 * @param onImprove Receives each shorter route as it is found, on the thread
+	 *                  that found it; null for no reports.
+	 * @param metrics   Receives the phase measurements.
+	 * @return The best route found and the stage report.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the best route are not connected.
+	 */
+	public Result solve(List<String> stops, Deadline deadline, Consumer<Route> onImprove, SolveMetrics metrics) {
+		Matrix snapshot = metrics.track(matrix.get()); // All stages use the same distances
+		List<String> names = new ArrayList<>(new LinkedHashSet<>(stops)); // Drop repeated stops, keep order
+		int[] ids = snapshot.getIds(names);
+		int n = ids.length;
+		Run run = new Run(snapshot, ids, deadline, names, onImprove);
+
+		if (n <= 3) {
+			int[] tour = new int[n]; // Every order of three or fewer stops is the same cycle
+			for (int i = 0; i < n; i++) {
+				tour[i] = i;
+			}
+			run.offer(tour, length(snapshot, ids, tour));
+			run.stage("trivial");
+			return run.result();
+		}
+		if (n <= exactLimit && exactFits(n, deadline)) {
+			metrics.begin(SolveMetrics.Phase.EXACT);
+			int[] tour = HeldKarp.solve(snapshot, ids); // Null if no closed tour exists
+			metrics.end();
+			if (tour != null) {
+				run.offer(tour, length(snapshot, ids, tour));
+				run.stage("exact");
+				return run.result();
+			}
+		}
+
+		Multigraph graph = Christofides.multigraph(snapshot, ids, metrics);
+		metrics.begin(SolveMetrics.Phase.CIRCUIT);
+		int[] tour = graph.hamiltonianCycle(0);
+		run.offer(tour, length(snapshot, ids, tour));
+		run.stage("christofides");
+		metrics.begin(SolveMetrics.Phase.IMPROVE);
+		run.improve(tour, workers, pool);
+		metrics.end();
+		return run.result();
+	}
+
+	/**
+	 * Improves a given tour by the deadline with 2-opt / Or-opt and chained LK.
+	 *
+	 * @param matrix   The adjacency matrix.
+	 * @param ids      Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour     Every local vertex exactly once, in tour order; left unchanged.
+	 * @param deadline When to stop improving.
+	 * @param workers  Threads running chained LK, at least 1.
+	 * @return The best tour found and the stage report; the route is null.
+	 */
+	public static Result improve(Matrix matrix, int[] ids, int[] tour, Deadline deadline, int workers) {
+		Run run = new Run(matrix, ids, deadline, null, null);
+		run.offer(tour, length(matrix, ids, tour));
+		run.improve(tour.clone(), Math.max(1, workers), ForkJoinPool.commonPool());
+		return run.result();
+	}
+
+	// Whether Held-Karp over n stops is expected to finish before the deadline
+	static boolean exactFits(int n, Deadline deadline) {
+		long steps = ((long) (n - 1) * (n - 1)) << (n - 1); // At most 19^2 * 2^19 below MAX_VERTICES
+		return steps / EXACT_STEPS_PER_MILLI <= deadline.remainingMillis();
+	}
+
+	// Length of a closed tour, counting missing connections as Integer.MAX_VALUE like the improvers do
+	private static long length(Matrix matrix, int[] ids, int[] tour) {
+		long total = 0;
+		for (int i = 0; i < tour.length && tour.length > 1; i++) {
+			total += matrix.getDistance(ids[tour[i]], ids[tour[(i + 1) % tour.length]]);
+		}
+		return total;
+	}
+
+	// State of one solve, shared by its workers
+	private static final class Run {
+		final Matrix matrix; // Snapshot the solve works on
+		final int[] ids; // Matrix id of each local vertex
+		final Deadline deadline; // Shared by all workers
+		final List<String> names; // Stop name of each local vertex, null when improving a bare tour
+		final Consumer<Route> onImprove; // Improvement listener, null if there is none
+		final long startTime = System.nanoTime(); // When the solve began
+		final List<Stage> stages = new ArrayList<>(); // Finished stages, in order
+		final LongAdder kicks = new LongAdder(); // Kicks applied by all workers
+		long stageStart = startTime; // When the running stage began
+		int[] best; // Shortest tour so far, guarded by this
+		long bestLength = Long.MAX_VALUE; // Its length, guarded by this
+		volatile boolean cut; // Whether some stage stopped at the deadline rather than running out of moves
+
+		Run(Matrix matrix, int[] ids, Deadline deadline, List<String> names, Consumer<Route> onImprove) {
+			this.matrix = matrix;
+			this.ids = ids;
+			this.deadline = deadline;
+			this.names = names;
+			this.onImprove = onImprove;
+		}
+
+		// Keep a tour if it is shorter than the best so far
+		synchronized void offer(int[] tour, long length) {
+			if (length >= bestLength) {
+				return;
+			}
+			int start = 0;
+			while (start < tour.length && tour[start] != 0) {
+				start++; // Routes start at the first stop
+			}
+			best = new int[tour.length];
+			System.arraycopy(tour, start, best, 0, tour.length - start);
+			System.arraycopy(tour, 0, best, tour.length - start, start);
+			bestLength = length;
+			if (onImprove != null && names != null && HeldKarp.length(matrix, ids, best) != Long.MAX_VALUE) {
+				onImprove.accept(TspSolver.toRoute(matrix, names, ids, best)); // Only fully connected tours
+			}
+		}
+
+		// Keep the LK tour if it is shorter, taking it out of the tour only then
+		synchronized void offer(LinKernighan lk) {
+			if (lk.getLength() < bestLength) {
+				offer(lk.getTour(0), lk.getLength());
+			}
+		}
+
+		// Close the running stage
+		synchronized void stage(String name) {
+			long now = System.nanoTime();
+			stages.add(new Stage(name, now - stageStart, bestLength));
+			stageStart = now;
+		}
+
+		// Run 2-opt / Or-opt on the calling thread, then chained LK on the workers
+		void improve(int[] tour, int workers, ForkJoinPool pool) {
+			int n = tour.length;
+			if (n < 5) {
+				return; // Every tour of four or fewer vertices is already optimal
+			}
+			if (deadline.isExpired()) {
+				cut = true;
+				return;
+			}
+			int[][] neighbors = NeighborLists.nearest(matrix, ids, LinKernighan.NEIGHBORS);
+			LocalSearch search = new LocalSearch(matrix, ids, tour, neighbors);
+			search.setDeadline(deadline);
+			search.run();
+			offer(tour, search.length());
+			stage("local-search");
+			if (deadline.isExpired()) {
+				cut = true;
+				return;
+			}
+
+			List<ForkJoinTask<?>> helpers = new ArrayList<>(workers - 1);
+			for (int worker = 1; worker < workers; worker++) {
+				int seed = worker;
+				helpers.add(pool.submit(() -> linKernighan(tour, neighbors, seed)));
+			}
+			RuntimeException failure = null;
+			try {
+				linKernighan(tour, neighbors, 0);
+			} catch (RuntimeException e) {
+				deadline.cancel(); // Stop the other workers
+				failure = e;
+			}
+			boolean interrupted = false;
+			for (ForkJoinTask<?> helper : helpers) {
+				while (true) {
+					try {
+						helper.get(); // Unlike join(), returns early when this thread is interrupted
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+						cut = true;
+						deadline.cancel(); // Running helpers return at their next poll
+						for (ForkJoinTask<?> queued : helpers) {
+							queued.cancel(false); // Helpers still waiting for a pool thread never start
+						}
+					} catch (CancellationException e) {
+						break;
+					} catch (ExecutionException e) {
+						deadline.cancel(); // Stop the other workers
+						if (failure == null) {
+							failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+									: new IllegalStateException("LK worker failed", e.getCause());
+						}
+						break;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt(); // Keep the interrupt for the caller
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			stage("lin-kernighan");
+		}
+
+		// Chained LK from a copy of the tour until the deadline or a stall
+		void linKernighan(int[] start, int[][] neighbors, long seed) {
+			LinKernighan lk = new LinKernighan(matrix, ids, start, neighbors);
+			lk.setDeadline(deadline);
+			lk.improveAll();
+			offer(lk);
+			if (deadline.isExpired()) {
+				cut = true;
+				return;
+			}
+			if (start.length < 8) {
+				return; // Too small for kicks to find anything new
+			}
+			Random random = new Random(seed);
+			int stall = 0;
+			while (stall < STALL_KICKS && !deadline.isExpired()) {
+				kicks.increment();
+				if (lk.kick(random)) {
+					offer(lk);
+					stall = 0;
+				} else {
+					stall++;
+				}
+			}
+			if (stall < STALL_KICKS) {
+				cut = true; // Stopped by the deadline
+			}
+		}
+
+		// Summarize the solve
+		synchronized Result result() {
+			Route route = names == null ? null : TspSolver.toRoute(matrix, names, ids, best);
+			return new Result(route, best, bestLength, stages, System.nanoTime() - startTime, kicks.sum(), cut);
+		}
+	}
+
+	/**
+	 * Time spent in one stage and the best tour length when it ended.
+	 */
+	public static final class Stage {
+		private final String stage; // Stage name
+		private final long nanos; // Time spent in the stage
+		private final long length; // Best tour length at the end of the stage
+
+		Stage(String stage, long nanos, long length) {
+			this.stage = stage;
+			this.nanos = nanos;
+			this.length = length;
+		}
+
+		// Get the stage name: trivial, exact, christofides, local-search or lin-kernighan
+		public String getName() {
+			return stage;
+		}
+
+		// Get the time spent in the stage
+		public long getNanos() {
+			return nanos;
+		}
+
+		// Get the best tour length when the stage ended
+		public long getLength() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-14s %9.3f ms  %d units", stage, nanos / 1e6, length);
+		}
+	}
+
+	/**
+	 * Best tour of a solve and the stage report.
+	 */
+	public static final class Result {
+		private final Route route; // Best route, null when a bare tour was improved
+		private final int[] tour; // Best tour of local vertices
+		private final long length; // Its length
+		private final List<Stage> stages; // Stages in the order they ran
+		private final long nanos; // Time spent in the solve
+		private final long kicks; // Kicks applied by all LK workers
+		private final boolean deadlineReached; // Whether the deadline cut the improvement short
+
+		Result(Route route, int[] tour, long length, List<Stage> stages, long nanos, long kicks,
+				boolean deadlineReached) {
+			this.route = route;
+			this.tour = tour;
+			this.length = length;
+			this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+			this.nanos = nanos;
+			this.kicks = kicks;
+			this.deadlineReached = deadlineReached;
+		}
+
+		// Get the best route, null when a bare tour was improved
+		public Route getRoute() {
+			return route;
+		}
+
+		// Get the best tour of local vertices
+		public int[] getTour() {
+			return tour.clone();
+		}
+
+		// Get the length of the best tour
+		public long getLength() {
+			return length;
+		}
+
+		// Get the stages in the order they ran
+		public List<Stage> getStages() {
+			return stages;
+		}
+
+		// Get the time spent in the solve
+		public long getNanos() {
+			return nanos;
+		}
+
+		// Get the number of kicks applied by all LK workers
+		public long getKicks() {
+			return kicks;
+		}
+
+		// Check whether the deadline cut the improvement short rather than the improvement running out
+		public boolean isDeadlineReached() {
+			return deadlineReached;
+		}
+
+		// Get the stage report as nested maps, for the JSON output
+		public Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("totalNanos", nanos);
+			map.put("deadlineReached", deadlineReached);
+			map.put("kicks", kicks);
+			List<Map<String, Object>> list = new ArrayList<>(stages.size());
+			for (Stage stage : stages) {
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("stage", stage.getName());
+				entry.put("nanos", stage.getNanos());
+				entry.put("length", stage.getLength());
+				list.add(entry);
+			}
+			map.put("stages", list);
+			return map;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package TSP;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Solves a stream of jobs given as JSON lines through a fixed pool of workers.
+ *
+ * <p>
+ * Each input line is a job such as {@code {"id":"42","stops":["A","C","F"]}}
+ * and produces one output line, either
+ * {@code {"id":"42","route":["A","F","C"],"length":57}} or
+ * {@code {"id":"42","error":"Unknown node: Q"}}. Results are written in input
+ * order. At most {@code WINDOW_PER_THREAD} jobs per worker are in flight, so
+ * reading stops while the writer waits for a slow job and memory stays bounded
+ * for inputs of any length. With metrics enabled, every result line also
+ * carries the phase timings and counters of its solve under {@code "metrics"}.
+ *
+ * <p>
+ * A job with {@code "deadline"} in milliseconds, or any job when a default
+ * deadline is set, is solved with {@link AnytimeSolver}: it gets the best route
+ * found by then, and the result carries the time and length after each stage
+ * under {@code "anytime"}.
+ */
+public class BatchSolver {
+	static final int WINDOW_PER_THREAD = 64; // Jobs in flight per worker thread
+
+	private final TspSolver solver; // Shared, stateless solver
+	private final int threads; // Number of worker threads
+	private final boolean withMetrics; // Whether result lines carry the phase metrics
+	private final long deadlineMillis; // Deadline of jobs that do not set one, 0 to solve them to the end
+	private final Gson gson = new Gson(); // Thread-safe JSON mapper
+
+	public BatchSolver(TspSolver solver, int threads) {
+		this(solver, threads, false);
+	}
+
+	public BatchSolver(TspSolver solver, int threads, boolean withMetrics) {
+		this(solver, threads, withMetrics, 0);
+	}
+
+	public BatchSolver(TspSolver solver, int threads, boolean withMetrics, long deadlineMillis) {
+		this.solver = solver;
+		this.threads = Math.max(1, threads);
+		this.withMetrics = withMetrics;
+		this.deadlineMillis = Math.max(0, deadlineMillis);
+	}
+
+	/**
+	 * Solves every job read from the input and writes one result line per job.
+	 *
+	 * @param in  Job lines; blank lines are skipped.
+	 * @param out Receives the result lines, flushed after each line.
+	 * @return The number of jobs processed.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public int run(BufferedReader in, Writer out) throws IOException {
+		int window = threads * WINDOW_PER_THREAD;
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(window));
+		ArrayDeque<Future<String>> pending = new ArrayDeque<>(window); // Submitted jobs in input order
+		int count = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (pending.size() == window) {
+					write(pending.poll(), out); // Wait for the oldest job before reading further
+				}
+				String job = line;
+				pending.add(pool.submit(() -> solve(job)));
+				count++;
+			}
+			while (!pending.isEmpty()) {
+				write(pending.poll(), out);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return count;
+	}
+
+	// Solve one job line and format its result line; never throws
+	String solve(String line) {
+		return toJson(solveJob(line));
+	}
+
+	// Solve one job line; failures are reported in the result's error, never thrown
+	Result solveJob(String line) {
+		Result result = new Result();
+		try {
+			Job job = gson.fromJson(line, Job.class);
+			if (job == null || job.stops == null) {
+				throw new IllegalArgumentException("Job has no stops");
+			}
+			result.id = job.id;
+			long millis = job.deadline != null ? job.deadline : deadlineMillis;
+			SolveMetrics metrics = withMetrics ? SolveMetrics.create(job.id) : SolveMetrics.NOOP;
+			if (millis > 0) {
+				AnytimeSolver.Result anytime = solver.solve(job.stops, Deadline.after(millis), metrics);
+				result.route = anytime.getRoute().getStops();
+				result.length = anytime.getRoute().getLength();
+				result.anytime = anytime.toMap();
+			} else {
+				Route route = solver.solve(job.stops, metrics);
+				result.route = route.getStops();
+				result.length = route.getLength();
+			}
+			if (withMetrics) {
+				result.metrics = metrics.toMap();
+			}
+		} catch (JsonParseException | IllegalArgumentException e) {
+			result.error = e.getMessage();
+		} catch (RuntimeException e) {
+			result.error = e.toString(); // A failing job must not end the batch or the server's request
+		}
+		return result;
+	}
+
+	// Format a result as one JSON line
+	String toJson(Result result) {
+		return gson.toJson(result);
+	}
+
+	// Write the result of a finished job as one line
+	private static void write(Future<String> result, Writer out) throws IOException {
+		try {
+			out.write(result.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a job");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Job failed unexpectedly", e.getCause());
+		}
+		out.write('\n');
+		out.flush();
+	}
+
+	// Input line
+	private static final class Job {
+		String id; // Optional job id, echoed in the result
+		List<String> stops; // Names of the stops to visit
+		Long deadline; // Optional milliseconds to solve in, overriding the default deadline
+	}
+
+	// Output line; null fields are left out
+	static final class Result {
+		String id; // Job id from the input
+		List<String> route; // Stops in visiting order
+		Long length; // Length of the closed route
+		String error; // Why the job could not be solved
+		Map<String, Object> metrics; // Phase timings and counters, only with metrics enabled
+		Map<String, Object> anytime; // Stage timings and lengths, only for jobs with a deadline
+	}
+}
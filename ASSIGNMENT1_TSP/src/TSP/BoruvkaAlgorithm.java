@@ -0,0 +1,206 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Boruvka's minimum spanning tree algorithm, with the expensive part spread
+ * across cores.
+ *
+ * <p>
+ * Each round, every vertex finds its cheapest edge to another component in
+ * parallel. The cheapest of those per component joins the tree, and a
+ * {@link UnionFind} contracts the components it connects. The number of
+ * components at least halves per round, so there are at most log2(V) rounds.
+ * Equal weights are ordered by their end vertices, which keeps the chosen edges
+ * free of cycles.
+ *
+ * <p>
+ * A vertex's cheapest external edge stays the cheapest as long as it leaves the
+ * component, since components only grow. The sparse engine therefore keeps a
+ * cursor into each weight-sorted edge list and visits every edge once over all
+ * rounds, O(E log E) for the sort plus O(E) for the rounds. The matrix engine
+ * rescans a row only when the previous cheapest edge became internal.
+ */
+public class BoruvkaAlgorithm {
+	static final int PARALLEL_THRESHOLD = 1 << 12; // Smallest vertex count worth splitting across threads
+
+	private BoruvkaAlgorithm() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Minimum spanning tree over matrix distances, O(V^2) per round. An edge
+	 * weighs the lighter of its two directions.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param root   Local index of the vertex the tree is rooted at.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree run(Matrix matrix, int[] ids, int root) {
+		int n = ids.length;
+		boolean symmetric = matrix.isSymmetric(); // Checked once per matrix
+		Rounds rounds = new Rounds(n);
+		int[] component = rounds.component;
+		int[] bestWeight = rounds.bestWeight;
+		int[] bestTarget = rounds.bestTarget;
+		return rounds.solve(v -> {
+			int target = bestTarget[v];
+			if (target != -1 && component[target] != component[v]) {
+				return; // Still the cheapest edge out of the component
+			}
+			int from = ids[v];
+			int own = component[v];
+			int best = Integer.MAX_VALUE;
+			target = -1;
+			for (int u = 0; u < n; u++) {
+				if (component[u] != own) {
+					int distance = symmetric ? matrix.getDistance(from, ids[u])
+							: matrix.getUndirectedDistance(from, ids[u]);
+					if (distance < best) {
+						best = distance; // Strictly lighter, so ties go to the lowest index
+						target = u;
+					}
+				}
+			}
+			bestWeight[v] = best;
+			bestTarget[v] = target;
+		}, root);
+	}
+
+	/**
+	 * Minimum spanning tree over the edges of a sparse graph, treating every edge
+	 * as undirected. Edges to nodes outside the given vertices are ignored.
+	 *
+	 * @param graph The graph in CSR form.
+	 * @param ids   Graph ids of the vertices, indexed by local vertex index.
+	 * @param root  Local index of the vertex the tree is rooted at.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree run(SparseGraph graph, int[] ids, int root) {
+		SparseGraph local = graph.induced(ids).undirected();
+		int n = ids.length;
+
+		// Copy each edge list sorted by weight, then by target
+		long[] sorted = new long[local.edgeCount()]; // Weight in the high half, target in the low half
+		IntStream vertices = IntStream.range(0, n);
+		if (n >= PARALLEL_THRESHOLD) {
+			vertices = vertices.parallel();
+		}
+		vertices.forEach(v -> {
+			for (int e = local.begin(v); e < local.end(v); e++) {
+				sorted[e] = (long) local.getWeight(e) << 32 | local.getTarget(e);
+			}
+			Arrays.sort(sorted, local.begin(v), local.end(v));
+		});
+
+		Rounds rounds = new Rounds(n);
+		int[] component = rounds.component;
+		int[] bestWeight = rounds.bestWeight;
+		int[] bestTarget = rounds.bestTarget;
+		int[] cursor = new int[n]; // Position of the first edge of each vertex that may still leave its component
+		for (int v = 0; v < n; v++) {
+			cursor[v] = local.begin(v);
+		}
+		return rounds.solve(v -> {
+			int e = cursor[v];
+			int end = local.end(v);
+			while (e < end && component[(int) sorted[e]] == component[v]) {
+				e++; // Internal edges stay internal
+			}
+			cursor[v] = e;
+			bestTarget[v] = e < end ? (int) sorted[e] : -1;
+			bestWeight[v] = e < end ? (int) (sorted[e] >> 32) : Integer.MAX_VALUE;
+		}, root);
+	}
+
+	// Round state shared by both engines
+	private static final class Rounds {
+		final int n; // Number of vertices
+		final int[] component; // Representative of each vertex's component at the start of the round
+		final int[] bestWeight; // Weight of each vertex's cheapest edge out of its component
+		final int[] bestTarget; // Other end of that edge, -1 if there is none
+
+		Rounds(int n) {
+			this.n = n;
+			component = new int[n];
+			bestWeight = new int[n];
+			bestTarget = new int[n];
+			for (int v = 0; v < n; v++) {
+				component[v] = v;
+			}
+			Arrays.fill(bestTarget, -1);
+		}
+
+		/**
+		 * Runs rounds until no component has an edge out of it.
+		 *
+		 * @param cheapest Fills bestWeight and bestTarget of a vertex; called for
+		 *                 many vertices at once.
+		 * @param root     Local index of the vertex the tree is rooted at.
+		 */
+		SpanningTree solve(IntConsumer cheapest, int root) {
+			UnionFind sets = new UnionFind(n);
+			int[] from = new int[Math.max(0, n - 1)];
+			int[] to = new int[from.length];
+			int[] weight = new int[from.length];
+			int count = 0;
+			int[] choice = new int[n]; // Vertex holding the cheapest edge of each component, -1 if none
+			Arrays.fill(choice, -1);
+
+			boolean merged = n > 1;
+			while (merged) {
+				IntStream vertices = IntStream.range(0, n);
+				if (n >= PARALLEL_THRESHOLD) {
+					vertices = vertices.parallel();
+				}
+				vertices.forEach(cheapest);
+
+				// Pick the cheapest edge of each component
+				for (int v = 0; v < n; v++) {
+					if (bestTarget[v] != -1) {
+						int c = component[v];
+						if (choice[c] == -1 || lighter(v, choice[c])) {
+							choice[c] = v;
+						}
+					}
+				}
+
+				// Add the picked edges and contract the components they connect
+				merged = false;
+				for (int v = 0; v < n; v++) {
+					if (component[v] == v && choice[v] != -1) {
+						int a = choice[v];
+						int b = bestTarget[a];
+						if (sets.union(a, b)) {
+							from[count] = a;
+							to[count] = b;
+							weight[count++] = bestWeight[a];
+							merged = true;
+						} // Otherwise both components picked the same edge
+						choice[v] = -1;
+					}
+				}
+				for (int v = 0; v < n; v++) {
+					component[v] = sets.find(v);
+				}
+			}
+			return SpanningTree.fromEdges(n, from, to, weight, count, root);
+		}
+
+		// Compare the cheapest edges of two vertices by weight, then by their ends
+		private boolean lighter(int a, int b) {
+			if (bestWeight[a] != bestWeight[b]) {
+				return bestWeight[a] < bestWeight[b];
+			}
+			int lowA = Math.min(a, bestTarget[a]);
+			int lowB = Math.min(b, bestTarget[b]);
+			if (lowA != lowB) {
+				return lowA < lowB;
+			}
+			return Math.max(a, bestTarget[a]) < Math.max(b, bestTarget[b]);
+		}
+	}
+}
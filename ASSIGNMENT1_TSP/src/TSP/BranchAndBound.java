@@ -0,0 +1,530 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact shortest closed tour by branch and bound, for tours too long for
+ * {@link HeldKarp}.
+ *
+ * <p>
+ * Lower bounds are 1-trees: a spanning tree over vertices 1..n-1 from
+ * {@link PrimsAlgorithm#dense(int[], int, int)} plus the two cheapest edges at
+ * vertex 0. Subgradient optimization of Lagrangian vertex penalties pushes the
+ * tree towards degree 2 everywhere, which tightens the bound (Held-Karp bound).
+ * A search node includes or excludes one tree edge at a vertex of degree above
+ * two, and children continue the subgradient from the penalties of their
+ * parent, so they need only a few iterations.
+ *
+ * <p>
+ * Nodes run depth-first as fork/join tasks, so idle workers steal the open
+ * siblings. All tasks prune against one shared incumbent. When the time limit
+ * passes, the remaining nodes keep their bound and the result reports the gap
+ * instead of a proof.
+ *
+ * <p>
+ * Bounds use the cheaper direction of every connection. On asymmetric matrices
+ * they stay valid but weaker, and a node whose 1-tree is a tour keeps branching
+ * while the directed length of that tour is above the bound. The starting tour
+ * comes from {@link LinKernighan}, which also works on directed distances.
+ */
+public class BranchAndBound {
+	static final int MAX_VERTICES = 200; // Largest tour the solver accepts
+	static final int ROOT_ITERATIONS_PER_VERTEX = 50; // Subgradient iterations at the root, per vertex
+	static final int NODE_ITERATIONS = 30; // Subgradient iterations at every other node
+	static final int KICKS = 200; // Double-bridge kicks for the starting tour
+	private static final int FORCED = Integer.MIN_VALUE / 2; // Tree weight that puts an included edge into every tree
+	private static final byte FREE = 0; // Edge state: not decided
+	private static final byte INCLUDED = 1; // Edge state: every tour of the subtree uses it
+	private static final byte EXCLUDED = 2; // Edge state: no tour of the subtree uses it
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final int[] ids; // Matrix id of each local vertex
+	private final int n; // Number of vertices
+	private final int[] cost; // Row-major cheaper direction of each connection, Integer.MAX_VALUE if missing
+	private final long deadline; // System.nanoTime() after which no further nodes are expanded
+	private final LongAccumulator openBound = new LongAccumulator(Math::min, Long.MAX_VALUE); // Smallest bound left open
+	private final LongAdder nodes = new LongAdder(); // Evaluated search nodes
+	private volatile long incumbentLength; // Length of the best tour found
+	private int[] incumbentTour; // Best tour found, guarded by this
+
+	private BranchAndBound(Matrix matrix, int[] ids, int[] tour, long length, long timeLimitMillis) {
+		this.matrix = matrix;
+		this.ids = ids;
+		this.n = ids.length;
+		this.cost = new int[n * n];
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				cost[a * n + b] = a == b ? Integer.MAX_VALUE
+						: Math.min(matrix.getDistance(ids[a], ids[b]), matrix.getDistance(ids[b], ids[a]));
+			}
+		}
+		this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+		this.incumbentTour = tour;
+		this.incumbentLength = length;
+	}
+
+	/**
+	 * Solves starting from a Christofides tour improved with chained LK, on the
+	 * common pool.
+	 *
+	 * @param matrix          The adjacency matrix.
+	 * @param ids             Matrix ids of the vertices, indexed by local vertex index.
+	 * @param timeLimitMillis Time after which the search stops and reports its gap.
+	 * @return The best tour with its proven lower bound.
+	 */
+	public static Result solve(Matrix matrix, int[] ids, long timeLimitMillis) {
+		int[] tour = ids.length == 0 ? new int[0] : Christofides.tour(matrix, ids, 0);
+		LinKernighan.improve(matrix, ids, tour, KICKS, 0);
+		return solve(matrix, ids, tour, timeLimitMillis, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Proves a tour optimal or finds a shorter one.
+	 *
+	 * @param matrix          The adjacency matrix.
+	 * @param ids             Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour            Starting tour over every local vertex; the better it
+	 *                        is, the more of the search is pruned.
+	 * @param timeLimitMillis Time after which the search stops and reports its gap.
+	 * @param pool            Pool that runs the search nodes.
+	 * @return The best tour with its proven lower bound.
+	 * @throws IllegalArgumentException If there are more than
+	 *                                  {@link #MAX_VERTICES} vertices.
+	 */
+	public static Result solve(Matrix matrix, int[] ids, int[] tour, long timeLimitMillis, ForkJoinPool pool) {
+		int n = ids.length;
+		if (n > MAX_VERTICES) {
+			throw new IllegalArgumentException("Branch and bound supports at most " + MAX_VERTICES + " stops, got " + n);
+		}
+		long length = HeldKarp.length(matrix, ids, tour);
+		if (n <= 3) {
+			return new Result(tour.clone(), length, length, 0); // Every order is the same cycle
+		}
+
+		BranchAndBound search = new BranchAndBound(matrix, ids, tour.clone(), length, timeLimitMillis);
+		byte[] state = new byte[n * n];
+		if (search.propagate(state)) {
+			pool.invoke(search.new Node(state, new double[n], ROOT_ITERATIONS_PER_VERTEX * n, Long.MIN_VALUE));
+		}
+		synchronized (search) {
+			long lowerBound = Math.min(search.incumbentLength, search.openBound.get());
+			return new Result(rotate(search.incumbentTour), search.incumbentLength, lowerBound, search.nodes.sum());
+		}
+	}
+
+	// One search node: evaluates its bound, then prunes, records a tour or branches
+	private final class Node extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final byte[] state; // Edge decisions of the subtree, row-major and symmetric
+		private final double[] penalties; // Lagrangian penalties to start the subgradient from
+		private final int iterations; // Subgradient iterations for this node
+		private final long parentBound; // Bound of the parent, Long.MIN_VALUE at the root
+
+		Node(byte[] state, double[] penalties, int iterations, long parentBound) {
+			this.state = state;
+			this.penalties = penalties;
+			this.iterations = iterations;
+			this.parentBound = parentBound;
+		}
+
+		@Override
+		protected void compute() {
+			if (parentBound >= incumbentLength) {
+				return; // A shorter tour was found since the node was created
+			}
+			if (parentBound != Long.MIN_VALUE && System.nanoTime() > deadline) {
+				openBound.accumulate(parentBound); // Out of time: the subtree stays open
+				return;
+			}
+			nodes.increment();
+			OneTree tree = optimize(state, penalties, iterations);
+			if (tree == null || tree.bound >= incumbentLength) {
+				return; // Infeasible or cannot beat the incumbent
+			}
+			if (parentBound == Long.MIN_VALUE && System.nanoTime() > deadline) {
+				openBound.accumulate(tree.bound); // The root alone used up the time
+				return;
+			}
+
+			// Branch on the heaviest undecided tree edge at the vertex with the highest degree
+			int vertex = -1;
+			for (int e = 0; e < n; e++) {
+				int a = tree.from[e];
+				int b = tree.to[e];
+				if (state[a * n + b] == FREE) {
+					int higher = tree.degree[a] >= tree.degree[b] ? a : b;
+					if (vertex == -1 || tree.degree[higher] > tree.degree[vertex]) {
+						vertex = higher;
+					}
+				}
+			}
+			if (vertex == -1) {
+				return; // Every tree edge is decided, so the tree is the only tour left here
+			}
+			int other = -1;
+			long heaviest = Long.MIN_VALUE;
+			for (int e = 0; e < n; e++) {
+				int a = tree.from[e];
+				int b = tree.to[e];
+				if ((a == vertex || b == vertex) && state[a * n + b] == FREE) {
+					long weight = (long) cost[a * n + b] + tree.rounded[a] + tree.rounded[b];
+					if (weight > heaviest) {
+						heaviest = weight;
+						other = a == vertex ? b : a;
+					}
+				}
+			}
+
+			byte[] include = state.clone();
+			set(include, vertex, other, INCLUDED);
+			byte[] exclude = state.clone();
+			set(exclude, vertex, other, EXCLUDED);
+			Node left = propagate(include) ? new Node(include, tree.penalties, NODE_ITERATIONS, tree.bound) : null;
+			Node right = propagate(exclude) ? new Node(exclude, tree.penalties, NODE_ITERATIONS, tree.bound) : null;
+			if (left != null && right != null) {
+				invokeAll(left, right); // Runs the include branch here, the exclude branch can be stolen
+			} else if (left != null) {
+				left.compute();
+			} else if (right != null) {
+				right.compute();
+			}
+		}
+	}
+
+	/**
+	 * Subgradient optimization of the vertex penalties. Returns the 1-tree with
+	 * the highest bound, or null if the edge decisions leave no 1-tree. Tours met
+	 * on the way become incumbents.
+	 */
+	private OneTree optimize(byte[] state, double[] start, int iterations) {
+		double[] penalties = start.clone();
+		int[] weights = new int[(n - 1) * (n - 1)];
+		OneTree best = null;
+		double step = 2; // Step size factor, halved when the bound stalls
+		int stalled = 0;
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			OneTree tree = oneTree(state, penalties, weights);
+			if (tree == null) {
+				return null;
+			}
+			if (best == null || tree.bound > best.bound) {
+				best = tree;
+				stalled = 0;
+			} else if (++stalled >= Math.max(5, n / 4)) {
+				step /= 2;
+				stalled = 0;
+			}
+			long squares = 0;
+			for (int v = 0; v < n; v++) {
+				squares += (long) (tree.degree[v] - 2) * (tree.degree[v] - 2);
+			}
+			if (squares == 0) {
+				offer(tree); // Every degree is two, so the 1-tree is a tour
+				return tree;
+			}
+			if (best.bound >= incumbentLength || step < 1e-3 || System.nanoTime() > deadline) {
+				break;
+			}
+			double move = step * Math.max(1, incumbentLength - tree.bound) / squares;
+			for (int v = 0; v < n; v++) {
+				penalties[v] += move * (tree.degree[v] - 2);
+			}
+		}
+		return best;
+	}
+
+	// Minimum 1-tree under the current penalties, or null if the edge decisions leave none
+	private OneTree oneTree(byte[] state, double[] penalties, int[] weights) {
+		int[] rounded = new int[n]; // Integer penalties keep the bound an exact integer
+		long penaltySum = 0;
+		for (int v = 0; v < n; v++) {
+			rounded[v] = (int) Math.max(-1e9, Math.min(1e9, Math.round(penalties[v])));
+			penaltySum += rounded[v];
+		}
+
+		// Spanning tree over vertices 1..n-1
+		int m = n - 1;
+		for (int a = 1; a < n; a++) {
+			for (int b = 1; b < n; b++) {
+				weights[(a - 1) * m + b - 1] = weight(state, a, b, rounded);
+			}
+		}
+		SpanningTree tree = PrimsAlgorithm.dense(weights, m, 0);
+		int[] from = new int[n];
+		int[] to = new int[n];
+		int[] degree = new int[n];
+		long bound = -2 * penaltySum;
+		int edges = 0;
+		for (int v = 0; v < m; v++) {
+			int parent = tree.getParent(v);
+			if (parent == -1) {
+				if (v != tree.getVertexAt(0)) {
+					return null; // Excluded edges split the vertices
+				}
+				continue;
+			}
+			int a = v + 1;
+			int b = parent + 1;
+			if (cost[a * n + b] == Integer.MAX_VALUE || state[a * n + b] == EXCLUDED) {
+				return null; // Only a missing connection was left to join a vertex
+			}
+			bound += (long) cost[a * n + b] + rounded[a] + rounded[b];
+			from[edges] = a;
+			to[edges++] = b;
+			degree[a]++;
+			degree[b]++;
+		}
+
+		// The two edges at vertex 0: included ones first, then the cheapest free ones
+		int first = -1;
+		int second = -1;
+		long firstWeight = Long.MAX_VALUE;
+		long secondWeight = Long.MAX_VALUE;
+		for (int v = 1; v < n; v++) {
+			byte decision = state[v];
+			if (decision == EXCLUDED || cost[v] == Integer.MAX_VALUE) {
+				continue;
+			}
+			long weight = decision == INCLUDED ? Long.MIN_VALUE : (long) cost[v] + rounded[v];
+			if (weight < firstWeight) {
+				second = first;
+				secondWeight = firstWeight;
+				first = v;
+				firstWeight = weight;
+			} else if (weight < secondWeight) {
+				second = v;
+				secondWeight = weight;
+			}
+		}
+		if (second == -1) {
+			return null; // Vertex 0 cannot get two edges
+		}
+		for (int v : new int[] { first, second }) {
+			bound += (long) cost[v] + rounded[0] + rounded[v];
+			from[edges] = 0;
+			to[edges++] = v;
+			degree[0]++;
+			degree[v]++;
+		}
+		return new OneTree(bound, from, to, degree, rounded, penalties.clone());
+	}
+
+	// Weight of an edge for the spanning tree
+	private int weight(byte[] state, int a, int b, int[] rounded) {
+		int index = a * n + b;
+		if (state[index] == EXCLUDED || cost[index] == Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+		if (state[index] == INCLUDED) {
+			return FORCED;
+		}
+		long weight = (long) cost[index] + rounded[a] + rounded[b];
+		return (int) Math.max(FORCED + 1, Math.min(Integer.MAX_VALUE - 1, weight));
+	}
+
+	/**
+	 * Applies the consequences of the edge decisions: a vertex with two included
+	 * edges loses its other edges, and a vertex with only two possible edges keeps
+	 * both.
+	 *
+	 * @return False if a vertex cannot get degree two or included edges close a
+	 *         cycle that is not a full tour.
+	 */
+	private boolean propagate(byte[] state) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int v = 0; v < n; v++) {
+				int included = 0;
+				int free = 0;
+				for (int u = 0; u < n; u++) {
+					if (state[v * n + u] == INCLUDED) {
+						included++;
+					} else if (state[v * n + u] == FREE && cost[v * n + u] != Integer.MAX_VALUE) {
+						free++;
+					}
+				}
+				if (included > 2 || included + free < 2) {
+					return false;
+				}
+				if (free > 0 && (included == 2 || included + free == 2)) {
+					byte decision = included == 2 ? EXCLUDED : INCLUDED;
+					for (int u = 0; u < n; u++) {
+						if (state[v * n + u] == FREE && cost[v * n + u] != Integer.MAX_VALUE) {
+							set(state, v, u, decision);
+						}
+					}
+					changed = true;
+				}
+			}
+		}
+		return !hasSubtour(state);
+	}
+
+	// Check whether the included edges close a cycle through fewer than all vertices
+	private boolean hasSubtour(byte[] state) {
+		int[] component = new int[n];
+		for (int v = 0; v < n; v++) {
+			component[v] = v;
+		}
+		int included = 0;
+		boolean cycle = false;
+		for (int a = 0; a < n; a++) {
+			for (int b = a + 1; b < n; b++) {
+				if (state[a * n + b] == INCLUDED) {
+					included++;
+					int rootA = find(component, a);
+					int rootB = find(component, b);
+					if (rootA == rootB) {
+						cycle = true;
+					} else {
+						component[rootA] = rootB;
+					}
+				}
+			}
+		}
+		return cycle && included < n;
+	}
+
+	// Find the representative of a vertex, halving the path on the way
+	private static int find(int[] component, int v) {
+		while (component[v] != v) {
+			component[v] = component[component[v]];
+			v = component[v];
+		}
+		return v;
+	}
+
+	// Decide an edge in both directions
+	private void set(byte[] state, int a, int b, byte decision) {
+		state[a * n + b] = decision;
+		state[b * n + a] = decision;
+	}
+
+	// Make a 1-tree that is a tour the incumbent if it is shorter in the better direction
+	private void offer(OneTree tree) {
+		int[][] adjacent = new int[n][2];
+		int[] count = new int[n];
+		for (int e = 0; e < n; e++) {
+			adjacent[tree.from[e]][count[tree.from[e]]++] = tree.to[e];
+			adjacent[tree.to[e]][count[tree.to[e]]++] = tree.from[e];
+		}
+		int[] tour = new int[n];
+		for (int i = 1, previous = 0, at = adjacent[0][0]; i < n; i++) {
+			tour[i] = at;
+			int next = adjacent[at][0] == previous ? adjacent[at][1] : adjacent[at][0];
+			previous = at;
+			at = next;
+		}
+		long length = HeldKarp.length(matrix, ids, tour);
+		int[] reversed = tour.clone();
+		for (int i = 1, j = n - 1; i < j; i++, j--) {
+			int swap = reversed[i];
+			reversed[i] = reversed[j];
+			reversed[j] = swap;
+		}
+		long reversedLength = HeldKarp.length(matrix, ids, reversed);
+		if (reversedLength < length) {
+			tour = reversed;
+			length = reversedLength;
+		}
+		synchronized (this) {
+			if (length < incumbentLength) {
+				incumbentLength = length;
+				incumbentTour = tour;
+			}
+		}
+	}
+
+	// Rotate a tour to start at vertex 0
+	private static int[] rotate(int[] tour) {
+		int n = tour.length;
+		int start = 0;
+		while (start < n && tour[start] != 0) {
+			start++;
+		}
+		int[] rotated = new int[n];
+		for (int i = 0; i < n; i++) {
+			rotated[i] = tour[(start + i) % n];
+		}
+		return rotated;
+	}
+
+	// A 1-tree with its Lagrangian bound
+	private static final class OneTree {
+		final long bound; // Tree length under the penalties minus twice their sum
+		final int[] from; // One end of each of the n edges
+		final int[] to; // Other end of each edge
+		final int[] degree; // Degree of each vertex
+		final int[] rounded; // Integer penalties the tree was built with
+		final double[] penalties; // Penalties to continue the subgradient from
+
+		OneTree(long bound, int[] from, int[] to, int[] degree, int[] rounded, double[] penalties) {
+			this.bound = bound;
+			this.from = from;
+			this.to = to;
+			this.degree = degree;
+			this.rounded = rounded;
+			this.penalties = penalties;
+		}
+	}
+
+	/**
+	 * Best tour found with the lower bound proven for it.
+	 */
+	public static final class Result {
+		private final int[] tour; // Local vertices in tour order, starting at vertex 0
+		private final long length; // Length of the tour
+		private final long lowerBound; // No tour is shorter than this
+		private final long nodes; // Evaluated search nodes
+
+		Result(int[] tour, long length, long lowerBound, long nodes) {
+			this.tour = tour;
+			this.length = length;
+			this.lowerBound = lowerBound;
+			this.nodes = nodes;
+		}
+
+		// Get the local vertices in tour order, starting at vertex 0
+		public int[] getTour() {
+			return tour.clone();
+		}
+
+		// Get the length of the tour
+		public long getLength() {
+			return length;
+		}
+
+		// Get the lower bound on the length of any tour
+		public long getLowerBound() {
+			return lowerBound;
+		}
+
+		// Check whether the tour is proven optimal
+		public boolean isOptimal() {
+			return lowerBound >= length;
+		}
+
+		// Get the relative gap between the tour and the lower bound, 0 when optimal
+		public double getGap() {
+			return length == 0 ? 0 : (double) (length - Math.min(length, lowerBound)) / length;
+		}
+
+		// Get the number of evaluated search nodes
+		public long getNodes() {
+			return nodes;
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(tour) + " length " + length + (isOptimal() ? " (optimal)"
+					: String.format(" (gap %.2f%%)", 100 * getGap()));
+		}
+	}
+}
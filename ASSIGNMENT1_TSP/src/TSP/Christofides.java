@@ -0,0 +1,96 @@
+package TSP;
+
+/**
+ * Christofides construction on local vertex indices, without the Vertex and
+ * Edge objects that Main builds for printing and drawing.
+ *
+ * <p>
+ * The MST and the matching do not depend on the vertex a tour starts from, so
+ * the multigraph is built once and can be shared read-only between threads;
+ * only the Eulerian circuit and its shortcut depend on the start.
+ */
+public class Christofides {
+
+	private Christofides() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Builds the union of the minimum spanning tree and a minimum-weight perfect
+	 * matching of its odd-degree vertices.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @return The multigraph over the local vertex indices.
+	 */
+	public static Multigraph multigraph(Matrix matrix, int[] ids) {
+		return multigraph(matrix, ids, SolveMetrics.NOOP);
+	}
+
+	/**
+	 * Builds the Christofides multigraph and records the MST, odd-degree, matching
+	 * and multigraph phases.
+	 *
+	 * @param matrix  The adjacency matrix.
+	 * @param ids     Matrix ids of the vertices, indexed by local vertex index.
+	 * @param metrics Receives the phase measurements.
+	 * @return The multigraph over the local vertex indices.
+	 */
+	public static Multigraph multigraph(Matrix matrix, int[] ids, SolveMetrics metrics) {
+		int n = ids.length;
+		Multigraph graph = new Multigraph(n);
+		if (n == 0) {
+			return graph;
+		}
+
+		metrics.begin(SolveMetrics.Phase.MST);
+		SpanningTree tree = PrimsAlgorithm.isDense(matrix, ids) ? PrimsAlgorithm.dense(matrix, ids, 0)
+				: PrimsAlgorithm.heap(matrix, ids, 0);
+		for (int v = 0; v < n; v++) {
+			if (tree.parent[v] != -1) {
+				graph.addEdge(v, tree.parent[v], tree.weight[v]);
+			}
+		}
+
+		// Match the vertices with an odd number of tree edges
+		metrics.begin(SolveMetrics.Phase.ODD_DEGREE);
+		int[] degree = tree.getDegrees();
+		int oddCount = 0;
+		for (int v = 0; v < n; v++) {
+			if (degree[v] % 2 != 0) {
+				oddCount++;
+			}
+		}
+		int[] odd = new int[oddCount]; // Local index of each odd-degree vertex
+		int[] oddIds = new int[oddCount]; // Matrix id of each odd-degree vertex
+		oddCount = 0;
+		for (int v = 0; v < n; v++) {
+			if (degree[v] % 2 != 0) {
+				odd[oddCount] = v;
+				oddIds[oddCount++] = ids[v];
+			}
+		}
+		metrics.begin(SolveMetrics.Phase.MATCHING);
+		int[] mate = PerfectMatching.minimumWeight(matrix, oddIds);
+		metrics.begin(SolveMetrics.Phase.MULTIGRAPH);
+		for (int i = 0; i < mate.length; i++) {
+			if (mate[i] > i) {
+				graph.addEdge(odd[i], odd[mate[i]], matrix.getDistance(oddIds[i], oddIds[mate[i]]));
+			}
+		}
+		metrics.end();
+		return graph;
+	}
+
+	/**
+	 * Builds a Christofides tour.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param start  Local index of the vertex the Eulerian circuit starts from.
+	 * @return Every local vertex exactly once, in tour order.
+	 */
+	public static int[] tour(Matrix matrix, int[] ids, int start) {
+		return multigraph(matrix, ids).hamiltonianCycle(start);
+	}
+}
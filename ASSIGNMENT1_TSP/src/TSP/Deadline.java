@@ -0,0 +1,67 @@
+package TSP;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which a solve stops improving and returns its best tour
+ * so far, shared by every thread that works on the solve.
+ *
+ * <p>
+ * Cancellation is cooperative: the improvement loops poll {@link #isExpired}
+ * between moves, which are short, and a tour is valid between any two moves.
+ * {@link #cancel} ends the solve early from any thread, and a worker that finds
+ * its thread interrupted cancels the deadline for all the others.
+ */
+public class Deadline {
+	private final long end; // System.nanoTime() at which the deadline expires
+	private final boolean bounded; // False for a deadline that only expires when cancelled
+	private volatile boolean cancelled; // Set once by cancel()
+
+	private Deadline(long end, boolean bounded) {
+		this.end = end;
+		this.bounded = bounded;
+	}
+
+	// Create a deadline the given number of milliseconds from now
+	public static Deadline after(long millis) {
+		return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)), true);
+	}
+
+	// Create a deadline that only expires when it is cancelled
+	public static Deadline never() {
+		return new Deadline(0, false);
+	}
+
+	// Check whether work on the solve should stop
+	public boolean isExpired() {
+		if (cancelled) {
+			return true;
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			cancelled = true; // Stop the other workers too
+			return true;
+		}
+		return bounded && System.nanoTime() - end >= 0;
+	}
+
+	// Stop the solve at the next poll of every worker
+	public void cancel() {
+		cancelled = true;
+	}
+
+	// Check whether the deadline was cancelled rather than reached
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	// Get the milliseconds left, 0 once expired, Long.MAX_VALUE if unbounded
+	public long remainingMillis() {
+		if (cancelled) {
+			return 0;
+		}
+		if (!bounded) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()));
+	}
+}
@@ -9,4 +9,10 @@ public class Edge {
 		this.Child = Child; // Initialize the end vertex
 		this.weight = weight; // Set the weight of the edge
 	}
+
+	public Edge(Vertex Owner, Vertex Child, int parent, int child, int weight) {
+		this(Owner, Child, weight);
+		this.parent = parent; // Index of the start vertex
+		this.child = child; // Index of the end vertex
+	}
 }
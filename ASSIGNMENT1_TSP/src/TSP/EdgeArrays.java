@@ -0,0 +1,182 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable list of weighted edges between local vertex indices, stored as
+ * three parallel int arrays instead of {@link Edge} objects.
+ *
+ * <p>
+ * Edges keep their direction and insertion order, which decides how they are
+ * printed and in which order the Eulerian circuit takes them. An undirected edge
+ * is identified by {@link #key}, two ids packed into one long.
+ */
+public class EdgeArrays {
+	private int[] from; // First end of each edge
+	private int[] to; // Second end of each edge
+	private int[] weight; // Weight of each edge
+	private int size; // Number of edges
+
+	public EdgeArrays() {
+		this(16);
+	}
+
+	public EdgeArrays(int capacity) {
+		from = new int[Math.max(1, capacity)];
+		to = new int[from.length];
+		weight = new int[from.length];
+	}
+
+	/**
+	 * Lists the edges of a spanning tree from each parent to its children. Parents
+	 * come in the order they joined the tree, and the children of one parent in
+	 * the order they joined, which is the order the MST is printed in.
+	 *
+	 * @param tree The spanning tree over local vertex indices.
+	 * @return The tree edges.
+	 */
+	public static EdgeArrays treeEdges(SpanningTree tree) {
+		int n = tree.size();
+		int[] position = new int[n]; // Step at which each vertex joined the tree
+		for (int step = 0; step < n; step++) {
+			position[tree.order[step]] = step;
+		}
+		// Counting sort of the children by the position of their parent
+		int[] start = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			if (tree.parent[v] != -1) {
+				start[position[tree.parent[v]] + 1]++;
+			}
+		}
+		for (int step = 0; step < n; step++) {
+			start[step + 1] += start[step];
+		}
+		int[] children = new int[start[n]];
+		for (int step = 0; step < n; step++) {
+			int child = tree.order[step]; // Children in joining order
+			if (tree.parent[child] != -1) {
+				children[start[position[tree.parent[child]]]++] = child;
+			}
+		}
+
+		EdgeArrays edges = new EdgeArrays(children.length);
+		for (int child : children) {
+			edges.add(tree.parent[child], child, tree.weight[child]);
+		}
+		return edges;
+	}
+
+	/**
+	 * Lists the edge from every vertex to its parent, in the order the vertices
+	 * joined the tree.
+	 *
+	 * @param tree The spanning tree over local vertex indices.
+	 * @return The tree edges.
+	 */
+	public static EdgeArrays parentEdges(SpanningTree tree) {
+		EdgeArrays edges = new EdgeArrays(tree.size());
+		for (int step = 0; step < tree.size(); step++) {
+			int child = tree.order[step];
+			if (tree.parent[child] != -1) {
+				edges.add(child, tree.parent[child], tree.weight[child]);
+			}
+		}
+		return edges;
+	}
+
+	// Pack an undirected pair of ids into one key, the same for both orders
+	public static long key(int a, int b) {
+		return a < b ? (long) a << 32 | (b & 0xFFFFFFFFL) : (long) b << 32 | (a & 0xFFFFFFFFL);
+	}
+
+	// Append an edge
+	public void add(int source, int target, int distance) {
+		if (size == from.length) {
+			int grown = size * 2;
+			from = Arrays.copyOf(from, grown);
+			to = Arrays.copyOf(to, grown);
+			weight = Arrays.copyOf(weight, grown);
+		}
+		from[size] = source;
+		to[size] = target;
+		weight[size++] = distance;
+	}
+
+	// Append all edges of another list
+	public void addAll(EdgeArrays other) {
+		for (int i = 0; i < other.size; i++) {
+			add(other.from[i], other.to[i], other.weight[i]);
+		}
+	}
+
+	// Get the number of edges
+	public int size() {
+		return size;
+	}
+
+	// Check whether there are no edges
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// Get the first end of an edge
+	public int getFrom(int edge) {
+		return from[edge];
+	}
+
+	// Get the second end of an edge
+	public int getTo(int edge) {
+		return to[edge];
+	}
+
+	// Get the weight of an edge
+	public int getWeight(int edge) {
+		return weight[edge];
+	}
+
+	// Count the edges at each of n vertices; parallel edges count once each
+	public int[] getDegrees(int n) {
+		int[] degree = new int[n];
+		for (int i = 0; i < size; i++) {
+			degree[from[i]]++;
+			degree[to[i]]++;
+		}
+		return degree;
+	}
+
+	/**
+	 * Keeps the first of the edges that join the same pair of ids in either
+	 * direction.
+	 *
+	 * @param ids Id of each local vertex, such as its matrix id; vertices with the
+	 *            same id count as the same end.
+	 * @return The edges without repeats, in their original order.
+	 */
+	public EdgeArrays unique(int[] ids) {
+		LongHashSet seen = new LongHashSet(size);
+		EdgeArrays unique = new EdgeArrays(size);
+		for (int i = 0; i < size; i++) {
+			if (seen.add(key(ids[from[i]], ids[to[i]]))) {
+				unique.add(from[i], to[i], weight[i]);
+			}
+		}
+		return unique;
+	}
+
+	/**
+	 * Converts the edges into {@link Edge} objects for code that works on the
+	 * object model, such as {@link GraphVisualizer}.
+	 *
+	 * @param vertices Vertices indexed by local vertex index.
+	 * @return One Edge per edge, in order.
+	 */
+	public List<Edge> toEdges(List<Vertex> vertices) {
+		List<Edge> edges = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			edges.add(new Edge(vertices.get(from[i]), vertices.get(to[i]), from[i], to[i], weight[i]));
+		}
+		return edges;
+	}
+}
@@ -0,0 +1,351 @@
+package TSP;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Draws a route graph in a circular layout, on screen or without a display.
+ *
+ * <p>
+ * The route positions and the edge ends are resolved once, when the renderer is
+ * built: each node gets the cosine and sine of its angle, and each edge the two
+ * route positions it joins. Drawing at a given size only scales these arrays,
+ * draws all edges as one path and skips the nodes and edges outside the clip.
+ * Nodes shrink with the number of route positions, and labels are left out once
+ * they no longer fit, so tours of many thousands of stops still render quickly.
+ *
+ * <p>
+ * {@link #writePng} and {@link #writeSvg} need no display and work with
+ * {@code java.awt.headless=true}. A renderer can be shared between threads;
+ * the only state it keeps is the pixel layout of the last drawing size.
+ */
+public class GraphRenderer {
+	static final String LEGEND = "Blue: Start Point, Red: End Point"; // Legend text at the top
+	static final int MARGIN = 100; // Space between the circle and the image border
+	static final int MAX_NODE_SIZE = 30; // Node diameter of small graphs
+	static final int MIN_NODE_SIZE = 2; // Smallest node diameter drawn
+	static final int MIN_LABEL_NODE_SIZE = 20; // Smallest node diameter that still gets a label
+
+	private static final Font LEGEND_FONT = new Font("Arial", Font.BOLD, 16); // Font of the legend
+	private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 12); // Font of the node labels
+	private static final Color START_COLOR = new Color(135, 206, 250); // Lighter blue for the start node
+	private static final Color END_COLOR = Color.RED; // Red for the end node
+	private static final Color NODE_COLOR = new Color(102, 205, 170); // Default node color
+	private static final Color EDGE_COLOR = new Color(65, 105, 225); // Color of the edges
+	private static final IndexColorModel PALETTE = palette(Color.WHITE, Color.BLACK, START_COLOR, END_COLOR, NODE_COLOR,
+			EDGE_COLOR); // Every color drawn, so PNG images can use one byte per pixel
+
+	private final String[] labels; // Name of each route position
+	private final double[] cos; // Cosine of the angle of each route position
+	private final double[] sin; // Sine of the angle of each route position
+	private final int[] edgeFrom; // Route position of the first end of each drawable edge
+	private final int[] edgeTo; // Route position of the second end of each drawable edge
+	private volatile Layout layout; // Pixel positions for the last drawing size, reused while the size stays
+
+	/**
+	 * Resolves the layout of a graph.
+	 *
+	 * @param routeList Node names in route order; the first is the start and the
+	 *                  last the end.
+	 * @param edges     Edges to draw; edges that are null or have an end outside
+	 *                  the route are skipped.
+	 */
+	public GraphRenderer(List<String> routeList, List<Edge> edges) {
+		int n = routeList.size();
+		labels = routeList.toArray(new String[0]);
+		cos = new double[n];
+		sin = new double[n];
+		Map<String, Integer> position = new HashMap<>(); // First route position of each name, like indexOf
+		for (int i = 0; i < n; i++) {
+			double angle = 2 * Math.PI * i / n; // Angle for circular layout
+			cos[i] = Math.cos(angle);
+			sin[i] = Math.sin(angle);
+			position.putIfAbsent(labels[i], i);
+		}
+
+		int[] from = new int[edges.size()];
+		int[] to = new int[edges.size()];
+		int count = 0;
+		for (Edge edge : edges) {
+			if (edge == null || edge.Owner == null || edge.Child == null) {
+				continue; // Skip null or invalid edges
+			}
+			Integer index1 = position.get(edge.Owner.getName()); // Route position of the start node
+			Integer index2 = position.get(edge.Child.getName()); // Route position of the end node
+			if (index1 != null && index2 != null) {
+				from[count] = index1;
+				to[count++] = index2;
+			}
+		}
+		edgeFrom = Arrays.copyOf(from, count);
+		edgeTo = Arrays.copyOf(to, count);
+	}
+
+	// Get the number of route positions
+	public int size() {
+		return labels.length;
+	}
+
+	// Get the number of edges that will be drawn
+	public int edgeCount() {
+		return edgeFrom.length;
+	}
+
+	/**
+	 * Draws the legend, the nodes and the edges onto a graphics context. Only the
+	 * elements that intersect its clip are drawn.
+	 *
+	 * @param g      The graphics context.
+	 * @param width  Width of the drawing area.
+	 * @param height Height of the drawing area.
+	 */
+	public void paint(Graphics2D g, int width, int height) {
+		Layout layout = layout(width, height);
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, width, height);
+		}
+
+		// Draw the legend text
+		g.setFont(LEGEND_FONT);
+		FontMetrics fm = g.getFontMetrics();
+		g.setColor(Color.BLACK);
+		g.drawString(LEGEND, (width - fm.stringWidth(LEGEND)) / 2, 30); // Centered at the top
+
+		// Draw nodes on the graph
+		int size = layout.nodeSize;
+		int half = size / 2;
+		boolean outlined = size >= 6; // Smaller nodes are just filled
+		boolean labeled = size >= MIN_LABEL_NODE_SIZE;
+		g.setFont(LABEL_FONT);
+		for (int i = 0; i < labels.length; i++) {
+			int x = layout.x[i];
+			int y = layout.y[i];
+			if (!clip.intersects(x - half, y - half, size + 1, size + 1)) {
+				continue; // Outside the clip
+			}
+			g.setColor(nodeColor(i));
+			if (outlined) {
+				g.fillOval(x - half, y - half, size, size); // Draw filled circle for the node
+				g.setColor(Color.BLACK); // Set color for border
+				g.drawOval(x - half, y - half, size, size); // Draw border around the node
+			} else {
+				g.fillRect(x - half, y - half, size, size); // Cheaper than an oval at this size
+			}
+			if (labeled) {
+				g.setColor(Color.BLACK);
+				g.drawString(labels[i], x - 5, y + 5); // Draw node label
+			}
+		}
+
+		// Draw all edges as one path
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * edgeFrom.length);
+		boolean empty = true;
+		for (int e = 0; e < edgeFrom.length; e++) {
+			int x1 = layout.x[edgeFrom[e]];
+			int y1 = layout.y[edgeFrom[e]];
+			int x2 = layout.x[edgeTo[e]];
+			int y2 = layout.y[edgeTo[e]];
+			if (!clip.intersects(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x2 - x1) + 1, Math.abs(y2 - y1) + 1)) {
+				continue; // Bounding box of the line is outside the clip
+			}
+			path.moveTo(x1, y1);
+			path.lineTo(x2, y2);
+			empty = false;
+		}
+		if (!empty) {
+			g.setColor(EDGE_COLOR);
+			g.draw(path);
+		}
+	}
+
+	/**
+	 * Renders the graph as a PNG image. Needs no display. Drawing is not
+	 * antialiased, so the image only has the palette colors and is encoded with
+	 * one byte per pixel instead of three.
+	 *
+	 * @param out    Receives the image; it is not closed.
+	 * @param width  Width of the image in pixels.
+	 * @param height Height of the image in pixels.
+	 * @throws IOException If the image cannot be written.
+	 */
+	public void writePng(OutputStream out, int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			paint(g, width, height);
+		} finally {
+			g.dispose();
+		}
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		if (!writers.hasNext()) {
+			throw new IOException("No PNG writer available");
+		}
+		ImageWriter writer = writers.next();
+		try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) { // No temporary cache file
+			writer.setOutput(stream);
+			writer.write(image);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * Renders the graph as an SVG document, with the edges as a single path
+	 * element. Needs no display.
+	 *
+	 * @param out    Receives the document; it is flushed but not closed.
+	 * @param width  Width of the image.
+	 * @param height Height of the image.
+	 * @throws IOException If the document cannot be written.
+	 */
+	public void writeSvg(Writer out, int width, int height) throws IOException {
+		Layout layout = layout(width, height);
+		int size = layout.nodeSize;
+		double radius = size / 2.0;
+
+		StringBuilder svg = new StringBuilder(64 * (labels.length + edgeFrom.length) + 512);
+		svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+				.append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+		svg.append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+		svg.append("<text x=\"").append(width / 2).append("\" y=\"30\" text-anchor=\"middle\" font-family=\"Arial\" ")
+				.append("font-weight=\"bold\" font-size=\"16\">").append(LEGEND).append("</text>\n");
+
+		// Nodes, with a border and a label while they are large enough
+		svg.append("<g stroke=\"").append(size >= 6 ? "black" : "none")
+				.append("\" font-family=\"Arial\" font-weight=\"bold\" font-size=\"12\">\n");
+		for (int i = 0; i < labels.length; i++) {
+			svg.append("<circle cx=\"").append(layout.x[i]).append("\" cy=\"").append(layout.y[i]).append("\" r=\"")
+					.append(radius).append("\" fill=\"").append(hex(nodeColor(i))).append("\"/>\n");
+		}
+		if (size >= MIN_LABEL_NODE_SIZE) {
+			for (int i = 0; i < labels.length; i++) {
+				svg.append("<text x=\"").append(layout.x[i] - 5).append("\" y=\"").append(layout.y[i] + 5)
+						.append("\" stroke=\"none\">");
+				escape(svg, labels[i]);
+				svg.append("</text>\n");
+			}
+		}
+		svg.append("</g>\n");
+
+		// All edges in one path
+		if (edgeFrom.length > 0) {
+			svg.append("<path fill=\"none\" stroke=\"").append(hex(EDGE_COLOR)).append("\" d=\"");
+			for (int e = 0; e < edgeFrom.length; e++) {
+				svg.append('M').append(layout.x[edgeFrom[e]]).append(' ').append(layout.y[edgeFrom[e]]).append('L')
+						.append(layout.x[edgeTo[e]]).append(' ').append(layout.y[edgeTo[e]]);
+			}
+			svg.append("\"/>\n");
+		}
+		svg.append("</svg>\n");
+		out.write(svg.toString());
+		out.flush();
+	}
+
+	// Get the layout for a drawing size, computing it only when the size changed
+	private Layout layout(int width, int height) {
+		Layout current = layout;
+		if (current == null || current.width != width || current.height != height) {
+			current = new Layout(width, height);
+			layout = current;
+		}
+		return current;
+	}
+
+	// Color of the node at a route position: start, end or default
+	private Color nodeColor(int i) {
+		if (i == 0) {
+			return START_COLOR;
+		}
+		return i == labels.length - 1 ? END_COLOR : NODE_COLOR;
+	}
+
+	// Build an indexed color model holding the given colors
+	private static IndexColorModel palette(Color... colors) {
+		byte[] red = new byte[colors.length];
+		byte[] green = new byte[colors.length];
+		byte[] blue = new byte[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			red[i] = (byte) colors[i].getRed();
+			green[i] = (byte) colors[i].getGreen();
+			blue[i] = (byte) colors[i].getBlue();
+		}
+		return new IndexColorModel(8, colors.length, red, green, blue);
+	}
+
+	// Format a color as #rrggbb
+	private static String hex(Color color) {
+		return String.format("#%06x", color.getRGB() & 0xffffff);
+	}
+
+	// Append text with the XML special characters escaped
+	private static void escape(StringBuilder svg, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				svg.append("&lt;");
+				break;
+			case '>':
+				svg.append("&gt;");
+				break;
+			case '&':
+				svg.append("&amp;");
+				break;
+			case '"':
+				svg.append("&quot;");
+				break;
+			default:
+				svg.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Pixel positions of the route positions and the node size for one drawing
+	 * size. The circle fills the smaller side less the margin, and the nodes shrink
+	 * so that neighbors on the circle do not overlap.
+	 */
+	private final class Layout {
+		final int[] x = new int[labels.length]; // X-coordinate of each route position
+		final int[] y = new int[labels.length]; // Y-coordinate of each route position
+		final int nodeSize; // Diameter of the nodes
+		final int width; // Width of the drawing area
+		final int height; // Height of the drawing area
+
+		Layout(int width, int height) {
+			this.width = width;
+			this.height = height;
+			int centerX = width / 2; // Center X-coordinate of the drawing area
+			int centerY = height / 2; // Center Y-coordinate of the drawing area
+			double radius = Math.max(1, Math.min(width, height) / 2 - MARGIN); // Radius of the circle
+			for (int i = 0; i < labels.length; i++) {
+				x[i] = (int) (centerX + radius * cos[i]);
+				y[i] = (int) (centerY + radius * sin[i]);
+			}
+			double spacing = labels.length == 0 ? MAX_NODE_SIZE : 2 * Math.PI * radius / labels.length;
+			nodeSize = (int) Math.max(MIN_NODE_SIZE, Math.min(MAX_NODE_SIZE, spacing * 0.8));
+		}
+	}
+}
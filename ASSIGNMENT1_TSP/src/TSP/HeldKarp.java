@@ -0,0 +1,171 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Exact shortest closed tour by Held-Karp dynamic programming.
+ *
+ * <p>
+ * Vertex 0 is the fixed start. For every subset S of the other vertices, encoded
+ * as a bitmask, and every last vertex j in S, the table holds the length of the
+ * shortest path from 0 through all of S ending at j. Subsets are processed by
+ * size, since a subset only depends on subsets one smaller, and the subsets of
+ * one size are filled in parallel. The tables are flat int and byte arrays:
+ * O(2^n n) memory and O(2^n n^2) time, which keeps sets of up to about 16 stops
+ * in the millisecond range. At {@link #MAX_VERTICES} stops the tables take
+ * about 50 MB per solve; every further stop doubles that and more.
+ */
+public class HeldKarp {
+	static final int DEFAULT_LIMIT = 13; // Largest stop count the solvers hand to Held-Karp by default
+	static final int MAX_VERTICES = 20; // Largest tour the tables may be built for: 2^19 * 19 * 5 bytes
+	static final int PARALLEL_THRESHOLD = 1 << 11; // Smallest layer of subsets worth splitting across threads
+
+	private HeldKarp() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Finds a shortest closed tour through all vertices.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @return Local vertex indices in tour order, starting at 0, or null if
+	 *         missing connections leave no closed tour.
+	 * @throws IllegalArgumentException If there are more than
+	 *                                  {@link #MAX_VERTICES} vertices.
+	 */
+	public static int[] solve(Matrix matrix, int[] ids) {
+		int n = ids.length;
+		if (n > MAX_VERTICES) {
+			throw new IllegalArgumentException("Held-Karp supports at most " + MAX_VERTICES + " stops, got " + n);
+		}
+		if (n <= 3) {
+			int[] tour = new int[n]; // Every order of three or fewer vertices is the same cycle
+			for (int i = 0; i < n; i++) {
+				tour[i] = i;
+			}
+			return length(matrix, ids, tour) == Long.MAX_VALUE ? null : tour;
+		}
+
+		int m = n - 1; // Vertices 1..n-1 are bits 0..m-1
+		int[] dist = new int[n * n];
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				dist[a * n + b] = a == b ? 0 : matrix.getDistance(ids[a], ids[b]);
+			}
+		}
+
+		int subsets = 1 << m;
+		int[] cost = new int[subsets * m]; // cost[S * m + j]: shortest path 0 -> S ending at bit j
+		byte[] parent = new byte[subsets * m]; // Bit visited before j on that path, -1 after the start
+		Arrays.fill(cost, Integer.MAX_VALUE);
+		for (int j = 0; j < m; j++) {
+			cost[(1 << j) * m + j] = dist[j + 1];
+			parent[(1 << j) * m + j] = -1;
+		}
+
+		// Fill the subsets layer by layer, each layer in parallel when it is large enough
+		int[] order = subsetsBySize(m);
+		int layerStart = m + 1; // Skip the empty set and the single-bit sets
+		for (int size = 2; size <= m; size++) {
+			int layerEnd = layerStart + binomial(m, size);
+			IntStream layer = IntStream.range(layerStart, layerEnd);
+			if (layerEnd - layerStart >= PARALLEL_THRESHOLD) {
+				layer = layer.parallel();
+			}
+			layer.forEach(i -> fill(order[i], m, n, dist, cost, parent));
+			layerStart = layerEnd;
+		}
+
+		// Close the tour back to vertex 0
+		int full = subsets - 1;
+		long best = Long.MAX_VALUE;
+		int last = -1;
+		for (int j = 0; j < m; j++) {
+			int path = cost[full * m + j];
+			int back = dist[(j + 1) * n];
+			if (path != Integer.MAX_VALUE && back != Integer.MAX_VALUE && (long) path + back < best) {
+				best = (long) path + back;
+				last = j;
+			}
+		}
+		if (last == -1) {
+			return null; // Missing connections leave no closed tour
+		}
+
+		// Walk the parents back from the last vertex
+		int[] tour = new int[n];
+		int set = full;
+		for (int position = n - 1, j = last; position > 0; position--) {
+			tour[position] = j + 1;
+			int previous = parent[set * m + j];
+			set &= ~(1 << j);
+			j = previous;
+		}
+		return tour;
+	}
+
+	// Compute the table entries of one subset from the subsets without one of its bits
+	private static void fill(int set, int m, int n, int[] dist, int[] cost, byte[] parent) {
+		for (int bits = set; bits != 0; bits &= bits - 1) {
+			int j = Integer.numberOfTrailingZeros(bits);
+			int rest = set & ~(1 << j);
+			int restRow = rest * m;
+			long best = Integer.MAX_VALUE;
+			int bestPrevious = -1;
+			for (int others = rest; others != 0; others &= others - 1) {
+				int i = Integer.numberOfTrailingZeros(others);
+				int path = cost[restRow + i];
+				int step = dist[(i + 1) * n + j + 1];
+				if (path != Integer.MAX_VALUE && step != Integer.MAX_VALUE && (long) path + step < best) {
+					best = (long) path + step;
+					bestPrevious = i;
+				}
+			}
+			if (bestPrevious != -1) {
+				cost[set * m + j] = (int) best;
+				parent[set * m + j] = (byte) bestPrevious;
+			}
+		}
+	}
+
+	// List all subsets of m bits ordered by their number of bits
+	private static int[] subsetsBySize(int m) {
+		int[] order = new int[1 << m];
+		int[] next = new int[m + 2]; // First free slot of each size
+		for (int size = 1; size <= m + 1; size++) {
+			next[size] = next[size - 1] + binomial(m, size - 1);
+		}
+		for (int set = 0; set < 1 << m; set++) {
+			order[next[Integer.bitCount(set)]++] = set;
+		}
+		return order;
+	}
+
+	// Number of ways to choose k of n
+	private static int binomial(int n, int k) {
+		long result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return (int) result;
+	}
+
+	// Length of a closed tour, Long.MAX_VALUE if a connection is missing
+	static long length(Matrix matrix, int[] ids, int[] tour) {
+		int n = tour.length;
+		if (n <= 1) {
+			return 0;
+		}
+		long total = 0;
+		for (int i = 0; i < n; i++) {
+			int distance = matrix.getDistance(ids[tour[i]], ids[tour[(i + 1) % n]]);
+			if (distance == Integer.MAX_VALUE) {
+				return Long.MAX_VALUE;
+			}
+			total += distance;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,305 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A solved route that is kept up to date while stops are added and removed,
+ * instead of solving the whole route again after every change.
+ *
+ * <p>
+ * A new stop goes where it lengthens the route least (cheapest insertion), and
+ * a removed stop is spliced out. After each edit, 2-opt and Or-opt moves are
+ * tried on the {@link #WINDOW} positions on either side of the edit. Each edit
+ * costs O(n) for the insertion scan and the array shift, plus a constant for
+ * the repair.
+ */
+public class IncrementalRoute {
+	static final int WINDOW = 8; // Tour positions on each side of an edit that the repair may change
+	static final int MAX_PASSES = 4; // Improvement passes over the window per edit
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final boolean[] inRoute; // Whether each matrix id is a stop of the route
+	private int[] tour; // Matrix ids in visiting order, first size entries used
+	private int size; // Number of stops
+	private long length; // Length of the closed route
+	private int start; // Matrix id of the stop the route is reported from, -1 if empty
+
+	/**
+	 * Starts from a route solved by {@link TspSolver}.
+	 *
+	 * @param matrix The matrix the route was solved on.
+	 * @param route  The solved route.
+	 */
+	public IncrementalRoute(Matrix matrix, Route route) {
+		this.matrix = matrix;
+		this.inRoute = new boolean[matrix.size()];
+		this.tour = matrix.getIds(route.getStops());
+		this.size = tour.length;
+		this.tour = Arrays.copyOf(tour, Math.max(16, size));
+		for (int i = 0; i < size; i++) {
+			inRoute[tour[i]] = true;
+		}
+		this.start = size > 0 ? tour[0] : -1;
+		this.length = route.getLength();
+	}
+
+	/**
+	 * Inserts a stop where it lengthens the route least and repairs the route
+	 * around it. Stops already on the route are left alone.
+	 *
+	 * @param name Name of the stop.
+	 * @return False if the stop was already on the route.
+	 * @throws IllegalArgumentException If the stop is unknown or cannot be
+	 *                                  connected between any two neighboring stops.
+	 */
+	public boolean addStop(String name) {
+		int stop = id(name);
+		if (inRoute[stop]) {
+			return false;
+		}
+		if (size == 0) {
+			insert(0, stop);
+			start = stop;
+			return true;
+		}
+
+		// Cheapest insertion over every edge of the route
+		int bestPosition = -1;
+		long bestDelta = Long.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			int a = tour[i];
+			int b = tour[(i + 1) % size];
+			long toStop = cost(a, stop);
+			long fromStop = cost(stop, b);
+			if (toStop >= Integer.MAX_VALUE || fromStop >= Integer.MAX_VALUE) {
+				continue; // The stop cannot be reached between a and b
+			}
+			long delta = toStop + fromStop - (size == 1 ? 0 : cost(a, b));
+			if (delta < bestDelta) {
+				bestDelta = delta;
+				bestPosition = i + 1;
+			}
+		}
+		if (bestPosition < 0) {
+			throw new IllegalArgumentException("No connection to fit " + name + " into the route");
+		}
+		insert(bestPosition, stop);
+		length += bestDelta;
+		repair(bestPosition);
+		return true;
+	}
+
+	/**
+	 * Splices a stop out of the route and repairs the route around the gap.
+	 *
+	 * @param name Name of the stop.
+	 * @return False if the stop was not on the route.
+	 * @throws IllegalArgumentException If the stop is unknown or its two
+	 *                                  neighbors are not connected; the route is
+	 *                                  left unchanged then.
+	 */
+	public boolean removeStop(String name) {
+		int stop = id(name);
+		if (!inRoute[stop]) {
+			return false;
+		}
+		int position = 0;
+		while (tour[position] != stop) {
+			position++;
+		}
+		int previous = tour[(position - 1 + size) % size];
+		int next = tour[(position + 1) % size];
+		long delta;
+		if (size <= 2) {
+			delta = -length; // One stop or none is left, so the route has no length
+		} else {
+			long bridge = cost(previous, next);
+			if (bridge >= Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("No connection between " + matrix.getName(previous) + " and "
+						+ matrix.getName(next) + " to remove " + name);
+			}
+			delta = bridge - cost(previous, stop) - cost(stop, next);
+		}
+
+		System.arraycopy(tour, position + 1, tour, position, size - position - 1);
+		size--;
+		inRoute[stop] = false;
+		length += delta;
+		if (stop == start) {
+			start = size > 0 ? next : -1;
+		}
+		if (size > 0) {
+			repair(position % size);
+		}
+		return true;
+	}
+
+	// Check whether a stop is on the route
+	public boolean contains(String name) {
+		int stop = matrix.getId(name);
+		return stop >= 0 && inRoute[stop];
+	}
+
+	// Get the number of stops
+	public int size() {
+		return size;
+	}
+
+	// Get the length of the closed route
+	public long getLength() {
+		return length;
+	}
+
+	// Get the current route, starting at the first stop of the original route while it is still on it
+	public Route getRoute() {
+		int offset = 0;
+		while (offset < size && tour[offset] != start) {
+			offset++;
+		}
+		List<String> stops = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			stops.add(matrix.getName(tour[(offset + i) % size]));
+		}
+		return new Route(stops, length);
+	}
+
+	/**
+	 * Improves the path through the stops around a tour position with 2-opt and
+	 * Or-opt moves. The first and last stop of the window stay in place, so the
+	 * rest of the route is untouched.
+	 *
+	 * @param center Tour position of the edit.
+	 */
+	private void repair(int center) {
+		if (size < 5) {
+			return; // Every tour of four or fewer stops is already 2-optimal
+		}
+		int count = Math.min(2 * WINDOW + 1, size);
+		int first = ((center - WINDOW) % size + size) % size;
+		if (count == size) {
+			first = 0;
+		}
+		int[] window = new int[count];
+		for (int k = 0; k < count; k++) {
+			window[k] = tour[(first + k) % size];
+		}
+
+		boolean improved = true;
+		for (int pass = 0; pass < MAX_PASSES && improved; pass++) {
+			improved = false;
+			for (int i = 0; i + 1 < count; i++) {
+				improved |= twoOpt(window, i) | orOpt(window, i);
+			}
+		}
+
+		for (int k = 0; k < count; k++) {
+			tour[(first + k) % size] = window[k];
+		}
+	}
+
+	// Reverse a path section if that shortens the path; edges (i, i+1) and (j, j+1) are exchanged
+	private boolean twoOpt(int[] path, int i) {
+		int a = path[i];
+		int b = path[i + 1];
+		long removedAB = cost(a, b);
+		for (int j = i + 2; j + 1 < path.length; j++) {
+			int c = path[j];
+			int d = path[j + 1];
+			long delta = cost(a, c) + cost(b, d) - removedAB - cost(c, d);
+			if (delta < 0) {
+				reverse(path, i + 1, j);
+				length += delta;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Move the segment starting at position i + 1 elsewhere in the path if that shortens it
+	private boolean orOpt(int[] path, int i) {
+		int last = path.length - 1;
+		for (int segment = 1; segment <= LocalSearch.MAX_SEGMENT; segment++) {
+			int s1 = i + 1; // First stop of the segment
+			int s2 = i + segment; // Last stop of the segment
+			if (s2 >= last) {
+				break; // The end of the window stays fixed
+			}
+			int before = path[i];
+			int after = path[s2 + 1];
+			long removed = cost(before, path[s1]) + cost(path[s2], after) - cost(before, after);
+			if (removed <= 0) {
+				continue; // Taking the segment out saves nothing
+			}
+			for (int m = 0; m < last; m++) {
+				if (m >= i && m <= s2) {
+					continue; // Edge touches the segment
+				}
+				int c = path[m];
+				int d = path[m + 1];
+				long forward = cost(c, path[s1]) + cost(path[s2], d) - cost(c, d);
+				long backward = cost(c, path[s2]) + cost(path[s1], d) - cost(c, d);
+				long added = Math.min(forward, backward);
+				if (added < removed) {
+					move(path, s1, s2, m, backward < forward);
+					length += added - removed;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Move path[s1..s2] between path[m] and path[m + 1], reversed if asked
+	private static void move(int[] path, int s1, int s2, int m, boolean reversed) {
+		int segment = s2 - s1 + 1;
+		int[] moved = Arrays.copyOfRange(path, s1, s2 + 1);
+		if (reversed) {
+			reverse(moved, 0, segment - 1);
+		}
+		int target;
+		if (m > s2) {
+			System.arraycopy(path, s2 + 1, path, s1, m - s2); // Close the gap towards the front
+			target = m - segment + 1;
+		} else {
+			System.arraycopy(path, m + 1, path, m + 1 + segment, s1 - m - 1); // Open a gap after m
+			target = m + 1;
+		}
+		System.arraycopy(moved, 0, path, target, segment);
+	}
+
+	// Insert a stop before the given tour position
+	private void insert(int position, int stop) {
+		if (size == tour.length) {
+			tour = Arrays.copyOf(tour, size * 2);
+		}
+		System.arraycopy(tour, position, tour, position + 1, size - position);
+		tour[position] = stop;
+		size++;
+		inRoute[stop] = true;
+	}
+
+	// Distance between two matrix ids, Integer.MAX_VALUE if not connected; long so sums cannot overflow
+	private long cost(int from, int to) {
+		return matrix.getDistance(from, to);
+	}
+
+	// Get the matrix id of a stop
+	private int id(String name) {
+		int stop = matrix.getId(name);
+		if (stop < 0) {
+			throw new IllegalArgumentException("Unknown node: " + name);
+		}
+		return stop;
+	}
+
+	// Reverse a range of an array in place
+	private static void reverse(int[] values, int i, int j) {
+		while (i < j) {
+			int swap = values[i];
+			values[i++] = values[j];
+			values[j--] = swap;
+		}
+	}
+}
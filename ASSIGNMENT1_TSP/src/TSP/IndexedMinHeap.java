@@ -0,0 +1,142 @@
+package TSP;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the int ids {@code 0..capacity-1} with int keys.
+ *
+ * <p>
+ * Every id is stored at most once and its heap position is tracked, so
+ * {@link #decreaseKey(int, int)} works in O(log n) without creating garbage.
+ */
+public class IndexedMinHeap {
+	private final int[] heap; // Ids in heap order
+	private final int[] position; // Heap position of each id, -1 if not in the heap
+	private final int[] keys; // Current key of each id
+	private int size; // Number of ids in the heap
+	private long operations; // Inserts, key decreases and polls so far
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new int[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	// Check whether the heap is empty
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// Get the number of ids in the heap
+	public int size() {
+		return size;
+	}
+
+	// Check whether an id is in the heap
+	public boolean contains(int id) {
+		return position[id] != -1;
+	}
+
+	// Get the current key of an id in the heap
+	public int getKey(int id) {
+		return keys[id];
+	}
+
+	// Get the number of inserts, key decreases and polls so far
+	public long getOperations() {
+		return operations;
+	}
+
+	// Insert an id, or lower its key if it is already in the heap
+	public void insertOrDecrease(int id, int key) {
+		if (position[id] == -1) {
+			insert(id, key);
+		} else if (key < keys[id]) {
+			decreaseKey(id, key);
+		}
+	}
+
+	// Insert an id that is not in the heap
+	public void insert(int id, int key) {
+		operations++;
+		keys[id] = key;
+		heap[size] = id;
+		position[id] = size;
+		siftUp(size++);
+	}
+
+	// Lower the key of an id in the heap
+	public void decreaseKey(int id, int key) {
+		operations++;
+		keys[id] = key;
+		siftUp(position[id]);
+	}
+
+	// Get the id with the smallest key without removing it
+	public int peek() {
+		return heap[0];
+	}
+
+	// Remove and return the id with the smallest key
+	public int poll() {
+		operations++;
+		int top = heap[0];
+		position[top] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	// Remove all ids
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	// Move the entry at the index up until the heap order holds
+	private void siftUp(int index) {
+		int id = heap[index];
+		int key = keys[id];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			int parentId = heap[parent];
+			if (keys[parentId] <= key) {
+				break;
+			}
+			heap[index] = parentId;
+			position[parentId] = index;
+			index = parent;
+		}
+		heap[index] = id;
+		position[id] = index;
+	}
+
+	// Move the entry at the index down until the heap order holds
+	private void siftDown(int index) {
+		int id = heap[index];
+		int key = keys[id];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && keys[heap[right]] < keys[heap[child]]) {
+				child = right;
+			}
+			if (key <= keys[heap[child]]) {
+				break;
+			}
+			heap[index] = heap[child];
+			position[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = id;
+		position[id] = index;
+	}
+}
@@ -0,0 +1,123 @@
+package TSP;
+
+import java.util.Arrays;
+
+/**
+ * Kruskal's minimum spanning tree algorithm over a primitive edge array.
+ *
+ * <p>
+ * Every undirected edge is packed into one long, the weight in the high half
+ * and an edge index in the low half, so the edges sort by weight with
+ * {@link Arrays#parallelSort(long[])} and no comparator or edge objects. A
+ * {@link UnionFind} then takes the edges in order and keeps those that join two
+ * components, stopping once the tree is complete. The sort dominates: O(E log E)
+ * work spread across cores.
+ */
+public class KruskalAlgorithm {
+	static final int MAX_MATRIX_VERTICES = 1 << 16; // Pairs of more vertices do not fit the low half of a key
+
+	private KruskalAlgorithm() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Minimum spanning tree over matrix distances. Every connected pair becomes one
+	 * key, so this suits sparse matrices; the weight of a pair is the lighter of
+	 * its two directions.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param root   Local index of the vertex the tree is rooted at.
+	 * @return The spanning tree over the local vertex indices.
+	 * @throws IllegalArgumentException If there are more than
+	 *                                  {@link #MAX_MATRIX_VERTICES} vertices.
+	 */
+	public static SpanningTree run(Matrix matrix, int[] ids, int root) {
+		int n = ids.length;
+		if (n > MAX_MATRIX_VERTICES) {
+			throw new IllegalArgumentException(
+					"Kruskal supports at most " + MAX_MATRIX_VERTICES + " matrix vertices, got " + n);
+		}
+		boolean symmetric = matrix.isSymmetric(); // Checked once per matrix
+		long[] keys = new long[16];
+		int count = 0;
+		for (int a = 0; a < n; a++) {
+			for (int b = a + 1; b < n; b++) {
+				int distance = symmetric ? matrix.getDistance(ids[a], ids[b])
+						: matrix.getUndirectedDistance(ids[a], ids[b]);
+				if (distance != Integer.MAX_VALUE) {
+					if (count == keys.length) {
+						keys = Arrays.copyOf(keys, count * 2);
+					}
+					keys[count++] = (long) distance << 32 | ((a * n + b) & 0xFFFFFFFFL); // Pair index, unsigned
+				}
+			}
+		}
+		keys = Arrays.copyOf(keys, count);
+		Arrays.parallelSort(keys);
+
+		UnionFind sets = new UnionFind(n);
+		int[] from = new int[Math.max(0, n - 1)];
+		int[] to = new int[from.length];
+		int[] weight = new int[from.length];
+		int edges = 0;
+		for (int i = 0; i < count && edges < from.length; i++) {
+			long pair = keys[i] & 0xFFFFFFFFL;
+			int a = (int) (pair / n);
+			int b = (int) (pair % n);
+			if (sets.union(a, b)) {
+				from[edges] = a;
+				to[edges] = b;
+				weight[edges++] = (int) (keys[i] >> 32);
+			}
+		}
+		return SpanningTree.fromEdges(n, from, to, weight, edges, root);
+	}
+
+	/**
+	 * Minimum spanning tree over the edges of a sparse graph, treating every edge
+	 * as undirected. Edges to nodes outside the given vertices are ignored.
+	 *
+	 * @param graph The graph in CSR form.
+	 * @param ids   Graph ids of the vertices, indexed by local vertex index.
+	 * @param root  Local index of the vertex the tree is rooted at.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree run(SparseGraph graph, int[] ids, int root) {
+		SparseGraph local = graph.induced(ids).undirected();
+		int n = ids.length;
+
+		// Keep each undirected edge once, from its lower end; the key refers to its CSR position
+		long[] keys = new long[local.edgeCount() / 2];
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			for (int e = local.begin(v); e < local.end(v); e++) {
+				if (local.getTarget(e) > v) {
+					keys[count++] = (long) local.getWeight(e) << 32 | e;
+				}
+			}
+		}
+		Arrays.parallelSort(keys, 0, count);
+
+		int[] source = new int[local.edgeCount()]; // Source of each CSR position
+		for (int v = 0; v < n; v++) {
+			Arrays.fill(source, local.begin(v), local.end(v), v);
+		}
+		UnionFind sets = new UnionFind(n);
+		int[] from = new int[Math.max(0, n - 1)];
+		int[] to = new int[from.length];
+		int[] weight = new int[from.length];
+		int edges = 0;
+		for (int i = 0; i < count && edges < from.length; i++) {
+			int e = (int) keys[i];
+			int a = source[e];
+			int b = local.getTarget(e);
+			if (sets.union(a, b)) {
+				from[edges] = a;
+				to[edges] = b;
+				weight[edges++] = local.getWeight(e);
+			}
+		}
+		return SpanningTree.fromEdges(n, from, to, weight, edges, root);
+	}
+}
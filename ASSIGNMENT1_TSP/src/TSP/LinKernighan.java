@@ -0,0 +1,395 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Lin-Kernighan style tour improvement with double-bridge restarts (chained LK).
+ *
+ * <p>
+ * Each improvement step is a variable-depth chain of sequential 2-opt moves:
+ * the edge (t1, t2) is broken, an edge from t2 to one of its nearest neighbors
+ * t3 is added, and the tour is closed again through t4. The chain keeps going
+ * while the accumulated gain stays positive and stops at the first closed tour
+ * that is shorter. The tour lives in a {@link TwoLevelTour}, so a move costs
+ * O(sqrt(n)).
+ *
+ * <p>
+ * Once no improving chain is left, a random local double-bridge kick perturbs
+ * the tour and LK repairs it; kicks that end up longer are undone by replaying
+ * the move journal backwards.
+ *
+ * <p>
+ * Like {@link LocalSearch}, the chain gains assume that an edge weighs the same
+ * in both directions. On an asymmetric matrix LK works on the sum of both
+ * directions of each edge, and {@link #getTour} returns the shorter direction
+ * of the result, or the starting tour if that is still shorter.
+ */
+public class LinKernighan {
+	static final int NEIGHBORS = 8; // Candidate neighbors per vertex
+	static final int MAX_DEPTH = 10; // Longest chain of 2-opt moves in one step
+	static final int[] BREADTH = { 5, 3, 1 }; // Alternatives tried at the first levels of a chain
+	static final int KICK_SEGMENT = 50; // Longest segment moved by a double-bridge kick
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final int[] ids; // Matrix id of each local vertex
+	private final int[][] neighbors; // Nearest neighbors of each local vertex
+	private final TwoLevelTour tour; // Current tour
+	private final int n; // Number of vertices
+	private final boolean symmetric; // Whether edges weigh the same in both directions
+	private long length; // Cost of the current tour, the summed directions on an asymmetric matrix
+	private final int[] initial; // Starting tour on an asymmetric matrix, null otherwise
+	private final long initialLength; // Directed length of the starting tour on an asymmetric matrix
+
+	private final int[] queue; // Circular queue of vertices whose don't-look bit is off
+	private final boolean[] queued; // True while the vertex is in the queue
+	private int queueHead; // Index of the next vertex to take from the queue
+	private int queueSize; // Number of vertices in the queue
+
+	private final int[] addedFrom = new int[MAX_DEPTH]; // First end of each edge added in the current chain
+	private final int[] addedTo = new int[MAX_DEPTH]; // Second end of each edge added in the current chain
+	private long chainStartLength; // Tour length before the current chain
+	private int[] journal = new int[64]; // Applied 2-opt moves, four vertices each
+	private int journalSize; // Number of ints used in the journal
+	private boolean journaling; // Whether moves are being recorded for undo
+	private Deadline deadline; // Stops improving between chains once expired, null to run to the end
+	private int chainsSinceCheck; // Improving chains since the tour cost was last recomputed
+	private long checkedCost; // Tour cost at the last check
+
+	/**
+	 * Prepares LK over a tour.
+	 *
+	 * @param matrix    The adjacency matrix.
+	 * @param ids       Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour      Every local vertex exactly once, in tour order.
+	 * @param neighbors Candidate neighbors of each local vertex, closest first.
+	 */
+	public LinKernighan(Matrix matrix, int[] ids, int[] tour, int[][] neighbors) {
+		this.matrix = matrix;
+		this.ids = ids;
+		this.neighbors = neighbors;
+		this.n = tour.length;
+		this.symmetric = matrix.isSymmetric();
+		this.tour = new TwoLevelTour(tour);
+		this.queue = new int[n];
+		this.queued = new boolean[n];
+		for (int i = 0; i < n && n > 1; i++) {
+			length += dist(tour[i], tour[(i + 1) % n]); // A single vertex has no edge to itself
+		}
+		this.initial = symmetric ? null : tour.clone();
+		this.initialLength = symmetric ? 0 : directedLength(tour);
+	}
+
+	/**
+	 * Improves a closed tour in place with chained LK.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour   Every local vertex exactly once, in tour order; overwritten with the result.
+	 * @param kicks  Number of double-bridge restarts after the first local optimum.
+	 * @param seed   Seed for choosing the kicks.
+	 * @return The length of the improved tour.
+	 */
+	public static long improve(Matrix matrix, int[] ids, int[] tour, int kicks, long seed) {
+		LinKernighan lk = new LinKernighan(matrix, ids, tour, NeighborLists.nearest(matrix, ids, NEIGHBORS));
+		lk.optimize(kicks, new Random(seed));
+		System.arraycopy(lk.getTour(tour.length == 0 ? 0 : tour[0]), 0, tour, 0, tour.length);
+		return lk.getLength();
+	}
+
+	// Get the length of the tour returned by getTour
+	public long getLength() {
+		return symmetric ? length : directedLength(getTour(0));
+	}
+
+	// Get the current tour, starting at the given vertex; on an asymmetric matrix, the shortest described above
+	public int[] getTour(int start) {
+		if (n == 0) {
+			return new int[0];
+		}
+		int[] forward = tour.toArray(start);
+		if (symmetric) {
+			return forward;
+		}
+		int[] backward = new int[n];
+		backward[0] = start;
+		for (int i = 1; i < n; i++) {
+			backward[i] = forward[n - i];
+		}
+		long forwardLength = directedLength(forward);
+		long backwardLength = directedLength(backward);
+		if (initialLength < Math.min(forwardLength, backwardLength)) {
+			int offset = 0;
+			while (initial[offset] != start) {
+				offset++;
+			}
+			int[] rotated = new int[n];
+			System.arraycopy(initial, offset, rotated, 0, n - offset);
+			System.arraycopy(initial, 0, rotated, n - offset, offset);
+			return rotated;
+		}
+		return backwardLength < forwardLength ? backward : forward;
+	}
+
+	// Length of a tour of local vertices, following the tour direction
+	private long directedLength(int[] order) {
+		long total = 0;
+		for (int i = 0; i < n && n > 1; i++) {
+			total += matrix.getDistance(ids[order[i]], ids[order[(i + 1) % n]]);
+		}
+		return total;
+	}
+
+	// Run LK to a local optimum, then apply the given number of kicks
+	public void optimize(int kicks, Random random) {
+		if (n < 8) {
+			improveAll(); // Too small for kicks to find anything new
+			return;
+		}
+		improveAll();
+		for (int kick = 0; kick < kicks; kick++) {
+			kick(random);
+		}
+	}
+
+	// Stop improving between two chains once the deadline expires; a kick in progress is still kept or undone
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	// Run LK from every vertex until no improving chain is left or the deadline expires
+	public void improveAll() {
+		if (n < 5) {
+			return; // Every tour of four or fewer vertices is already optimal
+		}
+		for (int v = 0; v < n; v++) {
+			push(v);
+		}
+		improveQueued();
+	}
+
+	// Apply one double-bridge kick, repair it with LK and undo it if the tour got longer
+	public boolean kick(Random random) {
+		long before = length;
+		journaling = true;
+		journalSize = 0;
+		doubleBridge(random);
+		improveQueued();
+		journaling = false;
+		if (length > before) {
+			// Undo all moves since the kick in reverse order
+			for (int i = journalSize - 4; i >= 0; i -= 4) {
+				int a = journal[i];
+				int b = journal[i + 1];
+				int c = journal[i + 2];
+				int d = journal[i + 3];
+				tour.twoOptMove(a, c, b, d); // Inverse of (a, b), (c, d) -> (a, c), (b, d)
+			}
+			length = before;
+			return false;
+		}
+		return length < before;
+	}
+
+	// Process the queue until every don't-look bit is set, the deadline expires or the tour cost stops falling
+	private void improveQueued() {
+		chainsSinceCheck = 0;
+		checkedCost = Long.MAX_VALUE; // A kick may have raised the cost since the last call
+		while (queueSize > 0) {
+			if (deadline != null && deadline.isExpired()) {
+				return; // The tour is closed after every chain
+			}
+			int t1 = poll();
+			boolean improved = true;
+			while (improved) {
+				improved = step(t1, tour.next(t1)) || step(t1, tour.prev(t1));
+				if (improved && stalled()) {
+					return;
+				}
+			}
+		}
+	}
+
+	// Recompute the tour cost every n chains and report whether it failed to fall, which no correct chain allows
+	private boolean stalled() {
+		if (++chainsSinceCheck < n) {
+			return false;
+		}
+		chainsSinceCheck = 0;
+		long cost = 0;
+		int v = 0;
+		do {
+			int next = tour.next(v);
+			cost += dist(v, next);
+			v = next;
+		} while (v != 0);
+		length = cost; // Also corrects any drift of the tracked cost
+		boolean stalled = cost >= checkedCost;
+		checkedCost = cost;
+		return stalled;
+	}
+
+	// Start a chain that breaks the edge (t1, t2)
+	private boolean step(int t1, int t2) {
+		chainStartLength = length;
+		return extend(0, t1, t2, dist(t1, t2), 0);
+	}
+
+	/**
+	 * Extends the chain by one 2-opt move. The edge (t1, t2) is the one to break
+	 * next, gain is the total removed minus added length without it, and the chain
+	 * only commits to a closed tour that is shorter than the start by more than
+	 * best.
+	 */
+	private boolean extend(int level, int t1, int t2, long gain, long best) {
+		boolean forward = tour.next(t1) == t2;
+		int breadth = level < BREADTH.length ? BREADTH[level] : 1;
+		int[] bestT3 = new int[breadth];
+		long[] bestScore = new long[breadth];
+		int count = 0;
+
+		// Rank the candidate t3 by the gain after also breaking (t3, t4)
+		for (int t3 : neighbors[t2]) {
+			long g1 = gain - dist(t2, t3);
+			if (g1 <= 0) {
+				break; // Later neighbors are farther away
+			}
+			if (t3 == t1 || t3 == tour.next(t2) || t3 == tour.prev(t2)) {
+				continue;
+			}
+			int t4 = forward ? tour.prev(t3) : tour.next(t3);
+			if (wasAdded(level, t3, t4)) {
+				continue; // Never break an edge added earlier in the chain
+			}
+			long score = g1 + dist(t3, t4);
+			if (count == breadth && score <= bestScore[breadth - 1]) {
+				continue; // Not among the best alternatives
+			}
+			int slot = count < breadth ? count++ : breadth - 1;
+			while (slot > 0 && bestScore[slot - 1] < score) {
+				bestScore[slot] = bestScore[slot - 1];
+				bestT3[slot] = bestT3[slot - 1];
+				slot--;
+			}
+			bestScore[slot] = score;
+			bestT3[slot] = t3;
+		}
+
+		for (int i = 0; i < count; i++) {
+			int t3 = bestT3[i];
+			forward = tour.next(t1) == t2; // An undo may have left the tour the other way round
+			int t4 = forward ? tour.prev(t3) : tour.next(t3);
+			long newGain = gain - dist(t2, t3) + dist(t3, t4);
+
+			apply(t1, t2, t4, t3); // Tour now has the edges (t1, t4) and (t2, t3)
+			addedFrom[level] = t2;
+			addedTo[level] = t3;
+			long closed = newGain - dist(t1, t4); // Improvement if the chain stopped here
+			boolean deeper = level + 1 < MAX_DEPTH;
+			if (deeper && extend(level + 1, t1, t4, newGain, Math.max(best, closed))) {
+				push(t2);
+				push(t3);
+				return true; // A longer chain improved even more
+			}
+			if (closed > best) {
+				length = chainStartLength - closed;
+				push(t1);
+				push(t2);
+				push(t3);
+				push(t4);
+				return true;
+			}
+			undo(t1, t2, t4, t3);
+		}
+		return false;
+	}
+
+	// Check whether the edge (a, b) was added at an earlier level of the chain
+	private boolean wasAdded(int level, int a, int b) {
+		for (int i = 0; i < level; i++) {
+			if ((addedFrom[i] == a && addedTo[i] == b) || (addedFrom[i] == b && addedTo[i] == a)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Apply the 2-opt move (a, b), (c, d) -> (a, c), (b, d) and record it while journaling
+	private void apply(int a, int b, int c, int d) {
+		tour.twoOptMove(a, b, c, d);
+		if (journaling) {
+			if (journalSize + 4 > journal.length) {
+				journal = Arrays.copyOf(journal, journal.length * 2);
+			}
+			journal[journalSize++] = a;
+			journal[journalSize++] = b;
+			journal[journalSize++] = c;
+			journal[journalSize++] = d;
+		}
+	}
+
+	// Take back the last move applied by apply(a, b, c, d)
+	private void undo(int a, int b, int c, int d) {
+		tour.twoOptMove(a, c, b, d);
+		if (journaling) {
+			journalSize -= 4;
+		}
+	}
+
+	// Replace A B C D by A C B D for two short random segments B and C
+	private void doubleBridge(Random random) {
+		int maxSegment = Math.max(1, Math.min(KICK_SEGMENT, n / 4));
+		int aEnd = random.nextInt(n);
+		int b1 = tour.next(aEnd);
+		int b2 = b1;
+		for (int i = random.nextInt(maxSegment); i > 0; i--) {
+			b2 = tour.next(b2);
+		}
+		int c1 = tour.next(b2);
+		int c2 = c1;
+		for (int i = random.nextInt(maxSegment); i > 0; i--) {
+			c2 = tour.next(c2);
+		}
+		int d1 = tour.next(c2);
+		if (d1 == aEnd || c1 == aEnd) {
+			return; // Segments wrapped around the whole tour
+		}
+
+		length += dist(aEnd, c1) + dist(c2, b1) + dist(b2, d1) - dist(aEnd, b1) - dist(b2, c1) - dist(c2, d1);
+		apply(aEnd, b1, c2, d1); // A [C reversed][B reversed] D
+		apply(aEnd, c2, c1, b2); // A C [B reversed] D
+		apply(c2, b2, b1, d1); // A C B D
+
+		push(aEnd);
+		push(b1);
+		push(b2);
+		push(c1);
+		push(c2);
+		push(d1);
+	}
+
+	// Cost of the edge between two local vertices: its distance, or the sum of both directions if they differ
+	private long dist(int a, int b) {
+		long distance = matrix.getDistance(ids[a], ids[b]);
+		return symmetric ? distance : distance + matrix.getDistance(ids[b], ids[a]);
+	}
+
+	// Clear the don't-look bit of a vertex
+	private void push(int v) {
+		if (!queued[v]) {
+			queued[v] = true;
+			int tail = queueHead + queueSize;
+			queue[tail >= n ? tail - n : tail] = v;
+			queueSize++;
+		}
+	}
+
+	// Take the next vertex whose don't-look bit is off
+	private int poll() {
+		int v = queue[queueHead];
+		queueHead = queueHead + 1 == n ? 0 : queueHead + 1;
+		queueSize--;
+		queued[v] = false;
+		return v;
+	}
+}
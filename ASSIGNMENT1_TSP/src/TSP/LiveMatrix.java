@@ -0,0 +1,92 @@
+package TSP;
+
+import java.util.Map;
+
+/**
+ * A matrix whose distances change while it is being read, such as travel times
+ * from a traffic feed.
+ *
+ * <p>
+ * Readers call {@link #get} once per request and work on the returned
+ * {@link Matrix}, which never changes, so a request sees one consistent
+ * snapshot however many updates land meanwhile. {@link #update} applies a batch
+ * of changes to a copy, repairs the shortest-path tables cached for the current
+ * snapshot and then swaps the copy in with one volatile write. Caches keyed by
+ * {@link Matrix#getVersion}, such as {@link RouteCache}, drop their entries
+ * when they first see the new version. Updates are applied one at a time. An
+ * old snapshot and the tables cached for it are freed once no reader holds it.
+ *
+ * <p>
+ * A change sets one direction of a connection, so an update may leave the
+ * matrix asymmetric; the solvers handle directed distances. The distance of a
+ * node to itself always stays 0.
+ */
+public class LiveMatrix {
+	private volatile Matrix current; // Snapshot handed to readers
+
+	public LiveMatrix(Matrix matrix) {
+		this.current = matrix;
+	}
+
+	// Get the current snapshot
+	public Matrix get() {
+		return current;
+	}
+
+	/**
+	 * Applies a batch of distance changes between matrix ids.
+	 *
+	 * @param changes New distance of each changed connection, Integer.MAX_VALUE
+	 *                to remove it.
+	 * @return The new snapshot, already visible to readers.
+	 * @throws IllegalArgumentException If a change names an unknown node id or
+	 *                                  gives a node a nonzero distance to itself.
+	 */
+	public synchronized Matrix update(EdgeArrays changes) {
+		Matrix old = current;
+		Matrix updated = old.withDistances(changes);
+		AllPairsShortestPaths.forUpdate(old, updated, changes); // Repaired before readers can ask for them
+		PointToPointSearch.forUpdate(old, updated);
+		current = updated;
+		return updated;
+	}
+
+	/**
+	 * Applies a batch of distance changes given by node names, in the format of
+	 * the matrix file: {@code {"A": {"B": 12, "C": null}}} sets A to B to 12 and
+	 * removes the connection from A to C.
+	 *
+	 * @param changes New distances by start node and end node, null to remove a
+	 *                connection.
+	 * @return The new snapshot, already visible to readers.
+	 * @throws IllegalArgumentException If a node is unknown, a distance is
+	 *                                  negative or a node gets a nonzero
+	 *                                  distance to itself.
+	 */
+	public Matrix update(Map<String, Map<String, Integer>> changes) {
+		Matrix matrix = current; // Node names never change between snapshots
+		EdgeArrays edges = new EdgeArrays();
+		for (Map.Entry<String, Map<String, Integer>> row : changes.entrySet()) {
+			int from = matrix.getId(row.getKey());
+			if (from < 0) {
+				throw new IllegalArgumentException("Unknown node: " + row.getKey());
+			}
+			if (row.getValue() == null) {
+				continue; // No changes from this node
+			}
+			for (Map.Entry<String, Integer> entry : row.getValue().entrySet()) {
+				int to = matrix.getId(entry.getKey());
+				if (to < 0) {
+					throw new IllegalArgumentException("Unknown node: " + entry.getKey());
+				}
+				Integer distance = entry.getValue();
+				if (distance != null && distance < 0) {
+					throw new IllegalArgumentException(
+							"Negative distance from " + row.getKey() + " to " + entry.getKey() + ": " + distance);
+				}
+				edges.add(from, to, distance == null ? Integer.MAX_VALUE : distance);
+			}
+		}
+		return update(edges);
+	}
+}
@@ -0,0 +1,356 @@
+package TSP;
+
+/**
+ * 2-opt and Or-opt improvement of a closed tour.
+ *
+ * <p>
+ * The tour is an int array of local vertex indices with a position index, so
+ * every candidate move is evaluated in O(1). Only moves towards the k nearest
+ * neighbors of a vertex are tried, and don't-look bits keep the search on the
+ * vertices whose surroundings changed recently.
+ *
+ * <p>
+ * The move gains assume that an edge weighs the same in both directions, since
+ * a 2-opt move reverses part of the tour. On an asymmetric matrix the search
+ * therefore works on the sum of both directions of each edge, which is the same
+ * for a tour and its reverse, and finally walks the tour in its shorter
+ * direction; it keeps the starting tour if that is still shorter.
+ */
+public class LocalSearch {
+	static final int NEIGHBORS = 8; // Candidate neighbors per vertex
+	static final int MAX_SEGMENT = 3; // Longest segment moved by Or-opt
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final int[] ids; // Matrix id of each local vertex
+	private final int[][] neighbors; // Nearest neighbors of each local vertex
+	private final int[] tour; // Local vertices in tour order
+	private final int[] position; // Tour position of each local vertex
+	private final int n; // Number of vertices in the tour
+	private final boolean symmetric; // Whether edges weigh the same in both directions
+
+	private final int[] queue; // Circular queue of vertices whose don't-look bit is off
+	private final boolean[] queued; // Don't-look bit, inverted: true while the vertex is in the queue
+	private int queueHead; // Index of the next vertex to take from the queue
+	private int queueSize; // Number of vertices in the queue
+	private Deadline deadline; // Stops the search between moves once expired, null to run to the end
+	private int movesSinceCheck; // Moves applied since the tour cost was last recomputed
+	private long checkedCost = Long.MAX_VALUE; // Tour cost at the last check
+
+	/**
+	 * Prepares a local search over a tour; the tour array is improved in place.
+	 *
+	 * @param matrix    The adjacency matrix.
+	 * @param ids       Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour      Every local vertex exactly once, in tour order.
+	 * @param neighbors Candidate neighbors of each local vertex, closest first.
+	 */
+	public LocalSearch(Matrix matrix, int[] ids, int[] tour, int[][] neighbors) {
+		this.matrix = matrix;
+		this.ids = ids;
+		this.neighbors = neighbors;
+		this.tour = tour;
+		this.n = tour.length;
+		this.symmetric = matrix.isSymmetric();
+		this.position = new int[n];
+		for (int i = 0; i < n; i++) {
+			position[tour[i]] = i;
+		}
+		this.queue = new int[n];
+		this.queued = new boolean[n];
+	}
+
+	/**
+	 * Improves a closed tour in place with 2-opt and Or-opt moves.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param tour   Every local vertex exactly once, in tour order.
+	 * @return The length of the improved tour.
+	 */
+	public static long improve(Matrix matrix, int[] ids, int[] tour) {
+		LocalSearch search = new LocalSearch(matrix, ids, tour, NeighborLists.nearest(matrix, ids, NEIGHBORS));
+		search.run();
+		return search.length();
+	}
+
+	// Stop the search between two moves once the deadline expires
+	public void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	// Run until no improving move is left or the deadline expires
+	public void run() {
+		if (n < 5) {
+			return; // Every tour of four or fewer vertices is already 2-optimal
+		}
+		int[] start = symmetric ? null : tour.clone();
+		long startLength = symmetric ? 0 : length();
+		search();
+		if (!symmetric) {
+			orient();
+			if (length() > startLength) {
+				restore(start); // The summed directions led to a longer directed tour
+			}
+		}
+	}
+
+	// Apply improving moves until none is left, the deadline expires or the tour cost stops falling
+	private void search() {
+		for (int i = 0; i < n; i++) {
+			push(tour[i]);
+		}
+		while (queueSize > 0) {
+			if (deadline != null && deadline.isExpired()) {
+				return; // The tour is complete after every move
+			}
+			int a = poll();
+			boolean improved = true;
+			while (improved) {
+				improved = tryTwoOpt(a) || tryOrOpt(a);
+				if (improved && stalled()) {
+					return;
+				}
+			}
+		}
+	}
+
+	// Recompute the tour cost every n moves and report whether it failed to fall, which no correct move allows
+	private boolean stalled() {
+		if (++movesSinceCheck < n) {
+			return false;
+		}
+		movesSinceCheck = 0;
+		long cost = 0;
+		for (int i = 0; i < n; i++) {
+			cost += dist(tour[i], tour[i + 1 == n ? 0 : i + 1]);
+		}
+		boolean stalled = cost >= checkedCost;
+		checkedCost = cost;
+		return stalled;
+	}
+
+	// Walk the tour in its shorter direction, keeping the first vertex in place
+	private void orient() {
+		long backward = 0;
+		for (int i = 0; i < n; i++) {
+			backward += matrix.getDistance(ids[tour[i + 1 == n ? 0 : i + 1]], ids[tour[i]]);
+		}
+		if (backward < length()) {
+			for (int i = 1, j = n - 1; i < j; i++, j--) {
+				int v = tour[i];
+				tour[i] = tour[j];
+				tour[j] = v;
+			}
+			restore(tour);
+		}
+	}
+
+	// Replace the tour by the given order and rebuild the positions
+	private void restore(int[] order) {
+		System.arraycopy(order, 0, tour, 0, n);
+		for (int i = 0; i < n; i++) {
+			position[tour[i]] = i;
+		}
+	}
+
+	// Get the current tour length, following the tour direction
+	public long length() {
+		long total = 0;
+		for (int i = 0; i < n && n > 1; i++) {
+			total += matrix.getDistance(ids[tour[i]], ids[tour[(i + 1) % n]]); // A single vertex has no edge to itself
+		}
+		return total;
+	}
+
+	// Try the 2-opt moves that replace an edge at a by an edge to one of its neighbors
+	private boolean tryTwoOpt(int a) {
+		for (int direction = 0; direction < 2; direction++) {
+			int b = direction == 0 ? next(a) : prev(a);
+			long removed = dist(a, b);
+			for (int c : neighbors[a]) {
+				long added = dist(a, c);
+				if (added >= removed) {
+					break; // Later neighbors are farther away
+				}
+				int d = direction == 0 ? next(c) : prev(c);
+				if (c == b || d == a) {
+					continue;
+				}
+				long delta = added + dist(b, d) - removed - dist(c, d);
+				if (delta < 0) {
+					twoOptMove(a, b, c, d);
+					push(a);
+					push(b);
+					push(c);
+					push(d);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Try moving a segment of up to MAX_SEGMENT vertices that starts or ends at a next to a neighbor
+	private boolean tryOrOpt(int a) {
+		for (int length = 1; length <= MAX_SEGMENT && length < n - 3; length++) {
+			for (int direction = 0; direction < 2; direction++) {
+				// The segment runs from first to last in tour order
+				int first = a;
+				int last = a;
+				for (int i = 1; i < length; i++) {
+					if (direction == 0) {
+						last = next(last);
+					} else {
+						first = prev(first);
+					}
+				}
+				int before = prev(first);
+				int after = next(last);
+				long removed = dist(before, first) + dist(last, after) - dist(before, after);
+				if (removed <= 0) {
+					continue;
+				}
+				if (tryInsert(first, last, before, after, removed, first)
+						|| tryInsert(first, last, before, after, removed, last)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Try inserting the segment between a neighbor of an end vertex and one of that neighbor's tour neighbors
+	private boolean tryInsert(int first, int last, int before, int after, long removed, int end) {
+		for (int c : neighbors[end]) {
+			if (dist(end, c) >= removed) {
+				break; // Later neighbors are farther away
+			}
+			if (inSegment(c, first, last)) {
+				continue;
+			}
+			for (int side = 0; side < 2; side++) {
+				int x = side == 0 ? c : prev(c); // Insert between x and next(x)
+				int y = next(x);
+				if (x == before || inSegment(x, first, last) || inSegment(y, first, last)) {
+					continue;
+				}
+				long kept = dist(x, y);
+				long forward = dist(x, first) + dist(last, y) - kept;
+				long reversed = dist(x, last) + dist(first, y) - kept;
+				if (forward < removed || reversed < removed) {
+					orOptMove(first, last, before, after, x, y, forward <= reversed);
+					push(first);
+					push(last);
+					push(before);
+					push(after);
+					push(x);
+					push(y);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Check whether a vertex lies on the segment from first to last in tour order
+	private boolean inSegment(int v, int first, int last) {
+		int offset = position[v] - position[first];
+		if (offset < 0) {
+			offset += n;
+		}
+		int length = position[last] - position[first];
+		if (length < 0) {
+			length += n;
+		}
+		return offset <= length;
+	}
+
+	/**
+	 * Replaces the tour edges (a, b) and (c, d) by (a, c) and (b, d). The edges
+	 * must point the same way: either b and d follow a and c, or they precede them.
+	 */
+	void twoOptMove(int a, int b, int c, int d) {
+		if (next(a) == b) {
+			reverse(b, c);
+		} else {
+			reverse(a, d);
+		}
+	}
+
+	/**
+	 * Moves the segment first..last, currently between before and after, between
+	 * the adjacent vertices x and y, as a sequence of 2-opt moves.
+	 */
+	void orOptMove(int first, int last, int before, int after, int x, int y, boolean keepOrientation) {
+		twoOptMove(before, first, x, y); // Now before-x ... after-last ... first-y
+		twoOptMove(before, x, after, last); // Now before-after ... x-last ... first-y
+		if (keepOrientation) {
+			twoOptMove(x, last, first, y); // Now x-first ... last-y
+		}
+	}
+
+	// Reverse the tour path from vertex from to vertex to, or the complementary path if that is shorter
+	private void reverse(int from, int to) {
+		int i = position[from];
+		int j = position[to];
+		int length = j - i;
+		if (length < 0) {
+			length += n;
+		}
+		length++;
+		if (2 * length > n) {
+			// Reversing the rest of the tour yields the same cycle with fewer swaps
+			int newI = j + 1 == n ? 0 : j + 1;
+			j = i == 0 ? n - 1 : i - 1;
+			i = newI;
+			length = n - length;
+		}
+		for (int swaps = length / 2; swaps > 0; swaps--) {
+			int vi = tour[i];
+			int vj = tour[j];
+			tour[i] = vj;
+			position[vj] = i;
+			tour[j] = vi;
+			position[vi] = j;
+			i = i + 1 == n ? 0 : i + 1;
+			j = j == 0 ? n - 1 : j - 1;
+		}
+	}
+
+	// Successor of a vertex in the tour
+	private int next(int v) {
+		int p = position[v] + 1;
+		return tour[p == n ? 0 : p];
+	}
+
+	// Predecessor of a vertex in the tour
+	private int prev(int v) {
+		int p = position[v];
+		return tour[p == 0 ? n - 1 : p - 1];
+	}
+
+	// Cost of the edge between two local vertices: its distance, or the sum of both directions if they differ
+	private long dist(int a, int b) {
+		long distance = matrix.getDistance(ids[a], ids[b]);
+		return symmetric ? distance : distance + matrix.getDistance(ids[b], ids[a]);
+	}
+
+	// Clear the don't-look bit of a vertex
+	private void push(int v) {
+		if (!queued[v]) {
+			queued[v] = true;
+			int tail = queueHead + queueSize;
+			queue[tail >= n ? tail - n : tail] = v;
+			queueSize++;
+		}
+	}
+
+	// Take the next vertex whose don't-look bit is off
+	private int poll() {
+		int v = queue[queueHead];
+		queueHead = queueHead + 1 == n ? 0 : queueHead + 1;
+		queueSize--;
+		queued[v] = false;
+		return v;
+	}
+}
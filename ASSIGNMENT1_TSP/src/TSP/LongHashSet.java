@@ -0,0 +1,114 @@
+package TSP;
+
+import java.util.Arrays;
+
+/**
+ * Set of long keys in one open-addressing array with linear probing, so adding
+ * and looking up a key allocates nothing and touches one or two cache lines.
+ * The array doubles once it is half full.
+ */
+public class LongHashSet {
+	private static final long EMPTY = Long.MIN_VALUE; // Marks a free slot; stored separately when added as a key
+
+	private long[] slots; // Keys, EMPTY for free slots; the length is a power of two
+	private int size; // Number of keys, including EMPTY if it was added
+	private boolean containsEmpty; // Whether the EMPTY value itself was added
+
+	public LongHashSet() {
+		this(16);
+	}
+
+	/**
+	 * Creates a set that holds the given number of keys without growing.
+	 *
+	 * @param expected Expected number of keys.
+	 */
+	public LongHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1; // At most half full
+		slots = new long[capacity];
+		Arrays.fill(slots, EMPTY);
+	}
+
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 * @return True if the key was not in the set yet.
+	 */
+	public boolean add(long key) {
+		if (key == EMPTY) {
+			if (containsEmpty) {
+				return false;
+			}
+			containsEmpty = true;
+			size++;
+			return true;
+		}
+		int mask = slots.length - 1;
+		int slot = mix(key) & mask;
+		while (slots[slot] != EMPTY) {
+			if (slots[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = key;
+		if (++size * 2 > slots.length) {
+			grow();
+		}
+		return true;
+	}
+
+	// Check whether a key is in the set
+	public boolean contains(long key) {
+		if (key == EMPTY) {
+			return containsEmpty;
+		}
+		int mask = slots.length - 1;
+		for (int slot = mix(key) & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (slots[slot] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Get the number of keys
+	public int size() {
+		return size;
+	}
+
+	// Remove every key, keeping the array
+	public void clear() {
+		Arrays.fill(slots, EMPTY);
+		size = 0;
+		containsEmpty = false;
+	}
+
+	// Double the array and reinsert the keys
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length * 2];
+		Arrays.fill(slots, EMPTY);
+		int mask = slots.length - 1;
+		for (long key : old) {
+			if (key != EMPTY) {
+				int slot = mix(key) & mask;
+				while (slots[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = key;
+			}
+		}
+	}
+
+	// Spread the bits of a key so that packed pairs do not cluster (MurmurHash3 finalizer)
+	private static int mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
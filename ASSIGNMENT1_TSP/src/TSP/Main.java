@@ -1,20 +1,53 @@
 package TSP;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
+	static final int LIN_KERNIGHAN_KICKS = 100; // Double-bridge restarts when improving the circuit
 
 	public static void main(String[] args) {
+		if (Arrays.asList(args).contains("--serve")) {
+			runServer(args); // Long-running mode: answers route requests over HTTP until stopped
+			return;
+		}
+		if (Arrays.asList(args).contains("--batch")) {
+			runBatch(args); // Headless mode: no prompts, matrix printout or windows
+			return;
+		}
+		int starts = parseStarts(args); // Number of parallel multi-start tours, 1 to skip them
+		int exactLimit = getIntOption(args, "--exact-limit", HeldKarp.DEFAULT_LIMIT); // Largest circuit solved exactly
+		int exactMillis = getIntOption(args, "--exact-time", 0); // Branch-and-bound time for larger circuits, 0 to skip
+		String metricsFormat = getOption(args, "--metrics", null); // "json" or "prometheus", null to skip metrics
+		boolean pickupDelivery = Arrays.asList(args).contains("--pickup-delivery"); // Also solve the ordered open route
+		String mstEngine = getOption(args, "--mst", "prim"); // "prim", "boruvka" or "kruskal"
+		String renderDir = getOption(args, "--render", null); // Directory for PNG images instead of windows, null for windows
+		int deadlineMillis = getIntOption(args, "--deadline", 0); // Time budget from Task 5 on, 0 to improve to the end
+		SolveMetrics metrics = metricsFormat == null ? SolveMetrics.NOOP : SolveMetrics.create("interactive");
 		String startpoint, endpoint; // Variables to hold the start and endpoint of the route
 		int pickupAmount, dropoffAmount; // Number of pickup and drop-off zones
 		List<String> routeList = new ArrayList<>(); // List to store the route
+		List<String> pickups = new ArrayList<>(); // Pick-up zones in input order
+		List<String> dropoffs = new ArrayList<>(); // Drop-off zones in input order, paired with the pick-ups
 
 		Scanner kb = new Scanner(System.in); // Scanner for user input
 
 		try {
 			// Load the adjacency matrix from a JSON file
-			Matrix matrix = new Matrix("src/TSP/AdjacantMatrix.json");
+			metrics.begin(SolveMetrics.Phase.LOAD);
+			Matrix matrix = metrics.track(new Matrix("src/TSP/AdjacantMatrix.json")); // Counts lookups if enabled
+			metrics.end();
 
 			System.out.println("\n------ Task 1+2: Create Adjacency Matrix and Display Adjacency Matrix ------\n");
 			System.out.println("Adjacency Matrix Loaded:");
@@ -34,6 +67,7 @@ public class Main {
 				for (int i = 0; i < pickupAmount; i++) {
 					String pickup = getValidNode("Which pick-up zone do you want?", matrix, kb); // Get each pickup zone
 					routeList.add(pickup); // Add it to the route list
+					pickups.add(pickup);
 				}
 			}
 
@@ -46,108 +80,133 @@ public class Main {
 					String dropoff = getValidNode("Which drop-off zone do you want?", matrix, kb); // Get each drop-off
 																									// zone
 					routeList.add(dropoff); // Add it to the route list
+					dropoffs.add(dropoff);
 				}
 			}
 
 			routeList.add(endpoint); // Add the endpoint to the route list
 
-			// Create an index map for the route
-			Map<String, Integer> indexMap = createIndexMap(routeList);
+			// Resolve the matrix id of each route position once; the pipeline works on route positions
+			int[] ids = resolveIds(routeList, matrix);
 
 			// Task 4: Optimize the route using Dijkstra's algorithm
 			System.out.println("\n------ Task 4: Optimizing Route using Dijkstra ------\n");
+			metrics.begin(SolveMetrics.Phase.DIJKSTRA);
 			List<String> optimizedRoute = RouteOptimizer.optimizeRoute(routeList, matrix); // Optimize the route
+			metrics.end();
 			if (optimizedRoute == null || optimizedRoute.isEmpty()) {
 				System.err.println("Error: Optimized route is empty. Please check the adjacency matrix or input.");
 				return; // Exit if optimization fails
 			}
 			System.out.println("Optimized Route: " + String.join(" -> ", optimizedRoute));
 
+			if (pickupDelivery) {
+				// Open route from start to end that visits each pick-up before its paired drop-off
+				System.out.println("\n------ Task 4: Pick-Up and Drop-Off Order ------\n");
+				PickupDeliverySolver pickupDeliverySolver = new PickupDeliverySolver(matrix);
+				PickupDeliverySolver.Plan plan = pickupDeliverySolver.solve(startpoint, endpoint, pickups, dropoffs);
+				System.out.println("Stops in order: " + plan);
+				System.out.println("Route: " + String.join(" -> ", pickupDeliverySolver.expand(plan)));
+				System.out.println("Total Route Length: " + plan.getLength() + " units");
+			}
+
 			// Task 5: Construct the Minimum Spanning Tree (MST)
 			System.out.println("\n------ Task 5: Constructing Minimum Spanning Tree (MST) ------\n");
 			System.out.println("Constructing Minimum Spanning Tree (MST)...");
 
-			List<Vertex> vertices = initializeVertices(routeList); // Initialize vertices for the MST
-			List<Vertex> mst = PrimsAlgorithm.run(vertices, matrix, indexMap); // Run Prim's Algorithm
+			Deadline deadline = deadlineMillis > 0 ? Deadline.after(deadlineMillis) : null; // Covers Tasks 5 to 9
+			metrics.begin(SolveMetrics.Phase.MST);
+			SpanningTree mst = findMST(matrix, ids, mstEngine); // Run Prim's Algorithm or the chosen engine
+			metrics.end();
 
-			if (mst == null || mst.isEmpty()) {
+			if (mst.size() == 0) {
 				System.err.println("Error: Minimum Spanning Tree is empty.");
 				return; // Exit if MST construction fails
 			}
 			System.out.println("MST completed. Here are the edges:");
-			List<Edge> uniqueEdges = getUniqueEdges(mst); // Get unique edges
-			printMST(mst); // Print the MST edges
-			GraphVisualizer.displayGraph(mst, uniqueEdges, routeList, "Minimum Spanning Tree (MST)");
+			EdgeArrays uniqueEdges = EdgeArrays.treeEdges(mst).unique(ids); // Each edge once, parent to child
+			printEdges(uniqueEdges, routeList); // Print the MST edges
+			showGraph(uniqueEdges, routeList, "Minimum Spanning Tree (MST)", "mst.png", renderDir);
 
 			// Task 6: Identify vertices with odd degrees
 			System.out.println("\n------ Task 6: Identifying Odd Degree Vertices ------\n");
-			List<Vertex> oddDegreeNodes = findOddDegreeNodes(mst); // Find vertices with odd degrees
+			metrics.begin(SolveMetrics.Phase.ODD_DEGREE);
+			int[] oddDegreeNodes = findOddDegreeNodes(mst); // Find vertices with odd degrees
+			metrics.end();
 
-			if (oddDegreeNodes == null || oddDegreeNodes.isEmpty()) {
+			if (oddDegreeNodes.length == 0) {
 				System.err.println("Error: No odd-degree vertices found.");
 			} else {
-				System.out.println("Vertices with an odd degree: " + getVertexNames(oddDegreeNodes));
+				System.out.println("Vertices with an odd degree: " + getVertexNames(oddDegreeNodes, routeList));
 			}
 
 			// Task 7: Calculate the Minimum Weight Perfect Matching (MWPM)
 			System.out.println("\n------ Task 7: Calculating Minimum Weight Perfect Matching (MWPM) ------\n");
-			List<Edge> mwpm = findMWPM(oddDegreeNodes, matrix, indexMap); // Find the MWPM edges
+			metrics.begin(SolveMetrics.Phase.MATCHING);
+			EdgeArrays mwpm = findMWPM(oddDegreeNodes, ids, matrix); // Find the MWPM edges
+			metrics.end();
 
-			if (mwpm == null || mwpm.isEmpty()) {
+			if (mwpm.isEmpty()) {
 				System.err.println("Error: Minimum Weight Perfect Matching is empty.");
 			} else {
 				System.out.println("MWPM completed. Here are the edges:");
-				printEdges(mwpm); // Print the MWPM edges
+				printEdges(mwpm, routeList); // Print the MWPM edges
 			}
 
 			// Task 8: Create a multigraph by combining MST and MWPM
 			System.out.println("\n------ Task 8: Creating Multigraph ------\n");
-			List<Edge> multigraph = createMultigraph(mst, mwpm); // Combine MST and MWPM to create the multigraph
-			if (multigraph == null || multigraph.isEmpty()) {
+			metrics.begin(SolveMetrics.Phase.MULTIGRAPH);
+			EdgeArrays multigraph = createMultigraph(mst, mwpm, routeList); // Combine MST and MWPM
+			metrics.end();
+			if (multigraph.isEmpty()) {
 				System.err.println("Error: Multigraph is empty.");
 			} else {
 				System.out.println("Multigraph completed. Here are the edges:");
-				printEdges(multigraph); // Print the multigraph edges
-				List<Vertex> multigraphVertices = initializeVertices(routeList); // Initialize vertices for the
-																					// multigraph
-				GraphVisualizer.displayGraph(multigraphVertices, multigraph, routeList, "Multigraph Visualization"); // Visualize
-																														// the
-																														// multigraph
+				printEdges(multigraph, routeList); // Print the multigraph edges
+				showGraph(multigraph, routeList, "Multigraph Visualization", "multigraph.png", renderDir); // Visualize
 			}
 
 			// Task 9: Construct a Hamiltonian Circuit
 			System.out.println("\n------ Task 9: Constructing Hamiltonian Circuit (Optimal Route) ------\n");
-			List<Vertex> allVertices = initializeVertices(routeList);
-			List<Vertex> optimalRoute = createHamiltonianCircuit(multigraph, allVertices);
-			if (optimalRoute == null || optimalRoute.isEmpty()) {
+			metrics.begin(SolveMetrics.Phase.CIRCUIT);
+			int[] optimalRoute = createHamiltonianCircuit(multigraph, routeList.size()); // Route positions
+			metrics.end();
+			if (optimalRoute.length == 0) {
 				System.err.println("Error: Hamiltonian Circuit could not be created.");
 			} else {
-				optimalRoute.add(optimalRoute.get(0));
+				metrics.begin(SolveMetrics.Phase.IMPROVE);
+				optimalRoute = deadline != null ? improveByDeadline(optimalRoute, ids, matrix, starts, deadline) // Anytime
+						: improveCircuit(optimalRoute, ids, matrix, starts, exactLimit, exactMillis); // Exact or LK
+				metrics.end();
+				optimalRoute = Arrays.copyOf(optimalRoute, optimalRoute.length + 1);
+				optimalRoute[optimalRoute.length - 1] = optimalRoute[0]; // Return to the start
 
 				int totalCircuitLength = 0; // Count total length here
-				for (int i = 0; i < optimalRoute.size() - 1; i++) {
-					Vertex current = optimalRoute.get(i);
-					Vertex next = optimalRoute.get(i + 1);
-					totalCircuitLength += matrix.getDistance(current.getName(), next.getName());
+				for (int i = 0; i < optimalRoute.length - 1; i++) {
+					totalCircuitLength += matrix.getDistance(ids[optimalRoute[i]], ids[optimalRoute[i + 1]]);
 				}
 				System.out.println("Total Circuit Length: " + totalCircuitLength + " units");
 
-				printOptimalRoute(optimalRoute); // Print the optimal route
+				printOptimalRoute(optimalRoute, routeList); // Print the optimal route
 				System.out.println("Hamiltonian Circuit completed.");
 			}
 
+			if (metrics.isEnabled()) {
+				// Machine-readable metrics go to stderr so they do not mix with the task output
+				System.err.print(metricsFormat.equals("prometheus") ? metrics.toPrometheus() : metrics.toJson() + "\n");
+			}
+
 			// Task 10: Display the final route graphically
 			System.out.println("\n------ Task 10: Displaying Route Graphically ------\n");
-			List<Edge> optimalRouteEdges = new ArrayList<>();
-			if (optimalRoute != null && !optimalRoute.isEmpty()) {
-				for (int i = 0; i < optimalRoute.size() - 1; i++) {
-					Vertex current = optimalRoute.get(i); // Get the current vertex
-					Vertex next = optimalRoute.get(i + 1); // Get the next vertex
-					int distance = matrix.getDistance(current.getName(), next.getName()); // Calculate the distance
-					optimalRouteEdges.add(new Edge(current, next, distance)); // Add the edge to the route
+			if (optimalRoute.length > 0) {
+				EdgeArrays optimalRouteEdges = new EdgeArrays(optimalRoute.length);
+				for (int i = 0; i < optimalRoute.length - 1; i++) {
+					int current = optimalRoute[i]; // Get the current route position
+					int next = optimalRoute[i + 1]; // Get the next route position
+					optimalRouteEdges.add(current, next, matrix.getDistance(ids[current], ids[next])); // Add the edge
 				}
-				GraphVisualizer.displayGraph(optimalRoute, optimalRouteEdges, routeList,
-						"Optimal Route (Hamiltonian Circuit)"); // Visualize the optimal route
+				showGraph(optimalRouteEdges, routeList, "Optimal Route (Hamiltonian Circuit)", "route.png",
+						renderDir); // Visualize the optimal route
 			}
 		} catch (IOException e) {
 			System.err.println("Error loading adjacency matrix file: " + e.getMessage()); // Handle file I/O errors
@@ -158,6 +217,150 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Builds the MST of the route positions with the engine named by --mst, Prim's
+	 * Algorithm for unknown names.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix id of each route position.
+	 * @param engine "prim", "boruvka" or "kruskal".
+	 * @return The spanning tree over the route positions.
+	 */
+	public static SpanningTree findMST(Matrix matrix, int[] ids, String engine) {
+		if (ids.length == 0) {
+			return SpanningTree.fromEdges(0, ids, ids, ids, 0, 0); // Nothing to connect
+		}
+		switch (engine) {
+		case "boruvka":
+			return BoruvkaAlgorithm.run(matrix, ids, 0);
+		case "kruskal":
+			return KruskalAlgorithm.run(matrix, ids, 0);
+		default:
+			return PrimsAlgorithm.isDense(matrix, ids) ? PrimsAlgorithm.dense(matrix, ids, 0)
+					: PrimsAlgorithm.heap(matrix, ids, 0);
+		}
+	}
+
+	// Show a graph in a window, or write it as a PNG image into renderDir if one is given; the only place that
+	// builds Vertex and Edge objects
+	private static void showGraph(EdgeArrays edges, List<String> routeList, String title, String fileName,
+			String renderDir) {
+		List<Vertex> vertices = new ArrayList<>(routeList.size());
+		for (String name : routeList) {
+			vertices.add(new Vertex(name)); // One vertex per route position
+		}
+		List<Edge> edgeList = edges.toEdges(vertices);
+		if (renderDir == null) {
+			GraphVisualizer.displayGraph(vertices, edgeList, routeList, title);
+			return;
+		}
+		try {
+			Files.createDirectories(Paths.get(renderDir));
+			GraphVisualizer.exportGraph(edgeList, routeList, Paths.get(renderDir, fileName), 600); // Same size as the window
+			System.out.println(title + " written to " + Paths.get(renderDir, fileName));
+		} catch (IOException e) {
+			System.err.println("Error writing graph image: " + e.getMessage());
+		}
+	}
+
+	// Read the number of multi-start tours from "--starts N", 1 if the option is missing or invalid
+	private static int parseStarts(String[] args) {
+		return Math.max(1, getIntOption(args, "--starts", 1));
+	}
+
+	/**
+	 * Solves JSON-line jobs without any interaction:
+	 * {@code --batch [jobs.jsonl] [--matrix file] [--threads N] [--kicks N] [--exact-limit N] [--cache N]
+	 * [--metrics json] [--deadline ms]}.
+	 * Jobs are read from the file, or from standard input if no file is given, and
+	 * results go to standard output.
+	 */
+	private static void runBatch(String[] args) {
+		String matrixPath = getOption(args, "--matrix", "src/TSP/AdjacantMatrix.json");
+		String jobsPath = getOption(args, "--batch", null);
+		int threads = getIntOption(args, "--threads", Runtime.getRuntime().availableProcessors());
+		int kicks = getIntOption(args, "--kicks", TspSolver.KICKS);
+		int exactLimit = getIntOption(args, "--exact-limit", HeldKarp.DEFAULT_LIMIT);
+		int cacheSize = getIntOption(args, "--cache", 0); // Cached routes of repeated stop sets, 0 to solve every job
+
+		try {
+			long startTime = System.nanoTime();
+			Matrix matrix = MatrixFile.open(matrixPath);
+			RouteCache<Route> cache = cacheSize > 0 ? new RouteCache<>(cacheSize) : null;
+			BatchSolver batch = new BatchSolver(new TspSolver(matrix, kicks, exactLimit, cache), threads,
+					getOption(args, "--metrics", null) != null, getIntOption(args, "--deadline", 0));
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			int jobs;
+			try (BufferedReader in = jobsPath == null || jobsPath.startsWith("--")
+					? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+					: Files.newBufferedReader(Paths.get(jobsPath), StandardCharsets.UTF_8)) {
+				jobs = batch.run(in, out);
+			}
+			System.err.println("Solved " + jobs + " jobs in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+			if (cache != null) {
+				System.err.println(cache);
+			}
+		} catch (IOException e) {
+			System.err.println("Error running batch: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Answers route requests over HTTP on the loopback interface until the process
+	 * is stopped: {@code --serve PORT [--matrix file] [--threads N] [--max-pending N]
+	 * [--timeout ms] [--kicks N] [--exact-limit N] [--cache N] [--metrics json] [--deadline ms]}.
+	 * See {@link RouteServer} for the endpoints.
+	 */
+	private static void runServer(String[] args) {
+		String matrixPath = getOption(args, "--matrix", "src/TSP/AdjacantMatrix.json");
+		int port = getIntOption(args, "--serve", 8080);
+		int threads = getIntOption(args, "--threads", Runtime.getRuntime().availableProcessors());
+		int maxPending = getIntOption(args, "--max-pending", RouteServer.DEFAULT_MAX_PENDING);
+		int timeoutMillis = getIntOption(args, "--timeout", RouteServer.DEFAULT_TIMEOUT_MILLIS);
+		int kicks = getIntOption(args, "--kicks", TspSolver.KICKS);
+		int exactLimit = getIntOption(args, "--exact-limit", HeldKarp.DEFAULT_LIMIT);
+		int cacheSize = getIntOption(args, "--cache", 0); // Cached routes of repeated stop sets, 0 to solve every job
+
+		try {
+			long startTime = System.nanoTime();
+			LiveMatrix matrix = new LiveMatrix(MatrixFile.open(matrixPath)); // Loaded once, updated by copy-on-write
+			RouteCache<Route> cache = cacheSize > 0 ? new RouteCache<>(cacheSize) : null;
+			BatchSolver solver = new BatchSolver(new TspSolver(matrix, kicks, exactLimit, cache), threads,
+					getOption(args, "--metrics", null) != null, getIntOption(args, "--deadline", 0));
+			RouteServer server = new RouteServer(solver, matrix, cache, threads, maxPending, timeoutMillis);
+			server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+			System.err.println("Serving " + matrix.get().size() + " nodes on http://127.0.0.1:" + server.getPort()
+					+ " after " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+		} catch (IOException e) {
+			System.err.println("Error starting server: " + e.getMessage());
+		}
+	}
+
+	// Get the value following an option, or the default if the option is missing
+	private static String getOption(String[] args, String name, String defaultValue) {
+		for (int i = 0; i + 1 < args.length; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+
+	// Get the integer value following an option, or the default if it is missing or invalid
+	private static int getIntOption(String[] args, String name, int defaultValue) {
+		String value = getOption(args, name, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid value for " + name + ": " + value);
+			return defaultValue;
+		}
+	}
+
 	// Helper method to get a valid node input
 	private static String getValidNode(String prompt, Matrix matrix, Scanner kb) {
 		while (true) {
@@ -190,279 +393,190 @@ public class Main {
 		}
 	}
 
-	// Initialize vertices based on the route list
-	private static List<Vertex> initializeVertices(List<String> routeList) {
-		List<Vertex> vertices = new ArrayList<>();
-		for (String name : routeList) {
-			vertices.add(new Vertex(name)); // Create a vertex for each name
-		}
-		return vertices;
+	// Resolve the matrix id of each route position
+	private static int[] resolveIds(List<String> routeList, Matrix matrix) {
+		return matrix.getIds(routeList); // Rejects unknown stops
 	}
 
-	// Print the edges of the MST
-	private static void printMST(List<Vertex> mst) {
-		Set<String> printedEdges = new HashSet<>(); // To track printed edges
-
-		for (Vertex vertex : mst) {
-			for (Edge edge : vertex.connectedVertices) {
-				String edgeKey = edge.Owner.getName() + "-" + edge.Child.getName();
-				String reverseKey = edge.Child.getName() + "-" + edge.Owner.getName();
-
-				if (!printedEdges.contains(edgeKey) && !printedEdges.contains(reverseKey)) {
-					// Print the edge if neither direction has been printed
-					System.out.println("Edge from " + edge.Owner.getName() + " to " + edge.Child.getName()
-							+ " with weight " + edge.weight);
-					printedEdges.add(edgeKey); // Mark this edge as printed
-				}
+	// Find the vertices with an odd number of tree edges, in the order they joined the tree
+	public static int[] findOddDegreeNodes(SpanningTree mst) {
+		int[] degree = mst.getDegrees(); // Degree is the count of connected edges
+		int count = 0;
+		for (int vertex : degree) {
+			if (vertex % 2 != 0) {
+				count++;
 			}
 		}
-	}
-
-	public static List<Vertex> findOddDegreeNodes(List<Vertex> mst) {
-		List<Vertex> oddDegreeNodes = new ArrayList<>();
-
-		// Calculate the degree of each vertex in the MST
-		for (Vertex vertex : mst) {
-			int degree = vertex.connectedVertices.size(); // Degree is the count of connected edges
-			if (degree % 2 != 0) { // Check if the degree is odd
-				oddDegreeNodes.add(vertex);
+		int[] oddDegreeNodes = new int[count];
+		count = 0;
+		for (int step = 0; step < mst.size(); step++) {
+			int vertex = mst.getVertexAt(step);
+			if (degree[vertex] % 2 != 0) { // Check if the degree is odd
+				oddDegreeNodes[count++] = vertex;
 			}
 		}
 		return oddDegreeNodes;
 	}
 
 	// Calculate Minimum Weight Perfect Matching (MWPM)
-	public static List<Edge> findMWPM(List<Vertex> oddDegreeNodes, Matrix matrix, Map<String, Integer> indexMap) {
-		List<Edge> matching = new ArrayList<>();
-
-		while (!oddDegreeNodes.isEmpty()) {
-			Vertex v1 = oddDegreeNodes.remove(0); // Remove and get the first vertex
-			Vertex bestMatch = null;
-			int minDistance = Integer.MAX_VALUE;
-
-			// Find the closest match for v1
-			for (Vertex v2 : oddDegreeNodes) {
-				int distance = matrix.getDistance(v1.getName(), v2.getName());
-				if (distance < minDistance) {
-					minDistance = distance;
-					bestMatch = v2;
-				}
-			}
+	public static EdgeArrays findMWPM(int[] oddDegreeNodes, int[] ids, Matrix matrix) {
+		int[] oddIds = new int[oddDegreeNodes.length]; // Matrix ids of the odd-degree vertices
+		for (int i = 0; i < oddIds.length; i++) {
+			oddIds[i] = ids[oddDegreeNodes[i]];
+		}
 
-			if (bestMatch != null) {
-				// Add the matched pair as an edge
-				matching.add(new Edge(v1, bestMatch, minDistance));
-				oddDegreeNodes.remove(bestMatch); // Remove the matched vertex
+		int[] mate = PerfectMatching.minimumWeight(matrix, oddIds); // Match the odd-degree vertices
+		EdgeArrays matching = new EdgeArrays(mate.length / 2);
+		for (int i = 0; i < mate.length; i++) {
+			if (mate[i] > i) {
+				// Add each matched pair once as an edge
+				matching.add(oddDegreeNodes[i], oddDegreeNodes[mate[i]], matrix.getDistance(oddIds[i], oddIds[mate[i]]));
 			}
 		}
 		return matching;
 	}
 
-	// Create a map of vertices with their indices
-	private static Map<String, Integer> createIndexMap(List<String> routeList) {
-		Map<String, Integer> indexMap = new HashMap<>();
-		for (int i = 0; i < routeList.size(); i++) {
-			indexMap.put(routeList.get(i), i); // Map each vertex name to its index
-		}
-		return indexMap;
-	}
-
 	// Create a multigraph by combining MST and MWPM
-	public static List<Edge> createMultigraph(List<Vertex> mst, List<Edge> mwpm) {
-		List<Edge> multigraph = new ArrayList<>();
-		Map<String, Integer> degreeCount = new HashMap<>(); // Track degree of each node
-		Set<String> seenEdges = new HashSet<>(); // Avoid duplicate edges
-
-		// Initialize degree count for all nodes in MST
-		for (Vertex vertex : mst) {
-			degreeCount.put(vertex.getName(), 0);
-		}
-		// Add edges from MST to the multigraph
-		for (Vertex vertex : mst) {
-			for (Edge edge : vertex.connectedVertices) {
-				String edgeKey = createEdgeKey(edge.Owner, edge.Child);
-
-				// Add edge only if both nodes have less than 2 connections
-				if (!seenEdges.contains(edgeKey)) {
-					String ownerName = edge.Owner.getName();
-					String childName = edge.Child.getName();
-
-					if (degreeCount.get(ownerName) < 2 && degreeCount.get(childName) < 2) {
-						multigraph.add(edge);
-						seenEdges.add(edgeKey);
-						degreeCount.put(ownerName, degreeCount.get(ownerName) + 1);
-						degreeCount.put(childName, degreeCount.get(childName) + 1);
-					}
-				}
+	public static EdgeArrays createMultigraph(SpanningTree mst, EdgeArrays mwpm, List<String> routeList) {
+		// Add every MST edge once, from each vertex to its parent, then the MWPM edges; an edge that is also in
+		// the MST becomes a parallel edge
+		EdgeArrays multigraph = EdgeArrays.parentEdges(mst);
+		multigraph.addAll(mwpm);
+
+		// Validate that every vertex has an even degree, as the Eulerian circuit requires
+		int[] degree = multigraph.getDegrees(mst.size());
+		for (int step = 0; step < mst.size(); step++) {
+			int vertex = mst.getVertexAt(step);
+			if (degree[vertex] % 2 != 0) {
+				System.err.println("Error: Node " + routeList.get(vertex) + " has an odd degree in the multigraph.");
 			}
 		}
 
-		// Add edges from MWPM to the multigraph
-		for (Edge edge : mwpm) {
-			String edgeKey = createEdgeKey(edge.Owner, edge.Child);
+		return multigraph;
+	}
 
-			// Add edge only if both nodes have less than 2 connections
-			if (!seenEdges.contains(edgeKey)) {
-				String ownerName = edge.Owner.getName();
-				String childName = edge.Child.getName();
+	// Create a Hamiltonian Circuit of route positions from the multigraph via an Eulerian circuit and shortcutting
+	public static int[] createHamiltonianCircuit(EdgeArrays multigraph, int n) {
+		Multigraph graph = new Multigraph(n);
+		for (int i = 0; i < multigraph.size(); i++) {
+			graph.addEdge(multigraph.getFrom(i), multigraph.getTo(i), multigraph.getWeight(i));
+		}
+		return n == 0 ? new int[0] : graph.hamiltonianCycle(0); // Start from the first vertex
+	}
 
-				if (degreeCount.get(ownerName) < 2 && degreeCount.get(childName) < 2) {
-					multigraph.add(edge);
-					seenEdges.add(edgeKey);
-					degreeCount.put(ownerName, degreeCount.get(ownerName) + 1);
-					degreeCount.put(childName, degreeCount.get(childName) + 1);
-				}
-			}
+	// Improve a Hamiltonian Circuit of route positions: exactly with Held-Karp up to exactLimit vertices, otherwise
+	// with 2-opt / Or-opt local search and chained Lin-Kernighan, followed by branch and bound for exactMillis if
+	// that is positive
+	public static int[] improveCircuit(int[] circuit, int[] routeIds, Matrix matrix, int starts, int exactLimit,
+			int exactMillis) {
+		int[] ids = new int[circuit.length]; // Matrix ids, indexed by position in the circuit
+		int[] tour = new int[circuit.length]; // Circuit positions in tour order
+		long initialLength = 0;
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = routeIds[circuit[i]];
+			tour[i] = i;
+		}
+		for (int i = 0; i < ids.length; i++) {
+			initialLength += matrix.getDistance(ids[i], ids[(i + 1) % ids.length]);
 		}
 
-		// Add missing edges for nodes with less than 2 connections
-		List<String> nodesNeedingEdges = new ArrayList<>();
-		for (Map.Entry<String, Integer> entry : degreeCount.entrySet()) {
-			if (entry.getValue() < 2) {
-				nodesNeedingEdges.add(entry.getKey());
+		if (ids.length <= Math.min(exactLimit, HeldKarp.MAX_VERTICES)) {
+			int[] optimal = HeldKarp.solve(matrix, ids);
+			if (optimal != null) {
+				System.out.println("Held-Karp found the optimal circuit of " + HeldKarp.length(matrix, ids, optimal)
+						+ " units (heuristic circuit: " + initialLength + " units)");
+				return toRoute(circuit, optimal);
 			}
 		}
 
-		for (int i = 0; i < nodesNeedingEdges.size(); i++) {
-			String node1 = nodesNeedingEdges.get(i);
-			for (int j = i + 1; j < nodesNeedingEdges.size(); j++) {
-				String node2 = nodesNeedingEdges.get(j);
-				String edgeKey = node1 + "-" + node2;
-
-				// Ensure no duplicate or invalid connections
-				if (!seenEdges.contains(edgeKey) && degreeCount.get(node1) < 2 && degreeCount.get(node2) < 2) {
-					Vertex v1 = findVertex(mst, node1);
-					Vertex v2 = findVertex(mst, node2);
-					if (v1 != null && v2 != null) {
-						int distance = v1.getName().equals(v2.getName()) ? 1 : 2; // Example distance handling
-						Edge newEdge = new Edge(v1, v2, distance);
-						multigraph.add(newEdge);
-						seenEdges.add(edgeKey);
-						degreeCount.put(node1, degreeCount.get(node1) + 1);
-						degreeCount.put(node2, degreeCount.get(node2) + 1);
-					}
-				}
+		long improvedLength = LocalSearch.improve(matrix, ids, tour);
+		System.out.println("2-opt / Or-opt improved the circuit from " + initialLength + " to " + improvedLength
+				+ " units");
+		long linKernighanLength = LinKernighan.improve(matrix, ids, tour, LIN_KERNIGHAN_KICKS, 1);
+		System.out.println("Lin-Kernighan improved the circuit from " + improvedLength + " to " + linKernighanLength
+				+ " units");
+
+		if (starts > 1) {
+			// Try further Christofides starts and LK seeds in parallel and keep the shortest tour
+			ParallelSolver.Result best = ParallelSolver.solve(matrix, ids, starts);
+			System.out.println("Parallel multi-start (" + starts + " starts) found a circuit of " + best.getLength()
+					+ " units");
+			if (best.getLength() < linKernighanLength) {
+				tour = best.getTour();
 			}
 		}
 
-		// Validate that all nodes now have exactly 2 connections
-		for (String node : degreeCount.keySet()) {
-			if (degreeCount.get(node) != 2) {
-				System.err.println("Error: Node " + node + " still does not have exactly 2 connections.");
-			}
+		if (exactMillis > 0 && ids.length <= BranchAndBound.MAX_VERTICES) {
+			// Prove the tour optimal or find a shorter one within the time limit
+			BranchAndBound.Result exact = BranchAndBound.solve(matrix, ids, tour, exactMillis, ForkJoinPool.commonPool());
+			System.out.println("Branch and bound: circuit of " + exact.getLength() + " units, "
+					+ (exact.isOptimal() ? "proven optimal"
+							: String.format("lower bound %d (gap %.2f%%)", exact.getLowerBound(), 100 * exact.getGap()))
+					+ " after " + exact.getNodes() + " nodes");
+			tour = exact.getTour();
 		}
 
-		return multigraph;
+		return toRoute(circuit, tour);
 	}
 
-	// Helper function to find a vertex by name
-	private static Vertex findVertex(List<Vertex> vertices, String name) {
-		for (Vertex vertex : vertices) {
-			if (vertex.getName().equals(name)) {
-				return vertex;
-			}
+	// Improve a Hamiltonian Circuit of route positions with 2-opt / Or-opt and chained LK on the given number of
+	// workers until the deadline, and print the time and circuit length after each stage
+	public static int[] improveByDeadline(int[] circuit, int[] routeIds, Matrix matrix, int workers, Deadline deadline) {
+		int[] ids = new int[circuit.length]; // Matrix ids, indexed by position in the circuit
+		int[] tour = new int[circuit.length]; // Circuit positions in tour order
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = routeIds[circuit[i]];
+			tour[i] = i;
 		}
-		return null;
+		System.out.println("Christofides circuit ready with " + deadline.remainingMillis() + " ms left");
+		AnytimeSolver.Result result = AnytimeSolver.improve(matrix, ids, tour, deadline, workers);
+		for (AnytimeSolver.Stage stage : result.getStages()) {
+			System.out.println(stage);
+		}
+		System.out.println((result.isDeadlineReached() ? "Stopped at the deadline" : "Finished before the deadline")
+				+ " with a circuit of " + result.getLength() + " units after " + result.getKicks() + " kicks");
+		return toRoute(circuit, result.getTour());
 	}
 
-	// Create a Hamiltonian Circuit from the multigraph
-	public static List<Vertex> createHamiltonianCircuit(List<Edge> multigraph, List<Vertex> allVertices) {
-		List<Vertex> circuit = new ArrayList<>();
-		Set<Vertex> visited = new HashSet<>();
-
-		Vertex start = allVertices.get(0); // Start from the first vertex
-		circuit.add(start);
-		visited.add(start);
-
-		while (circuit.size() < allVertices.size()) {
-			boolean added = false;
-			for (Edge edge : multigraph) {
-				Vertex next = null;
-				if (edge.Owner.equals(circuit.get(circuit.size() - 1)) && !visited.contains(edge.Child)) {
-					next = edge.Child;
-				} else if (edge.Child.equals(circuit.get(circuit.size() - 1)) && !visited.contains(edge.Owner)) {
-					next = edge.Owner;
-				}
-
-				if (next != null) {
-					circuit.add(next);
-					visited.add(next);
-					added = true;
-					break;
-				}
-			}
-
-			// If no connected node can be added, find the next unvisited node
-			if (!added) {
-				for (Vertex v : allVertices) {
-					if (!visited.contains(v)) {
-						circuit.add(v);
-						visited.add(v);
-						break;
-					}
-				}
-			}
+	// Rotate an improved tour of circuit positions so that it still starts at the first vertex, as route positions
+	private static int[] toRoute(int[] circuit, int[] tour) {
+		int start = 0;
+		while (tour[start] != 0) {
+			start++;
 		}
-
-		return circuit;
+		int[] improved = new int[tour.length];
+		for (int i = 0; i < tour.length; i++) {
+			improved[i] = circuit[tour[(start + i) % tour.length]];
+		}
+		return improved;
 	}
 
 	// Print the optimal route (Hamiltonian Circuit)
-	private static void printOptimalRoute(List<Vertex> optimalRoute) {
-		System.out.print("Optimal Route (Hamiltonian Circuit): ");
-		for (Vertex vertex : optimalRoute) {
-			System.out.print(vertex.getName() + " -> "); // Print each vertex in the route
+	private static void printOptimalRoute(int[] optimalRoute, List<String> routeList) {
+		StringBuilder line = new StringBuilder("Optimal Route (Hamiltonian Circuit): ");
+		for (int vertex : optimalRoute) {
+			line.append(routeList.get(vertex)).append(" -> "); // Append each vertex in the route
 		}
-		System.out.println("End");
+		System.out.println(line.append("End"));
 	}
 
-	// Get the names of the vertices in a list
-	private static String getVertexNames(List<Vertex> vertices) {
+	// Get the names of route positions
+	private static String getVertexNames(int[] vertices, List<String> routeList) {
 		StringBuilder names = new StringBuilder();
-		for (Vertex v : vertices) {
-			names.append(v.getName()).append(" "); // Append each vertex name
+		for (int v : vertices) {
+			names.append(routeList.get(v)).append(" "); // Append each vertex name
 		}
 		return names.toString();
 	}
 
 	// Print edges with their details
-	private static void printEdges(List<Edge> edges) {
-		for (Edge edge : edges) {
-			if (edge == null || edge.Child == null || edge.Owner == null) {
-				System.out.println("Invalid edge detected. Skipping...");
-				continue; // Skip invalid edges
-			}
-			System.out.println("Edge from " + edge.Owner.getName() + " to " + edge.Child.getName() + " with weight "
-					+ edge.weight);
+	private static void printEdges(EdgeArrays edges, List<String> routeList) {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < edges.size(); i++) {
+			lines.append("Edge from ").append(routeList.get(edges.getFrom(i))).append(" to ")
+					.append(routeList.get(edges.getTo(i))).append(" with weight ").append(edges.getWeight(i))
+					.append(System.lineSeparator());
 		}
+		System.out.print(lines);
 	}
-
-	private static List<Edge> getUniqueEdges(List<Vertex> vertices) {
-		Set<String> seenEdges = new HashSet<>(); // To track processed edges
-		List<Edge> uniqueEdges = new ArrayList<>(); // To store unique edges
-
-		for (Vertex vertex : vertices) {
-			for (Edge edge : vertex.connectedVertices) {
-				String edgeKey = edge.Owner.getName() + "-" + edge.Child.getName();
-				String reverseKey = edge.Child.getName() + "-" + edge.Owner.getName();
-
-				if (!seenEdges.contains(edgeKey) && !seenEdges.contains(reverseKey)) {
-					uniqueEdges.add(edge); // Add edge if it's not a duplicate
-					seenEdges.add(edgeKey); // Mark the edge as processed
-				}
-			}
-		}
-
-		return uniqueEdges;
-	}
-
-	// Helper function to create a consistent edge key
-	private static String createEdgeKey(Vertex v1, Vertex v2) {
-		if (v1.getName().compareTo(v2.getName()) < 0) {
-			return v1.getName() + "-" + v2.getName();
-		} else {
-			return v2.getName() + "-" + v1.getName();
-		}
-	}
-
 }
@@ -3,6 +3,11 @@ package TSP;
 import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,7 +16,17 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
 public class Matrix {
-	private Map<String, Map<String, Integer>> adjacencyMatrix; // Stores adjacency matrix
+	static final int MAX_SIZE = 46340; // Largest node count whose row-major index from * size + to fits in an int
+
+	private final String[] names; // Node names, indexed by node id
+	private final Map<String, Integer> nodeIds; // Maps each node name to its id
+	private final int[] distances; // Row-major distances, Integer.MAX_VALUE where no connection exists
+	private final IntBuffer mappedDistances; // Row-major distances of a memory-mapped matrix, null when on heap
+	private final int size; // Number of nodes
+	private final Matrix viewOf; // Matrix whose content this view shares, null for an original
+	private final long epoch; // Number of update batches applied since the matrix was loaded
+	private volatile long version; // Content hash, 0 until first computed
+	private volatile Boolean symmetric; // Whether every distance equals its reverse, null until first checked
 
 	public Matrix(String filePath) throws IOException {
 		// Initialize Gson for reading JSON
@@ -19,31 +34,303 @@ public class Matrix {
 		Type matrixType = new TypeToken<Map<String, Map<String, Integer>>>() {
 		}.getType();
 
+		Map<String, Map<String, Integer>> adjacencyMatrix;
 		try (FileReader reader = new FileReader(filePath)) {
 			adjacencyMatrix = gson.fromJson(reader, matrixType); // Load adjacency matrix from the JSON file
 		}
+		if (adjacencyMatrix == null) {
+			throw new IOException("Adjacency matrix file is empty: " + filePath);
+		}
+
+		// Assign ids in file order
+		size = checkSize(adjacencyMatrix.size());
+		names = adjacencyMatrix.keySet().toArray(new String[0]);
+		nodeIds = createNodeIds(names);
+
+		// Copy the nested maps into the flat distance array once
+		distances = new int[size * size];
+		Arrays.fill(distances, Integer.MAX_VALUE);
+		for (int from = 0; from < size; from++) {
+			for (Map.Entry<String, Integer> entry : adjacencyMatrix.get(names[from]).entrySet()) {
+				Integer to = nodeIds.get(entry.getKey());
+				if (to != null && entry.getValue() != null) {
+					distances[from * size + to] = entry.getValue();
+				}
+			}
+		}
+		mappedDistances = null;
+		viewOf = null;
+		epoch = 0;
+	}
+
+	// Create a matrix from node names and row-major distances
+	Matrix(String[] names, int[] distances) {
+		if (distances.length != (long) names.length * names.length) {
+			throw new IllegalArgumentException("Expected " + names.length * names.length + " distances but got "
+					+ distances.length);
+		}
+		this.size = checkSize(names.length);
+		this.names = names.clone();
+		this.nodeIds = createNodeIds(this.names);
+		this.distances = distances;
+		this.mappedDistances = null;
+		this.viewOf = null;
+		this.epoch = 0;
+	}
+
+	// Create a matrix whose row-major distances live in a memory-mapped file
+	Matrix(String[] names, IntBuffer mappedDistances) {
+		if (mappedDistances.capacity() != (long) names.length * names.length) {
+			throw new IllegalArgumentException("Expected " + names.length * names.length + " distances but got "
+					+ mappedDistances.capacity());
+		}
+		this.size = checkSize(names.length);
+		this.names = names.clone();
+		this.nodeIds = createNodeIds(this.names);
+		this.distances = null;
+		this.mappedDistances = mappedDistances;
+		this.viewOf = null;
+		this.epoch = 0;
+	}
+
+	// Create a view that shares the names and distances of another matrix
+	Matrix(Matrix source) {
+		this.size = source.size;
+		this.names = source.names;
+		this.nodeIds = source.nodeIds;
+		this.distances = source.distances;
+		this.mappedDistances = source.mappedDistances;
+		this.viewOf = source.viewOf != null ? source.viewOf : source;
+		this.epoch = source.epoch;
+	}
+
+	// Create the next epoch of a matrix from its updated distances
+	private Matrix(Matrix parent, int[] distances, long version, Boolean symmetric) {
+		this.size = parent.size;
+		this.names = parent.names;
+		this.nodeIds = parent.nodeIds;
+		this.distances = distances;
+		this.mappedDistances = null;
+		this.viewOf = null;
+		this.epoch = parent.epoch + 1;
+		this.version = version;
+		this.symmetric = symmetric;
+	}
+
+	/**
+	 * Returns a copy of this matrix with some distances replaced. This matrix is
+	 * left unchanged, so threads still reading it keep a consistent snapshot. The
+	 * copy is one array copy of the distances, and its version is derived from
+	 * this version and the changes instead of hashing the whole matrix again.
+	 *
+	 * @param changes New distance of each changed connection between matrix ids,
+	 *                Integer.MAX_VALUE to remove it; a later change of the same
+	 *                connection wins.
+	 * @return The updated matrix, one epoch later.
+	 * @throws IllegalArgumentException If a change names an unknown node id or
+	 *                                  gives a node a nonzero distance to itself.
+	 */
+	public Matrix withDistances(EdgeArrays changes) {
+		Matrix source = viewOf != null ? viewOf : this;
+		int[] updated = new int[size * size];
+		if (source.distances != null) {
+			System.arraycopy(source.distances, 0, updated, 0, updated.length);
+		} else {
+			source.mappedDistances.get(0, updated); // Updated epochs live on the heap
+		}
+		long hash = source.getVersion();
+		for (int i = 0; i < changes.size(); i++) {
+			int from = changes.getFrom(i);
+			int to = changes.getTo(i);
+			if (from < 0 || from >= size || to < 0 || to >= size) {
+				throw new IllegalArgumentException("Unknown node id in change: " + from + " -> " + to);
+			}
+			if (from == to && changes.getWeight(i) != 0) { // Tours and shortest-path repairs rely on a zero diagonal
+				throw new IllegalArgumentException("Distance of node " + from + " to itself must stay 0");
+			}
+			updated[from * size + to] = changes.getWeight(i);
+			hash = (hash ^ ((long) from * size + to)) * 0x100000001b3L;
+			hash = (hash ^ changes.getWeight(i)) * 0x100000001b3L;
+		}
+		hash = (hash ^ (source.epoch + 1)) * 0x100000001b3L;
+		hash ^= hash >>> 29;
+
+		// A symmetric matrix stays symmetric if every changed connection still matches its reverse
+		Boolean symmetric = Boolean.TRUE.equals(source.symmetric) ? Boolean.TRUE : null;
+		for (int i = 0; i < changes.size() && symmetric != null; i++) {
+			int from = changes.getFrom(i);
+			int to = changes.getTo(i);
+			if (updated[from * size + to] != updated[to * size + from]) {
+				symmetric = Boolean.FALSE;
+			}
+		}
+		return new Matrix(source, updated, hash == 0 ? 1 : hash, symmetric);
+	}
+
+	// Reject node counts whose row-major index would overflow
+	private static int checkSize(int size) {
+		if (size > MAX_SIZE) {
+			throw new IllegalArgumentException("Matrix with " + size + " nodes exceeds the limit of " + MAX_SIZE);
+		}
+		return size;
+	}
+
+	// Map node names to ids, keeping the id order
+	private static Map<String, Integer> createNodeIds(String[] names) {
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		for (int i = 0; i < names.length; i++) {
+			ids.put(names[i], i);
+		}
+		return ids;
 	}
 
 	// Retrieve distance between two nodes
 	public int getDistance(String from, String to) {
-		Map<String, Integer> distancesFrom = adjacencyMatrix.get(from); // Get distances for the starting node
-		if (distancesFrom == null || distancesFrom.get(to) == null) {
+		Integer fromId = nodeIds.get(from); // Get the id of the starting node
+		Integer toId = nodeIds.get(to); // Get the id of the target node
+		if (fromId == null || toId == null) {
 			return Integer.MAX_VALUE; // Return max value if no connection exists
 		}
-		return distancesFrom.get(to); // Return the distance to the target node
+		return getDistance(fromId.intValue(), toId.intValue()); // Return the distance to the target node
+	}
+
+	// Retrieve distance between two node ids, Integer.MAX_VALUE if no connection exists
+	public int getDistance(int from, int to) {
+		if (distances != null) {
+			return distances[from * size + to];
+		}
+		return mappedDistances.get(from * size + to); // Absolute reads are safe to share between threads
+	}
+
+	// Retrieve the weight of the undirected edge between two node ids: the lighter of both directions
+	public int getUndirectedDistance(int a, int b) {
+		return Math.min(getDistance(a, b), getDistance(b, a));
+	}
+
+	/**
+	 * Checks whether every distance equals the distance in the opposite
+	 * direction, computed on first use. Engines that treat the matrix as
+	 * undirected read only one direction of each pair when it is.
+	 *
+	 * @return True if the matrix is symmetric.
+	 */
+	public boolean isSymmetric() {
+		if (viewOf != null) {
+			return viewOf.isSymmetric(); // Views share the content of their source
+		}
+		Boolean result = symmetric;
+		if (result == null) {
+			result = checkSymmetric();
+			symmetric = result;
+		}
+		return result;
+	}
+
+	// Compare the cells above the diagonal with their mirror images, in square blocks to keep column reads cached
+	private boolean checkSymmetric() {
+		final int block = 64;
+		for (int rowStart = 0; rowStart < size; rowStart += block) {
+			int rowEnd = Math.min(size, rowStart + block);
+			for (int colStart = rowStart; colStart < size; colStart += block) {
+				int colEnd = Math.min(size, colStart + block);
+				for (int i = rowStart; i < rowEnd; i++) {
+					for (int j = Math.max(colStart, i + 1); j < colEnd; j++) {
+						if (cell(i * size + j) != cell(j * size + i)) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	// Read a row-major cell without going through getDistance, which views may count
+	private int cell(int index) {
+		return distances != null ? distances[index] : mappedDistances.get(index);
+	}
+
+	// Get the id of a node, or -1 if the node is unknown
+	public int getId(String name) {
+		Integer id = nodeIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	// Get the ids of several nodes
+	public int[] getIds(List<String> names) {
+		int[] ids = new int[names.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = getId(names.get(i));
+			if (ids[i] < 0) {
+				throw new IllegalArgumentException("Unknown node: " + names.get(i));
+			}
+		}
+		return ids;
+	}
+
+	// Get the name of a node id
+	public String getName(int id) {
+		return names[id];
+	}
+
+	// Get the matrix whose content this one shares: the source of a view, otherwise the matrix itself. Caches
+	// key by it, so that a view such as the lookup-counting matrix of SolveMetrics finds the tables of its source
+	Matrix getSource() {
+		return viewOf != null ? viewOf : this;
+	}
+
+	// Get the number of update batches applied since the matrix was loaded, 0 for a loaded matrix
+	public long getEpoch() {
+		return epoch;
+	}
+
+	// Get the number of nodes in the matrix
+	public int size() {
+		return size;
 	}
 
 	// Get all nodes in the matrix
 	public Set<String> getNodes() {
-		return adjacencyMatrix.keySet(); // Return all keys (nodes) in the adjacency matrix
+		return Collections.unmodifiableSet(nodeIds.keySet()); // Return all nodes in id order
+	}
+
+	/**
+	 * Returns a 64-bit hash of the node names and distances, computed on first
+	 * use. Matrices with different content get different versions with
+	 * overwhelming probability, so caches can key results by it. Updated copies
+	 * from {@link #withDistances} hash their changes into the version instead.
+	 *
+	 * @return The content hash, never 0.
+	 */
+	public long getVersion() {
+		if (viewOf != null) {
+			return viewOf.getVersion(); // Views share the content of their source
+		}
+		long hash = version;
+		if (hash == 0) {
+			hash = 0xcbf29ce484222325L;
+			for (String name : names) {
+				hash = (hash ^ name.hashCode()) * 0x100000001b3L;
+			}
+			int cells = size * size;
+			for (int i = 0; i < cells; i++) {
+				hash = (hash ^ cell(i)) * 0x100000001b3L;
+			}
+			hash ^= hash >>> 29;
+			version = hash == 0 ? 1 : hash;
+			hash = version;
+		}
+		return hash;
 	}
 
 	// Print the adjacency matrix
 	public void printMatrix() {
-		for (String from : adjacencyMatrix.keySet()) { // Iterate over all source nodes
-			System.out.println("From " + from + ":");
-			for (String to : adjacencyMatrix.get(from).keySet()) { // Iterate over target nodes for each source
-				System.out.println("  To " + to + " = " + adjacencyMatrix.get(from).get(to) + " units");
+		for (int from = 0; from < size; from++) { // Iterate over all source nodes
+			System.out.println("From " + names[from] + ":");
+			for (int to = 0; to < size; to++) { // Iterate over target nodes for each source
+				int distance = getDistance(from, to);
+				System.out.println("  To " + names[to] + " = "
+						+ (distance == Integer.MAX_VALUE ? "null" : String.valueOf(distance)) + " units");
 			}
 		}
 	}
@@ -0,0 +1,208 @@
+package TSP;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary format for distance matrices.
+ *
+ * <p>
+ * Layout, all values little-endian:
+ *
+ * <pre>
+ * int    magic        'TSPM'
+ * int    version      format version, currently 1
+ * int    nodeCount    number of nodes n
+ * int    namesLength  byte length of the node-name table
+ * byte[] names        n entries of (unsigned short length, UTF-8 bytes), padded to 4 bytes
+ * int[]  distances    n * n row-major distances, Integer.MAX_VALUE where no connection exists
+ * </pre>
+ *
+ * The distance block is memory-mapped on load, so opening a file only reads the
+ * header and the name table, and processes that open the same file share the
+ * page cache.
+ */
+public class MatrixFile {
+	static final int MAGIC = 0x4D505354; // "TSPM" when read as little-endian bytes
+	static final int VERSION = 1; // Current format version
+	private static final int HEADER_BYTES = 16; // Magic, version, node count and names length
+
+	private MatrixFile() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Loads a binary matrix file, mapping the distance block into memory.
+	 *
+	 * @param filePath Path of the binary matrix file.
+	 * @return A matrix backed by the mapped file.
+	 * @throws IOException If the file cannot be read or is not a valid matrix file.
+	 */
+	public static Matrix load(String filePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				throw new IOException("Matrix file is truncated: " + filePath);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			header.flip();
+
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a binary matrix file: " + filePath);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported matrix file version " + version + ": " + filePath);
+			}
+			int nodeCount = header.getInt();
+			int namesLength = header.getInt();
+			if (nodeCount < 0 || namesLength < 0 || nodeCount > Matrix.MAX_SIZE) {
+				throw new IOException("Corrupt matrix file header: " + filePath);
+			}
+
+			// Check the sizes against the file before allocating anything for them
+			long offset = HEADER_BYTES + (long) namesLength;
+			long distanceBytes = (long) nodeCount * nodeCount * Integer.BYTES;
+			if (offset + distanceBytes > channel.size()) {
+				throw new IOException("Matrix file is truncated: " + filePath);
+			}
+			if (distanceBytes > Integer.MAX_VALUE) {
+				throw new IOException("Matrix with " + nodeCount + " nodes is too large to map: " + filePath);
+			}
+
+			// Read the node-name table
+			ByteBuffer nameTable = ByteBuffer.allocate(namesLength).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, nameTable, HEADER_BYTES);
+			nameTable.flip();
+			String[] names = new String[nodeCount];
+			for (int i = 0; i < nodeCount; i++) {
+				int length = nameTable.remaining() < Short.BYTES ? -1 : nameTable.getShort() & 0xFFFF;
+				if (length < 0 || length > nameTable.remaining()) {
+					throw new IOException("Corrupt node-name table at node " + i + ": " + filePath);
+				}
+				byte[] bytes = new byte[length];
+				nameTable.get(bytes);
+				names[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			// Map the distance block; the mapping stays valid after the channel is closed
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, distanceBytes);
+			IntBuffer distances = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			return new Matrix(names, distances);
+		}
+	}
+
+	/**
+	 * Writes a matrix in the binary format.
+	 *
+	 * @param matrix   The matrix to write.
+	 * @param filePath Path of the file to create or overwrite.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void write(Matrix matrix, String filePath) throws IOException {
+		int nodeCount = matrix.size();
+
+		// Encode the node-name table
+		byte[][] encodedNames = new byte[nodeCount][];
+		int namesLength = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			encodedNames[i] = matrix.getName(i).getBytes(StandardCharsets.UTF_8);
+			if (encodedNames[i].length > 0xFFFF) {
+				throw new IOException("Node name is too long: " + matrix.getName(i));
+			}
+			namesLength += Short.BYTES + encodedNames[i].length;
+		}
+		namesLength = (namesLength + 3) & ~3; // Keep the distance block aligned to 4 bytes
+
+		Path path = Paths.get(filePath);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + namesLength).order(ByteOrder.LITTLE_ENDIAN);
+			head.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(namesLength);
+			for (byte[] name : encodedNames) {
+				head.putShort((short) name.length).put(name);
+			}
+			head.position(head.capacity()); // Include the padding bytes
+			head.flip();
+			writeFully(channel, head);
+
+			// Write the distances one row at a time
+			ByteBuffer row = ByteBuffer.allocate(nodeCount * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			for (int from = 0; from < nodeCount; from++) {
+				row.clear();
+				for (int to = 0; to < nodeCount; to++) {
+					row.putInt(matrix.getDistance(from, to));
+				}
+				row.flip();
+				writeFully(channel, row);
+			}
+		}
+	}
+
+	/**
+	 * Opens a matrix in either format: files ending in ".bin" are mapped as
+	 * binary matrix files, everything else is read as a JSON adjacency matrix.
+	 *
+	 * @param filePath Path of the matrix file.
+	 * @return The loaded matrix.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static Matrix open(String filePath) throws IOException {
+		return filePath.endsWith(".bin") ? load(filePath) : new Matrix(filePath);
+	}
+
+	/**
+	 * Converts a JSON adjacency matrix into the binary format.
+	 *
+	 * @param jsonPath   Path of the JSON adjacency matrix.
+	 * @param binaryPath Path of the binary file to create.
+	 * @throws IOException If either file cannot be accessed.
+	 */
+	public static void convert(String jsonPath, String binaryPath) throws IOException {
+		write(new Matrix(jsonPath), binaryPath);
+	}
+
+	// Command-line converter: MatrixFile <input.json> <output.bin>
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: MatrixFile <input.json> <output.bin>");
+			System.exit(2);
+		}
+		try {
+			long startTime = System.nanoTime();
+			convert(args[0], args[1]);
+			Matrix matrix = load(args[1]); // Verify the written file can be mapped again
+			System.out.println("Converted " + matrix.size() + " nodes to " + args[1] + " in "
+					+ (System.nanoTime() - startTime) / 1_000_000 + " ms");
+		} catch (IOException e) {
+			System.err.println("Error converting adjacency matrix file: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// Read until the buffer is full
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of matrix file");
+			}
+			position += read;
+		}
+	}
+
+	// Write the whole buffer
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package TSP;
+
+import java.util.Arrays;
+
+/**
+ * Undirected multigraph over the vertex indices {@code 0..n-1}, stored in int
+ * arrays. Parallel edges are kept, which is what the Christofides union of MST
+ * and matching needs.
+ *
+ * <p>
+ * Provides the linear-time stages that turn the multigraph into a tour:
+ * Hierholzer's Eulerian circuit and shortcutting of repeated vertices.
+ */
+public class Multigraph {
+	private final int vertexCount; // Number of vertices
+	private int[] from = new int[16]; // First vertex of each edge
+	private int[] to = new int[16]; // Second vertex of each edge
+	private int[] weight = new int[16]; // Weight of each edge
+	private int edgeCount; // Number of edges
+	private final int[] degree; // Number of edge ends at each vertex
+
+	public Multigraph(int vertexCount) {
+		this.vertexCount = vertexCount;
+		this.degree = new int[vertexCount];
+	}
+
+	// Add an undirected edge; parallel edges are allowed
+	public void addEdge(int u, int v, int w) {
+		if (edgeCount == from.length) {
+			int capacity = edgeCount * 2;
+			from = Arrays.copyOf(from, capacity);
+			to = Arrays.copyOf(to, capacity);
+			weight = Arrays.copyOf(weight, capacity);
+		}
+		from[edgeCount] = u;
+		to[edgeCount] = v;
+		weight[edgeCount] = w;
+		edgeCount++;
+		degree[u]++;
+		degree[v]++;
+	}
+
+	// Get the number of vertices
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	// Get the number of edges
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	// Get the degree of a vertex, counting parallel edges and both ends of a loop
+	public int getDegree(int vertex) {
+		return degree[vertex];
+	}
+
+	// Get the first vertex of an edge
+	public int getFrom(int edge) {
+		return from[edge];
+	}
+
+	// Get the second vertex of an edge
+	public int getTo(int edge) {
+		return to[edge];
+	}
+
+	// Get the weight of an edge
+	public int getWeight(int edge) {
+		return weight[edge];
+	}
+
+	/**
+	 * Builds an Eulerian circuit with Hierholzer's algorithm in O(V + E). When
+	 * the graph is not Eulerian, the result is the longest closed walk the
+	 * algorithm finds from the start and some edges stay unused.
+	 *
+	 * @param start Vertex the circuit starts and ends at.
+	 * @return The vertices of the circuit, including the start again at the end.
+	 */
+	public int[] eulerianCircuit(int start) {
+		// Compressed adjacency: the edge ids incident to vertex v are at offsets[v]..offsets[v + 1]
+		int[] offsets = new int[vertexCount + 1];
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] = offsets[v] + degree[v];
+		}
+		int[] incident = new int[2 * edgeCount];
+		int[] fill = Arrays.copyOf(offsets, vertexCount);
+		for (int e = 0; e < edgeCount; e++) {
+			incident[fill[from[e]]++] = e;
+			incident[fill[to[e]]++] = e;
+		}
+
+		boolean[] used = new boolean[edgeCount]; // Edges already walked
+		int[] next = Arrays.copyOf(offsets, vertexCount); // Next adjacency slot to try at each vertex
+		int[] stack = new int[edgeCount + 1]; // Current trail
+		int[] circuit = new int[edgeCount + 1]; // Finished circuit, filled back to front
+		int stackSize = 0;
+		int circuitSize = 0;
+
+		stack[stackSize++] = start;
+		while (stackSize > 0) {
+			int v = stack[stackSize - 1];
+			// Skip edges already walked from the other end
+			while (next[v] < offsets[v + 1] && used[incident[next[v]]]) {
+				next[v]++;
+			}
+			if (next[v] == offsets[v + 1]) {
+				circuit[circuitSize++] = v; // Dead end: the vertex is final in the circuit
+				stackSize--;
+			} else {
+				int e = incident[next[v]++];
+				used[e] = true;
+				stack[stackSize++] = from[e] == v ? to[e] : from[e];
+			}
+		}
+
+		// The circuit was collected in reverse order
+		int[] result = new int[circuitSize];
+		for (int i = 0; i < circuitSize; i++) {
+			result[i] = circuit[circuitSize - 1 - i];
+		}
+		return result;
+	}
+
+	/**
+	 * Shortcuts a closed walk into a Hamiltonian cycle by keeping only the first
+	 * visit of every vertex, in O(length) with a bitset. Vertices the walk never
+	 * reached are appended in index order.
+	 *
+	 * @param walk        Closed walk over vertex indices.
+	 * @param vertexCount Number of vertices the cycle must contain.
+	 * @return Every vertex exactly once, in tour order; the start is not repeated.
+	 */
+	public static int[] shortcut(int[] walk, int vertexCount) {
+		long[] visited = new long[(vertexCount + 63) >>> 6];
+		int[] tour = new int[vertexCount];
+		int size = 0;
+		for (int v : walk) {
+			long bit = 1L << v;
+			if ((visited[v >>> 6] & bit) == 0) {
+				visited[v >>> 6] |= bit;
+				tour[size++] = v;
+			}
+		}
+		for (int v = 0; v < vertexCount && size < vertexCount; v++) {
+			if ((visited[v >>> 6] & (1L << v)) == 0) {
+				tour[size++] = v; // Not connected to the rest of the multigraph
+			}
+		}
+		return tour;
+	}
+
+	// Build the Eulerian circuit from the start and shortcut it into a tour
+	public int[] hamiltonianCycle(int start) {
+		return shortcut(eulerianCircuit(start), vertexCount);
+	}
+}
@@ -0,0 +1,57 @@
+package TSP;
+
+/**
+ * Candidate lists holding the k nearest connected vertices of every vertex.
+ * Local search and matching only look at these pairs, which keeps their inner
+ * loops independent of the number of vertices.
+ */
+public class NeighborLists {
+
+	private NeighborLists() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Computes the k nearest connected vertices of every vertex in O(n^2 + n k),
+	 * keeping a small sorted buffer per row instead of sorting whole rows.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param k      Number of neighbors per vertex.
+	 * @return For each local vertex, its nearest neighbors, closest first.
+	 */
+	public static int[][] nearest(Matrix matrix, int[] ids, int k) {
+		int n = ids.length;
+		int limit = Math.max(0, Math.min(k, n - 1));
+		int[][] neighbors = new int[n][];
+		int[] bestVertex = new int[limit];
+		int[] bestDistance = new int[limit];
+
+		for (int v = 0; v < n; v++) {
+			int count = 0;
+			int from = ids[v];
+			for (int w = 0; w < n; w++) {
+				if (w == v) {
+					continue;
+				}
+				int distance = matrix.getDistance(from, ids[w]);
+				if (distance == Integer.MAX_VALUE || (count == limit && distance >= bestDistance[limit - 1])) {
+					continue; // Missing connection or not among the closest so far
+				}
+				// Insert into the sorted buffer, dropping the farthest entry when full
+				int slot = count < limit ? count++ : limit - 1;
+				while (slot > 0 && bestDistance[slot - 1] > distance) {
+					bestDistance[slot] = bestDistance[slot - 1];
+					bestVertex[slot] = bestVertex[slot - 1];
+					slot--;
+				}
+				bestDistance[slot] = distance;
+				bestVertex[slot] = w;
+			}
+			int[] row = new int[count];
+			System.arraycopy(bestVertex, 0, row, 0, count);
+			neighbors[v] = row;
+		}
+		return neighbors;
+	}
+}
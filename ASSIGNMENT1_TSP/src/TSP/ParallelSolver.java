@@ -0,0 +1,136 @@
+package TSP;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Multi-start tour construction on a {@link ForkJoinPool}.
+ *
+ * <p>
+ * Every start shortcuts the shared Christofides multigraph from a different
+ * vertex and improves the result with 2-opt / Or-opt and chained LK under its
+ * own seed. The matrix, multigraph and neighbor lists are built once and only
+ * read by the tasks; each task allocates its own tour, position and queue
+ * arrays, so the tasks share no mutable state and the best tour is picked while
+ * joining.
+ */
+public class ParallelSolver {
+	static final int KICKS = 50; // Double-bridge kicks per start
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final int[] ids; // Matrix id of each local vertex
+	private final Multigraph graph; // Christofides multigraph shared by all starts
+	private final int[][] neighbors; // Nearest neighbors of each local vertex
+	private final int kicks; // Double-bridge kicks per start
+
+	/**
+	 * Prepares the shared, read-only data for a multi-start run.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param kicks  Double-bridge kicks applied after each start reaches a local optimum.
+	 */
+	public ParallelSolver(Matrix matrix, int[] ids, int kicks) {
+		this.matrix = matrix;
+		this.ids = ids;
+		this.kicks = kicks;
+		this.graph = Christofides.multigraph(matrix, ids);
+		this.neighbors = NeighborLists.nearest(matrix, ids, LinKernighan.NEIGHBORS);
+	}
+
+	/**
+	 * Solves with the given number of starts on the common pool.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param starts Number of tours to construct.
+	 * @return The shortest tour found.
+	 */
+	public static Result solve(Matrix matrix, int[] ids, int starts) {
+		return new ParallelSolver(matrix, ids, KICKS).solve(starts, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Builds and improves one tour per start in parallel and keeps the shortest.
+	 * Ties go to the lower start, so the result does not depend on scheduling.
+	 *
+	 * @param starts Number of tours to construct, at least 1.
+	 * @param pool   Pool that runs the starts.
+	 * @return The shortest tour found.
+	 */
+	public Result solve(int starts, ForkJoinPool pool) {
+		if (ids.length == 0) {
+			return new Result(new int[0], 0, 0);
+		}
+		return pool.invoke(new StartRange(0, Math.max(1, starts), Math.max(1, starts)));
+	}
+
+	// Build and improve the tour of one start
+	Result run(int start, int starts) {
+		int n = ids.length;
+		int root = (int) ((long) start * n / starts); // Spread the roots over the vertex indices
+		int[] tour = graph.hamiltonianCycle(root);
+		new LocalSearch(matrix, ids, tour, neighbors).run();
+		LinKernighan lk = new LinKernighan(matrix, ids, tour, neighbors);
+		lk.optimize(kicks, new Random(start));
+		return new Result(lk.getTour(0), lk.getLength(), start);
+	}
+
+	// Splits a range of starts in halves until single starts remain
+	private final class StartRange extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+		private final int from; // First start of the range
+		private final int to; // One past the last start of the range
+		private final int starts; // Total number of starts
+
+		StartRange(int from, int to, int starts) {
+			this.from = from;
+			this.to = to;
+			this.starts = starts;
+		}
+
+		@Override
+		protected Result compute() {
+			if (to - from == 1) {
+				return run(from, starts);
+			}
+			int middle = (from + to) >>> 1;
+			StartRange left = new StartRange(from, middle, starts);
+			left.fork();
+			Result right = new StartRange(middle, to, starts).compute();
+			Result best = left.join();
+			return right.length < best.length ? right : best;
+		}
+	}
+
+	/**
+	 * Tour found by one start.
+	 */
+	public static final class Result {
+		private final int[] tour; // Local vertices in tour order, starting at vertex 0
+		private final long length; // Length of the closed tour
+		private final int start; // Start that produced the tour
+
+		Result(int[] tour, long length, int start) {
+			this.tour = tour;
+			this.length = length;
+			this.start = start;
+		}
+
+		// Get the local vertices in tour order, starting at vertex 0
+		public int[] getTour() {
+			return tour.clone();
+		}
+
+		// Get the length of the closed tour
+		public long getLength() {
+			return length;
+		}
+
+		// Get the start that produced the tour
+		public int getStart() {
+			return start;
+		}
+	}
+}
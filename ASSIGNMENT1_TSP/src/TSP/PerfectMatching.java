@@ -0,0 +1,886 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Minimum-weight perfect matching on a set of vertices of a {@link Matrix}.
+ *
+ * <p>
+ * Up to {@link #BLOSSOM_LIMIT} vertices the matching is exact: Edmonds' blossom
+ * algorithm with dual variable updates, run on the k-nearest candidate pairs
+ * first. The final duals price out every pair left out, and pairs that would
+ * improve the matching are added before solving again, so the result is optimal
+ * for the complete graph. Larger sets use a greedy matching over the candidate
+ * pairs followed by improving pair swaps, which runs in near-linear time.
+ *
+ * <p>
+ * All methods work on local vertex indices {@code 0..n-1} and return the mate of
+ * every vertex, -1 for vertices that could not be matched because their
+ * connections are missing.
+ */
+public class PerfectMatching {
+	static final int BLOSSOM_LIMIT = 3000; // Largest vertex set matched exactly
+	static final int CANDIDATES = 10; // Nearest neighbors in the candidate pairs
+
+	private PerfectMatching() {
+		// Prevent instantiation as this is a utility class
+	}
+
+	/**
+	 * Computes a minimum-weight perfect matching of the given vertices.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @return The mate of each local vertex, -1 if unmatched.
+	 */
+	public static int[] minimumWeight(Matrix matrix, int[] ids) {
+		return ids.length <= BLOSSOM_LIMIT ? blossom(matrix, ids) : greedy(matrix, ids);
+	}
+
+	/**
+	 * Exact minimum-weight perfect matching with Edmonds' blossom algorithm,
+	 * solved on candidate pairs and repaired until the duals prove optimality.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @return The mate of each local vertex, -1 if unmatched.
+	 */
+	public static int[] blossom(Matrix matrix, int[] ids) {
+		int n = ids.length;
+		int maxWeight = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				int distance = matrix.getDistance(ids[i], ids[j]);
+				if (distance != Integer.MAX_VALUE) {
+					maxWeight = Math.max(maxWeight, distance);
+				}
+			}
+		}
+
+		// Start from the k-nearest candidate pairs; for small sets this is already the complete graph
+		BitSet included = new BitSet(n * n); // Pairs i < j in the current edge set, bit i * n + j
+		int[][] candidates = NeighborLists.nearest(matrix, ids, CANDIDATES);
+		for (int v = 0; v < n; v++) {
+			for (int w : candidates[v]) {
+				included.set(Math.min(v, w) * n + Math.max(v, w));
+			}
+		}
+
+		while (true) {
+			// Build the edge arrays of the current edge set
+			int edgeCount = included.cardinality();
+			int[] from = new int[edgeCount];
+			int[] to = new int[edgeCount];
+			long[] weight = new long[edgeCount];
+			int k = 0;
+			for (int bit = included.nextSetBit(0); bit >= 0; bit = included.nextSetBit(bit + 1)) {
+				from[k] = bit / n;
+				to[k] = bit % n;
+				// A maximum-cardinality matching of maximum (maxWeight - distance) is a minimum perfect matching;
+				// doubling keeps all dual variables integral
+				weight[k] = 2L * (maxWeight - matrix.getDistance(ids[from[k]], ids[to[k]]));
+				k++;
+			}
+			Blossom solver = new Blossom(n, from, to, weight);
+			int[] mate = solver.solve();
+
+			// Price out the pairs left out: the matching is optimal if the duals stay feasible for all of them
+			boolean added = false;
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					int distance = matrix.getDistance(ids[i], ids[j]);
+					if (distance == Integer.MAX_VALUE || included.get(i * n + j)) {
+						continue;
+					}
+					// Unmatched vertices may gain a partner through any of their connections
+					if (mate[i] == -1 || mate[j] == -1
+							|| solver.fullSlack(i, j, 2L * (maxWeight - distance)) < 0) {
+						included.set(i * n + j);
+						added = true;
+					}
+				}
+			}
+			if (!added) {
+				return mate;
+			}
+		}
+	}
+
+	/**
+	 * Near-linear matching for large vertex sets: greedy over k-nearest candidate
+	 * pairs, then pair swaps while they shorten the matching.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @return The mate of each local vertex, -1 if unmatched.
+	 */
+	public static int[] greedy(Matrix matrix, int[] ids) {
+		int n = ids.length;
+		int[][] candidates = NeighborLists.nearest(matrix, ids, CANDIDATES);
+
+		// Sort all candidate pairs by weight, packed as (weight << 32 | pair index)
+		int pairCount = 0;
+		for (int[] list : candidates) {
+			pairCount += list.length;
+		}
+		long[] pairs = new long[pairCount];
+		int[] pairFrom = new int[pairCount];
+		int[] pairTo = new int[pairCount];
+		int p = 0;
+		for (int v = 0; v < n; v++) {
+			for (int w : candidates[v]) {
+				pairFrom[p] = v;
+				pairTo[p] = w;
+				pairs[p] = ((long) matrix.getDistance(ids[v], ids[w]) << 32) | p;
+				p++;
+			}
+		}
+		Arrays.parallelSort(pairs);
+
+		// Greedily take the cheapest pairs whose endpoints are both free
+		int[] mate = new int[n];
+		Arrays.fill(mate, -1);
+		for (long pair : pairs) {
+			int index = (int) pair;
+			int v = pairFrom[index];
+			int w = pairTo[index];
+			if (mate[v] == -1 && mate[w] == -1) {
+				mate[v] = w;
+				mate[w] = v;
+			}
+		}
+
+		// Pair up the vertices left over, each with its nearest free partner
+		int[] free = new int[n];
+		int freeCount = 0;
+		for (int v = 0; v < n; v++) {
+			if (mate[v] == -1) {
+				free[freeCount++] = v;
+			}
+		}
+		for (int i = 0; i < freeCount; i++) {
+			int v = free[i];
+			if (mate[v] != -1) {
+				continue;
+			}
+			int best = -1;
+			int bestDistance = Integer.MAX_VALUE;
+			for (int j = i + 1; j < freeCount; j++) {
+				int w = free[j];
+				int distance = matrix.getDistance(ids[v], ids[w]);
+				if (mate[w] == -1 && distance < bestDistance) {
+					bestDistance = distance;
+					best = w;
+				}
+			}
+			if (best != -1) {
+				mate[v] = best;
+				mate[best] = v;
+			}
+		}
+
+		improveBySwaps(matrix, ids, candidates, mate);
+		return mate;
+	}
+
+	// Replace pairs (a, b), (c, d) by (a, c), (b, d) or (a, d), (b, c) while that is cheaper
+	static void improveBySwaps(Matrix matrix, int[] ids, int[][] candidates, int[] mate) {
+		boolean improved = true;
+		for (int pass = 0; pass < 50 && improved; pass++) {
+			improved = false;
+			for (int a = 0; a < mate.length; a++) {
+				int b = mate[a];
+				if (b == -1) {
+					continue;
+				}
+				for (int c : candidates[a]) {
+					int d = mate[c];
+					if (c == b || d == -1 || d == a) {
+						continue;
+					}
+					long current = weight(matrix, ids, a, b) + weight(matrix, ids, c, d);
+					long crossed = weight(matrix, ids, a, c) + weight(matrix, ids, b, d);
+					long other = weight(matrix, ids, a, d) + weight(matrix, ids, b, c);
+					if (crossed < current && crossed <= other) {
+						mate[a] = c;
+						mate[c] = a;
+						mate[b] = d;
+						mate[d] = b;
+						improved = true;
+						b = c; // a is now matched to c
+					} else if (other < current) {
+						mate[a] = d;
+						mate[d] = a;
+						mate[b] = c;
+						mate[c] = b;
+						improved = true;
+						b = d; // a is now matched to d
+					}
+				}
+			}
+		}
+	}
+
+	// Distance between two local vertices, widened so sums of missing connections stay ordered
+	private static long weight(Matrix matrix, int[] ids, int a, int b) {
+		return matrix.getDistance(ids[a], ids[b]);
+	}
+
+	/**
+	 * Maximum-weight, maximum-cardinality matching with Edmonds' blossom
+	 * algorithm and the primal-dual method. Endpoint {@code p} of the edge list
+	 * refers to vertex {@code p % 2 == 0 ? from[p / 2] : to[p / 2]}.
+	 */
+	private static final class Blossom {
+		private final int n; // Number of vertices
+		private final int[] from; // First vertex of each edge
+		private final int[] to; // Second vertex of each edge
+		private final long[] weight; // Weight of each edge
+		private final int[][] neighborEnds; // Remote endpoints of the edges at each vertex
+
+		private final int[] mate; // Remote endpoint of the matched edge of each vertex, -1 if single
+		private final int[] label; // 0 free, 1 S-vertex, 2 T-vertex, 5 marked while scanning
+		private final int[] labelEnd; // Endpoint through which a vertex or blossom got its label
+		private final int[] inBlossom; // Top-level blossom of each vertex
+		private final int[] blossomParent; // Immediate parent of each blossom, -1 if top level
+		private final int[][] blossomChilds; // Sub-blossoms of each blossom, in cycle order
+		private final int[] blossomBase; // Base vertex of each blossom, -1 if unused
+		private final int[][] blossomEnds; // Endpoints of the edges connecting the sub-blossoms
+		private final int[] bestEdge; // Least-slack edge to a different S-blossom
+		private final int[][] blossomBestEdges; // Least-slack edges to neighboring S-blossoms
+		private final long[] dualVar; // Dual variables of vertices and blossoms
+		private final boolean[] allowEdge; // Edges known to have zero slack
+		private final IntStack unusedBlossoms = new IntStack(); // Free blossom ids
+		private final IntStack queue = new IntStack(); // S-vertices still to scan
+
+		Blossom(int n, int[] from, int[] to, long[] weight) {
+			this.n = n;
+			this.from = from;
+			this.to = to;
+			this.weight = weight;
+
+			// Build the endpoint lists of every vertex
+			int[] degree = new int[n];
+			for (int k = 0; k < from.length; k++) {
+				degree[from[k]]++;
+				degree[to[k]]++;
+			}
+			neighborEnds = new int[n][];
+			for (int v = 0; v < n; v++) {
+				neighborEnds[v] = new int[degree[v]];
+				degree[v] = 0;
+			}
+			for (int k = 0; k < from.length; k++) {
+				neighborEnds[from[k]][degree[from[k]]++] = 2 * k + 1;
+				neighborEnds[to[k]][degree[to[k]]++] = 2 * k;
+			}
+
+			long maxWeight = 0;
+			for (long w : weight) {
+				maxWeight = Math.max(maxWeight, w);
+			}
+
+			mate = new int[n];
+			label = new int[2 * n];
+			labelEnd = new int[2 * n];
+			inBlossom = new int[n];
+			blossomParent = new int[2 * n];
+			blossomChilds = new int[2 * n][];
+			blossomBase = new int[2 * n];
+			blossomEnds = new int[2 * n][];
+			bestEdge = new int[2 * n];
+			blossomBestEdges = new int[2 * n][];
+			dualVar = new long[2 * n];
+			allowEdge = new boolean[from.length];
+
+			Arrays.fill(mate, -1);
+			Arrays.fill(labelEnd, -1);
+			Arrays.fill(blossomParent, -1);
+			Arrays.fill(blossomBase, -1);
+			Arrays.fill(bestEdge, -1);
+			for (int v = 0; v < n; v++) {
+				inBlossom[v] = v;
+				blossomBase[v] = v;
+				dualVar[v] = maxWeight;
+			}
+			for (int b = 2 * n - 1; b >= n; b--) {
+				unusedBlossoms.push(b);
+			}
+		}
+
+		// Vertex at an edge endpoint
+		private int endpoint(int p) {
+			return (p & 1) == 0 ? from[p >> 1] : to[p >> 1];
+		}
+
+		// Reduced cost of an edge
+		private long slack(int k) {
+			return dualVar[from[k]] + dualVar[to[k]] - 2 * weight[k];
+		}
+
+		// Collect the vertices contained in a blossom
+		private void leaves(int b, IntStack out) {
+			if (b < n) {
+				out.push(b);
+			} else {
+				for (int child : blossomChilds[b]) {
+					leaves(child, out);
+				}
+			}
+		}
+
+		// Label a vertex S (1) or T (2) and, for T, label the mate of its base S
+		private void assignLabel(int w, int t, int p) {
+			while (true) {
+				int b = inBlossom[w];
+				label[w] = label[b] = t;
+				labelEnd[w] = labelEnd[b] = p;
+				bestEdge[w] = bestEdge[b] = -1;
+				if (t == 1) {
+					leaves(b, queue); // Every vertex of a new S-blossom must be scanned
+					return;
+				}
+				int base = blossomBase[b];
+				p = mate[base] ^ 1;
+				w = endpoint(mate[base]);
+				t = 1;
+			}
+		}
+
+		// Trace back from v and w to find a new blossom base, or -1 for an augmenting path
+		private int scanBlossom(int v, int w) {
+			IntStack path = new IntStack();
+			int base = -1;
+			while (v != -1 || w != -1) {
+				int b = inBlossom[v];
+				if ((label[b] & 4) != 0) {
+					base = blossomBase[b];
+					break;
+				}
+				path.push(b);
+				label[b] = 5;
+				if (labelEnd[b] == -1) {
+					v = -1; // Reached the root of the tree
+				} else {
+					v = endpoint(labelEnd[b]);
+					b = inBlossom[v];
+					v = endpoint(labelEnd[b]);
+				}
+				if (w != -1) {
+					int swap = v;
+					v = w;
+					w = swap;
+				}
+			}
+			for (int i = 0; i < path.size; i++) {
+				label[path.items[i]] = 1;
+			}
+			return base;
+		}
+
+		// Create a blossom with the given base through edge k
+		private void addBlossom(int base, int k) {
+			int v = from[k];
+			int w = to[k];
+			int bb = inBlossom[base];
+			int bv = inBlossom[v];
+			int bw = inBlossom[w];
+			int b = unusedBlossoms.pop();
+			blossomBase[b] = base;
+			blossomParent[b] = -1;
+			blossomParent[bb] = b;
+
+			// Walk from v and from w back to the base
+			IntStack pathV = new IntStack();
+			IntStack endsV = new IntStack();
+			while (bv != bb) {
+				blossomParent[bv] = b;
+				pathV.push(bv);
+				endsV.push(labelEnd[bv]);
+				v = endpoint(labelEnd[bv]);
+				bv = inBlossom[v];
+			}
+			IntStack path = new IntStack();
+			IntStack ends = new IntStack();
+			path.push(bb);
+			for (int i = pathV.size - 1; i >= 0; i--) {
+				path.push(pathV.items[i]);
+				ends.push(endsV.items[i]);
+			}
+			ends.push(2 * k);
+			while (bw != bb) {
+				blossomParent[bw] = b;
+				path.push(bw);
+				ends.push(labelEnd[bw] ^ 1);
+				w = endpoint(labelEnd[bw]);
+				bw = inBlossom[w];
+			}
+			blossomChilds[b] = path.toArray();
+			blossomEnds[b] = ends.toArray();
+
+			label[b] = 1;
+			labelEnd[b] = labelEnd[bb];
+			dualVar[b] = 0;
+
+			// Former T-vertices become S-vertices and need scanning
+			IntStack members = new IntStack();
+			leaves(b, members);
+			for (int i = 0; i < members.size; i++) {
+				int leaf = members.items[i];
+				if (label[inBlossom[leaf]] == 2) {
+					queue.push(leaf);
+				}
+				inBlossom[leaf] = b;
+			}
+
+			// Compute the least-slack edges to neighboring S-blossoms
+			int[] bestEdgeTo = new int[2 * n];
+			Arrays.fill(bestEdgeTo, -1);
+			for (int child : blossomChilds[b]) {
+				if (blossomBestEdges[child] == null) {
+					IntStack childLeaves = new IntStack();
+					leaves(child, childLeaves);
+					for (int i = 0; i < childLeaves.size; i++) {
+						for (int p : neighborEnds[childLeaves.items[i]]) {
+							considerBestEdge(b, p >> 1, bestEdgeTo);
+						}
+					}
+				} else {
+					for (int edge : blossomBestEdges[child]) {
+						considerBestEdge(b, edge, bestEdgeTo);
+					}
+				}
+				blossomBestEdges[child] = null;
+				bestEdge[child] = -1;
+			}
+			IntStack bestEdges = new IntStack();
+			for (int edge : bestEdgeTo) {
+				if (edge != -1) {
+					bestEdges.push(edge);
+				}
+			}
+			blossomBestEdges[b] = bestEdges.toArray();
+			bestEdge[b] = -1;
+			for (int edge : blossomBestEdges[b]) {
+				if (bestEdge[b] == -1 || slack(edge) < slack(bestEdge[b])) {
+					bestEdge[b] = edge;
+				}
+			}
+		}
+
+		// Record edge k as a candidate least-slack edge from blossom b
+		private void considerBestEdge(int b, int k, int[] bestEdgeTo) {
+			int j = inBlossom[to[k]] == b ? from[k] : to[k];
+			int bj = inBlossom[j];
+			if (bj != b && label[bj] == 1 && (bestEdgeTo[bj] == -1 || slack(k) < slack(bestEdgeTo[bj]))) {
+				bestEdgeTo[bj] = k;
+			}
+		}
+
+		// Child of blossom b at a cyclic position
+		private int child(int b, int j) {
+			int length = blossomChilds[b].length;
+			return blossomChilds[b][((j % length) + length) % length];
+		}
+
+		// Connecting endpoint of blossom b at a cyclic position
+		private int end(int b, int j) {
+			int length = blossomEnds[b].length;
+			return blossomEnds[b][((j % length) + length) % length];
+		}
+
+		// Position of a child within its parent blossom
+		private int indexOf(int b, int child) {
+			int[] childs = blossomChilds[b];
+			for (int i = 0; i < childs.length; i++) {
+				if (childs[i] == child) {
+					return i;
+				}
+			}
+			throw new IllegalStateException("Blossom " + b + " does not contain " + child);
+		}
+
+		// Dissolve a blossom into its sub-blossoms
+		private void expandBlossom(int b, boolean endStage) {
+			for (int s : blossomChilds[b]) {
+				blossomParent[s] = -1;
+				if (s < n) {
+					inBlossom[s] = s;
+				} else if (endStage && dualVar[s] == 0) {
+					expandBlossom(s, endStage); // Recursively expand zero-dual sub-blossoms
+				} else {
+					IntStack members = new IntStack();
+					leaves(s, members);
+					for (int i = 0; i < members.size; i++) {
+						inBlossom[members.items[i]] = s;
+					}
+				}
+			}
+
+			// Relabel the sub-blossoms of an expanded T-blossom to keep the tree alternating
+			if (!endStage && label[b] == 2) {
+				int entryChild = inBlossom[endpoint(labelEnd[b] ^ 1)];
+				int j = indexOf(b, entryChild);
+				int jStep;
+				int endTrick;
+				if ((j & 1) != 0) {
+					j -= blossomChilds[b].length; // Go forward and wrap
+					jStep = 1;
+					endTrick = 0;
+				} else {
+					jStep = -1; // Go backward
+					endTrick = 1;
+				}
+				int p = labelEnd[b];
+				while (j != 0) {
+					label[endpoint(p ^ 1)] = 0;
+					label[endpoint(end(b, j - endTrick) ^ endTrick ^ 1)] = 0;
+					assignLabel(endpoint(p ^ 1), 2, p);
+					allowEdge[end(b, j - endTrick) >> 1] = true;
+					j += jStep;
+					p = end(b, j - endTrick) ^ endTrick;
+					allowEdge[p >> 1] = true;
+					j += jStep;
+				}
+				int bv = child(b, j);
+				label[endpoint(p ^ 1)] = label[bv] = 2;
+				labelEnd[endpoint(p ^ 1)] = labelEnd[bv] = p;
+				bestEdge[bv] = -1;
+				j += jStep;
+				while (child(b, j) != entryChild) {
+					bv = child(b, j);
+					if (label[bv] == 1) {
+						j += jStep; // Already labelled S through another path
+						continue;
+					}
+					IntStack members = new IntStack();
+					leaves(bv, members);
+					int labelled = -1;
+					for (int i = 0; i < members.size; i++) {
+						if (label[members.items[i]] != 0) {
+							labelled = members.items[i];
+							break;
+						}
+					}
+					if (labelled != -1) {
+						label[labelled] = 0;
+						label[endpoint(mate[blossomBase[bv]])] = 0;
+						assignLabel(labelled, 2, labelEnd[labelled]);
+					}
+					j += jStep;
+				}
+			}
+
+			// Recycle the blossom id
+			label[b] = labelEnd[b] = -1;
+			blossomChilds[b] = blossomEnds[b] = null;
+			blossomBase[b] = -1;
+			blossomBestEdges[b] = null;
+			bestEdge[b] = -1;
+			unusedBlossoms.push(b);
+		}
+
+		// Swap matched and unmatched edges along the even path inside blossom b from v to its base
+		private void augmentBlossom(int b, int v) {
+			int t = v;
+			while (blossomParent[t] != b) {
+				t = blossomParent[t];
+			}
+			if (t >= n) {
+				augmentBlossom(t, v);
+			}
+			int i = indexOf(b, t);
+			int j = i;
+			int jStep;
+			int endTrick;
+			if ((i & 1) != 0) {
+				j -= blossomChilds[b].length;
+				jStep = 1;
+				endTrick = 0;
+			} else {
+				jStep = -1;
+				endTrick = 1;
+			}
+			while (j != 0) {
+				j += jStep;
+				t = child(b, j);
+				int p = end(b, j - endTrick) ^ endTrick;
+				if (t >= n) {
+					augmentBlossom(t, endpoint(p));
+				}
+				j += jStep;
+				t = child(b, j);
+				if (t >= n) {
+					augmentBlossom(t, endpoint(p ^ 1));
+				}
+				mate[endpoint(p)] = p ^ 1;
+				mate[endpoint(p ^ 1)] = p;
+			}
+
+			// Rotate the children so that the new base comes first
+			blossomChilds[b] = rotate(blossomChilds[b], i);
+			blossomEnds[b] = rotate(blossomEnds[b], i);
+			blossomBase[b] = blossomBase[blossomChilds[b][0]];
+		}
+
+		// Rotate an array left by the given offset
+		private static int[] rotate(int[] values, int offset) {
+			int[] rotated = new int[values.length];
+			for (int i = 0; i < values.length; i++) {
+				rotated[i] = values[(i + offset) % values.length];
+			}
+			return rotated;
+		}
+
+		// Augment the matching along the path through edge k
+		private void augmentMatching(int k) {
+			for (int side = 0; side < 2; side++) {
+				int s = side == 0 ? from[k] : to[k];
+				int p = side == 0 ? 2 * k + 1 : 2 * k;
+				while (true) {
+					int bs = inBlossom[s];
+					if (bs >= n) {
+						augmentBlossom(bs, s);
+					}
+					mate[s] = p;
+					if (labelEnd[bs] == -1) {
+						break; // Reached a single vertex at the root of the tree
+					}
+					int t = endpoint(labelEnd[bs]);
+					int bt = inBlossom[t];
+					s = endpoint(labelEnd[bt]);
+					int j = endpoint(labelEnd[bt] ^ 1);
+					if (bt >= n) {
+						augmentBlossom(bt, j);
+					}
+					mate[j] = labelEnd[bt];
+					p = labelEnd[bt] ^ 1;
+				}
+			}
+		}
+
+		// Reduced cost of an edge including the duals of the blossoms that contain both endpoints
+		long fullSlack(int i, int j, long edgeWeight) {
+			long slack = dualVar[i] + dualVar[j] - 2 * edgeWeight;
+			int depthI = depth(i);
+			int depthJ = depth(j);
+			int bi = blossomParent[i];
+			int bj = blossomParent[j];
+			for (; depthI > depthJ; depthI--) {
+				bi = blossomParent[bi];
+			}
+			for (; depthJ > depthI; depthJ--) {
+				bj = blossomParent[bj];
+			}
+			while (bi != bj) {
+				bi = blossomParent[bi];
+				bj = blossomParent[bj];
+			}
+			for (int b = bi; b != -1; b = blossomParent[b]) {
+				slack += 2 * dualVar[b];
+			}
+			return slack;
+		}
+
+		// Number of blossoms containing a vertex
+		private int depth(int v) {
+			int depth = 0;
+			for (int b = blossomParent[v]; b != -1; b = blossomParent[b]) {
+				depth++;
+			}
+			return depth;
+		}
+
+		// Run the stages until no augmenting path is left
+		int[] solve() {
+			for (int stage = 0; stage < n; stage++) {
+				Arrays.fill(label, 0);
+				Arrays.fill(bestEdge, -1);
+				for (int b = n; b < 2 * n; b++) {
+					blossomBestEdges[b] = null;
+				}
+				Arrays.fill(allowEdge, false);
+				queue.clear();
+				for (int v = 0; v < n; v++) {
+					if (mate[v] == -1 && label[inBlossom[v]] == 0) {
+						assignLabel(v, 1, -1);
+					}
+				}
+
+				boolean augmented = false;
+				while (true) {
+					// Grow the alternating trees from the S-vertices in the queue
+					while (queue.size > 0 && !augmented) {
+						int v = queue.pop();
+						for (int p : neighborEnds[v]) {
+							int k = p >> 1;
+							int w = endpoint(p);
+							if (inBlossom[v] == inBlossom[w]) {
+								continue; // Edge inside a blossom
+							}
+							long kSlack = 0;
+							if (!allowEdge[k]) {
+								kSlack = slack(k);
+								if (kSlack <= 0) {
+									allowEdge[k] = true;
+								}
+							}
+							if (allowEdge[k]) {
+								if (label[inBlossom[w]] == 0) {
+									assignLabel(w, 2, p ^ 1); // Free vertex becomes T
+								} else if (label[inBlossom[w]] == 1) {
+									int base = scanBlossom(v, w);
+									if (base >= 0) {
+										addBlossom(base, k); // Odd cycle found
+									} else {
+										augmentMatching(k); // Augmenting path found
+										augmented = true;
+										break;
+									}
+								} else if (label[w] == 0) {
+									label[w] = 2; // T-blossom member reached through a tight edge
+									labelEnd[w] = p ^ 1;
+								}
+							} else if (label[inBlossom[w]] == 1) {
+								int b = inBlossom[v];
+								if (bestEdge[b] == -1 || kSlack < slack(bestEdge[b])) {
+									bestEdge[b] = k;
+								}
+							} else if (label[w] == 0) {
+								if (bestEdge[w] == -1 || kSlack < slack(bestEdge[w])) {
+									bestEdge[w] = k;
+								}
+							}
+						}
+					}
+					if (augmented) {
+						break;
+					}
+
+					// No tight edge left: find the smallest dual update
+					int deltaType = -1;
+					long delta = 0;
+					int deltaEdge = -1;
+					int deltaBlossom = -1;
+					for (int v = 0; v < n; v++) {
+						if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+							long d = slack(bestEdge[v]);
+							if (deltaType == -1 || d < delta) {
+								delta = d;
+								deltaType = 2;
+								deltaEdge = bestEdge[v];
+							}
+						}
+					}
+					for (int b = 0; b < 2 * n; b++) {
+						if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+							long d = slack(bestEdge[b]) / 2;
+							if (deltaType == -1 || d < delta) {
+								delta = d;
+								deltaType = 3;
+								deltaEdge = bestEdge[b];
+							}
+						}
+					}
+					for (int b = n; b < 2 * n; b++) {
+						if (blossomBase[b] >= 0 && blossomParent[b] == -1 && label[b] == 2
+								&& (deltaType == -1 || dualVar[b] < delta)) {
+							delta = dualVar[b];
+							deltaType = 4;
+							deltaBlossom = b;
+						}
+					}
+					if (deltaType == -1) {
+						// No further improvement possible; this ends the last stage
+						deltaType = 1;
+						long minDual = Long.MAX_VALUE;
+						for (int v = 0; v < n; v++) {
+							minDual = Math.min(minDual, dualVar[v]);
+						}
+						delta = Math.max(0, minDual);
+					}
+
+					// Update the dual variables
+					for (int v = 0; v < n; v++) {
+						int vertexLabel = label[inBlossom[v]];
+						if (vertexLabel == 1) {
+							dualVar[v] -= delta;
+						} else if (vertexLabel == 2) {
+							dualVar[v] += delta;
+						}
+					}
+					for (int b = n; b < 2 * n; b++) {
+						if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+							if (label[b] == 1) {
+								dualVar[b] += delta;
+							} else if (label[b] == 2) {
+								dualVar[b] -= delta;
+							}
+						}
+					}
+
+					// Act on the constraint that limited the update
+					if (deltaType == 1) {
+						break;
+					} else if (deltaType == 2) {
+						allowEdge[deltaEdge] = true;
+						int i = from[deltaEdge];
+						if (label[inBlossom[i]] == 0) {
+							i = to[deltaEdge];
+						}
+						queue.push(i);
+					} else if (deltaType == 3) {
+						allowEdge[deltaEdge] = true;
+						queue.push(from[deltaEdge]);
+					} else {
+						expandBlossom(deltaBlossom, false);
+					}
+				}
+
+				if (!augmented) {
+					break; // The matching is maximum
+				}
+
+				// Expand S-blossoms whose dual variable dropped to zero
+				for (int b = n; b < 2 * n; b++) {
+					if (blossomParent[b] == -1 && blossomBase[b] >= 0 && label[b] == 1 && dualVar[b] == 0) {
+						expandBlossom(b, true);
+					}
+				}
+			}
+
+			// Translate matched endpoints into mate vertices
+			int[] result = new int[n];
+			for (int v = 0; v < n; v++) {
+				result[v] = mate[v] == -1 ? -1 : endpoint(mate[v]);
+			}
+			return result;
+		}
+	}
+
+	// Growable int stack used by the blossom bookkeeping
+	private static final class IntStack {
+		int[] items = new int[16]; // Stored values
+		int size; // Number of stored values
+
+		void push(int value) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = value;
+		}
+
+		int pop() {
+			return items[--size];
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(items, size);
+		}
+	}
+}
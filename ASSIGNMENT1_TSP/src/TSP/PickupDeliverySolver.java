@@ -0,0 +1,410 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Open route from a fixed start to a fixed end that visits every pick-up zone
+ * before the drop-off zone it is paired with.
+ *
+ * <p>
+ * The i-th pick-up is paired with the i-th drop-off; zones without a partner
+ * are plain stops. Distances between stops are shortest-path distances, so two
+ * stops need no direct connection. The route is built by cheapest insertion of
+ * whole pairs and improved with node relocation, segment reversal (2-opt) and
+ * pair relocation. A position array gives the tour index of every stop, so each
+ * candidate move is checked against the precedence rules in O(1) instead of
+ * walking the route.
+ */
+public class PickupDeliverySolver {
+	static final int MAX_PASSES = 100; // Upper bound on improvement passes over the route
+
+	private final Matrix matrix; // Distances between matrix ids
+	private final RouteCache<Plan> cache; // Plans of earlier requests, null to solve every call
+	private final boolean allPairs; // Whether distances come from all-pairs tables rather than landmark searches
+
+	public PickupDeliverySolver(Matrix matrix) {
+		this(matrix, null);
+	}
+
+	public PickupDeliverySolver(Matrix matrix, RouteCache<Plan> cache) {
+		this.matrix = matrix;
+		this.cache = cache;
+		this.allPairs = RouteOptimizer.useAllPairs(matrix);
+	}
+
+	/**
+	 * Solves the route.
+	 *
+	 * @param start    Name of the first stop.
+	 * @param end      Name of the last stop.
+	 * @param pickups  Pick-up zones; pick-up i must come before drop-off i.
+	 * @param dropoffs Drop-off zones.
+	 * @return The stops in visiting order with the length of the route.
+	 * @throws IllegalArgumentException If a stop is unknown or not every stop can
+	 *                                  be reached in the required order.
+	 */
+	public Plan solve(String start, String end, List<String> pickups, List<String> dropoffs) {
+		int pairs = Math.min(pickups.size(), dropoffs.size());
+		List<String> names = new ArrayList<>();
+		names.add(start);
+		for (int r = 0; r < pairs; r++) {
+			names.add(pickups.get(r)); // Local stop 1 + 2r
+			names.add(dropoffs.get(r)); // Local stop 2 + 2r
+		}
+		names.addAll(pickups.subList(pairs, pickups.size()));
+		names.addAll(dropoffs.subList(pairs, dropoffs.size()));
+		names.add(end);
+
+		int[] ids = matrix.getIds(names); // Rejects unknown stops
+		RouteCache.Key key = null;
+		if (cache != null) {
+			key = RouteCache.Key.pickupDelivery(matrix, ids[0], ids[ids.length - 1], matrix.getIds(pickups),
+					matrix.getIds(dropoffs));
+			Plan cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		Search search = new Search(ids, pairs);
+		search.construct();
+		search.improve();
+		if (search.length() >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Not every stop can be reached in pick-up and drop-off order");
+		}
+
+		List<String> stops = new ArrayList<>(names.size());
+		for (int i = 0; i < search.size; i++) {
+			stops.add(names.get(search.path[i]));
+		}
+		Plan plan = new Plan(stops, search.length());
+		if (cache != null) {
+			cache.put(key, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Expands a plan into every node passed on the way, following the shortest
+	 * path between consecutive stops.
+	 *
+	 * @param plan A plan solved on this matrix.
+	 * @return Node names from start to end.
+	 */
+	public List<String> expand(Plan plan) {
+		List<String> route = new ArrayList<>();
+		List<String> stops = plan.getStops();
+		if (!stops.isEmpty()) {
+			route.add(stops.get(0));
+		}
+		for (int i = 0; i + 1 < stops.size(); i++) {
+			List<String> segment = RouteOptimizer.findShortestPath(stops.get(i), stops.get(i + 1), matrix);
+			route.addAll(segment.subList(1, segment.size())); // The segment repeats the previous stop
+		}
+		return route;
+	}
+
+	// Shortest-path distance between two matrix ids, Integer.MAX_VALUE if unreachable
+	private int shortestDistance(int from, int to) {
+		if (from == to) {
+			return 0;
+		}
+		if (allPairs) {
+			return AllPairsShortestPaths.forMatrix(matrix).getDistance(from, to);
+		}
+		return PointToPointSearch.forMatrix(matrix).alt(from, to).getDistance();
+	}
+
+	/**
+	 * Route under construction over local stops: 0 is the start, the last stop
+	 * the end, pair r has its pick-up at 1 + 2r and its drop-off at 2 + 2r.
+	 */
+	private final class Search {
+		final int k; // Number of local stops
+		final int pairs; // Number of pick-up and drop-off pairs
+		final long[] dist; // Row-major shortest distances between local stops
+		final int[] path; // Local stops in visiting order, first size entries used
+		final int[] position; // Index of each local stop in the path, -1 while not inserted
+		int size; // Number of stops in the path
+
+		Search(int[] ids, int pairs) {
+			this.k = ids.length;
+			this.pairs = pairs;
+			this.dist = new long[k * k];
+			for (int a = 0; a < k; a++) {
+				for (int b = 0; b < k; b++) {
+					dist[a * k + b] = a == b ? 0 : shortestDistance(ids[a], ids[b]);
+				}
+			}
+			this.path = new int[k];
+			this.position = new int[k];
+			Arrays.fill(position, -1);
+		}
+
+		// Distance between two local stops
+		long d(int a, int b) {
+			return dist[a * k + b];
+		}
+
+		// Partner of a paired stop, -1 for the start, the end and unpaired zones
+		int partner(int v) {
+			if (v == 0 || v > 2 * pairs) {
+				return -1;
+			}
+			return v % 2 == 1 ? v + 1 : v - 1;
+		}
+
+		// Whether a paired stop is the pick-up of its pair
+		boolean isPickup(int v) {
+			return v % 2 == 1;
+		}
+
+		// Length of the current path
+		long length() {
+			long total = 0;
+			for (int i = 0; i + 1 < size; i++) {
+				total += d(path[i], path[i + 1]);
+			}
+			return Math.min(total, Integer.MAX_VALUE);
+		}
+
+		// Cheapest insertion of the pairs, then of the unpaired zones, between the fixed start and end
+		void construct() {
+			path[0] = 0;
+			path[1] = k - 1;
+			size = 2;
+			position[0] = 0;
+			position[k - 1] = 1;
+			for (int r = 0; r < pairs; r++) {
+				insertPair(1 + 2 * r);
+			}
+			for (int v = 1 + 2 * pairs; v < k - 1; v++) {
+				insertSingle(v);
+			}
+		}
+
+		// Insert a pick-up and its drop-off where they add least, the pick-up first
+		void insertPair(int pickup) {
+			int dropoff = pickup + 1;
+			int edges = size - 1;
+			// Best drop-off edge at or after each edge, from the right
+			long[] suffixCost = new long[edges + 1];
+			int[] suffixEdge = new int[edges + 1];
+			suffixCost[edges] = Long.MAX_VALUE;
+			for (int j = edges - 1; j >= 0; j--) {
+				long cost = insertCost(j, dropoff);
+				boolean better = cost < suffixCost[j + 1];
+				suffixCost[j] = better ? cost : suffixCost[j + 1];
+				suffixEdge[j] = better ? j : suffixEdge[j + 1];
+			}
+
+			long best = Long.MAX_VALUE;
+			int bestPickupEdge = 0;
+			int bestDropoffEdge = 0; // Equal to the pick-up edge when the two stops are adjacent
+			for (int i = 0; i < edges; i++) {
+				long pickupCost = insertCost(i, pickup);
+				long adjacent = d(path[i], pickup) + d(pickup, dropoff) + d(dropoff, path[i + 1])
+						- d(path[i], path[i + 1]);
+				if (adjacent < best) {
+					best = adjacent;
+					bestPickupEdge = i;
+					bestDropoffEdge = i;
+				}
+				if (i + 1 < edges && pickupCost + suffixCost[i + 1] < best) {
+					best = pickupCost + suffixCost[i + 1];
+					bestPickupEdge = i;
+					bestDropoffEdge = suffixEdge[i + 1];
+				}
+			}
+			// Insert the later stop first so the earlier edge index stays valid
+			if (bestDropoffEdge == bestPickupEdge) {
+				insertAt(bestPickupEdge + 1, dropoff);
+				insertAt(bestPickupEdge + 1, pickup);
+			} else {
+				insertAt(bestDropoffEdge + 1, dropoff);
+				insertAt(bestPickupEdge + 1, pickup);
+			}
+		}
+
+		// Insert an unpaired zone on its cheapest edge
+		void insertSingle(int v) {
+			long best = Long.MAX_VALUE;
+			int bestEdge = 0;
+			for (int i = 0; i + 1 < size; i++) {
+				long cost = insertCost(i, v);
+				if (cost < best) {
+					best = cost;
+					bestEdge = i;
+				}
+			}
+			insertAt(bestEdge + 1, v);
+		}
+
+		// Added length of placing v between path[i] and path[i + 1]
+		long insertCost(int i, int v) {
+			return d(path[i], v) + d(v, path[i + 1]) - d(path[i], path[i + 1]);
+		}
+
+		// Improve with relocations, reversals and pair moves until none helps
+		void improve() {
+			boolean improved = true;
+			for (int pass = 0; pass < MAX_PASSES && improved; pass++) {
+				improved = false;
+				for (int v = 1; v < k - 1; v++) {
+					improved |= relocate(v);
+				}
+				for (int i = 0; i + 2 < size; i++) {
+					improved |= twoOpt(i);
+				}
+				for (int r = 0; r < pairs; r++) {
+					improved |= relocatePair(1 + 2 * r);
+				}
+			}
+		}
+
+		// Move one stop to the cheapest edge that keeps its pair in order
+		boolean relocate(int v) {
+			int a = position[v];
+			int prev = path[a - 1];
+			int next = path[a + 1];
+			long saved = d(prev, v) + d(v, next) - d(prev, next);
+			int partner = partner(v);
+			// Edges (m, m + 1) the stop may go to: before its drop-off or after its pick-up
+			int low = partner == -1 || isPickup(v) ? 0 : position[partner];
+			int high = partner == -1 || !isPickup(v) ? size - 2 : position[partner] - 1;
+
+			long bestGain = 0;
+			int bestEdge = -1;
+			for (int m = low; m <= high; m++) {
+				if (m == a - 1 || m == a) {
+					continue; // Edges touching the stop itself
+				}
+				long gain = saved - insertCost(m, v);
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestEdge = m;
+				}
+			}
+			if (bestEdge == -1) {
+				return false;
+			}
+			removeAt(a);
+			insertAt(bestEdge < a ? bestEdge + 1 : bestEdge, v);
+			return true;
+		}
+
+		/**
+		 * Reverses path[i + 1..j] for the best j. Growing the segment one stop at
+		 * a time keeps the cost of both directions and stops at the first pair
+		 * that would end up inside the segment, which makes every check O(1).
+		 */
+		boolean twoOpt(int i) {
+			int a = path[i];
+			long forward = 0; // Length of the segment in path order
+			long backward = 0; // Length of the segment walked in reverse
+			long bestGain = 0;
+			int bestJ = -1;
+			for (int j = i + 1; j + 1 < size; j++) {
+				int c = path[j];
+				int partner = partner(c);
+				if (partner != -1 && !isPickup(c) && position[partner] > i) {
+					break; // The pair would be reversed, and so would every longer segment
+				}
+				if (j > i + 1) {
+					forward += d(path[j - 1], c);
+					backward += d(c, path[j - 1]);
+				}
+				int b = path[i + 1];
+				int e = path[j + 1];
+				long gain = d(a, b) + forward + d(c, e) - d(a, c) - backward - d(b, e);
+				if (gain > bestGain) {
+					bestGain = gain;
+					bestJ = j;
+				}
+			}
+			if (bestJ == -1) {
+				return false;
+			}
+			for (int lo = i + 1, hi = bestJ; lo < hi; lo++, hi--) {
+				int swap = path[lo];
+				path[lo] = path[hi];
+				path[hi] = swap;
+			}
+			for (int p = i + 1; p <= bestJ; p++) {
+				position[path[p]] = p;
+			}
+			return true;
+		}
+
+		// Take a pair out and insert it again at its cheapest place
+		boolean relocatePair(int pickup) {
+			int dropoff = pickup + 1;
+			int[] savedPath = Arrays.copyOf(path, size);
+			long before = length();
+			removeAt(position[dropoff]);
+			removeAt(position[pickup]);
+			insertPair(pickup);
+			if (length() < before) {
+				return true;
+			}
+			System.arraycopy(savedPath, 0, path, 0, savedPath.length); // Not better: restore the old path
+			size = savedPath.length;
+			for (int p = 0; p < size; p++) {
+				position[path[p]] = p;
+			}
+			return false;
+		}
+
+		// Insert a stop at a path index, shifting the rest back
+		void insertAt(int index, int v) {
+			System.arraycopy(path, index, path, index + 1, size - index);
+			path[index] = v;
+			size++;
+			for (int p = index; p < size; p++) {
+				position[path[p]] = p;
+			}
+		}
+
+		// Remove the stop at a path index, shifting the rest forward
+		void removeAt(int index) {
+			position[path[index]] = -1;
+			System.arraycopy(path, index + 1, path, index, size - index - 1);
+			size--;
+			for (int p = index; p < size; p++) {
+				position[path[p]] = p;
+			}
+		}
+	}
+
+	/**
+	 * Solved open route: the stops in visiting order from start to end, and its
+	 * length along shortest paths.
+	 */
+	public static final class Plan {
+		private final List<String> stops; // Stops in visiting order, start and end included
+		private final long length; // Length of the open route
+
+		Plan(List<String> stops, long length) {
+			this.stops = Collections.unmodifiableList(stops);
+			this.length = length;
+		}
+
+		// Get the stops in visiting order, start and end included
+		public List<String> getStops() {
+			return stops;
+		}
+
+		// Get the length of the route along shortest paths
+		public long getLength() {
+			return length;
+		}
+
+		@Override
+		public String toString() {
+			return String.join(" -> ", stops);
+		}
+	}
+}
@@ -0,0 +1,605 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Goal-directed shortest-path queries between two nodes of a {@link Matrix}.
+ *
+ * <p>
+ * Three searches are offered: Dijkstra that stops once the target is settled,
+ * bidirectional Dijkstra that stops once the two frontiers cannot improve the
+ * best meeting point, and ALT, an A* search whose lower bounds come from
+ * precomputed distances to and from a few landmarks and the triangle
+ * inequality. ALT usually settles only the nodes close to the shortest path.
+ *
+ * <p>
+ * Sparse inputs are searched through a {@link SparseGraph}, so each settled node
+ * costs time in its degree rather than in the number of nodes. The landmark
+ * tables are built once and only read afterwards. Each thread gets
+ * its own scratch arrays, which are reset by bumping a version number instead of
+ * clearing them, so a query costs time in the nodes it touches, not in the size
+ * of the matrix.
+ */
+public class PointToPointSearch {
+	static final int LANDMARKS = 8; // Default number of landmarks
+
+	// Landmark tables already built, keyed by matrix or graph identity; the tables never reference their key
+	private static final Map<Object, Tables> TABLES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final Matrix matrix; // Distances between node ids, null when searching a graph
+	private final SparseGraph graph; // Outgoing edges of each node, null when searching a dense matrix
+	private final SparseGraph reverse; // Incoming edges of each node, null when searching a dense matrix
+	private final int n; // Number of nodes
+	private final Tables tables; // Landmarks and query buffers, shared by all searches of the same input
+
+	/**
+	 * Selects landmarks by farthest-point sampling and computes their distance
+	 * tables, one full Dijkstra per landmark and direction.
+	 *
+	 * @param matrix    The adjacency matrix.
+	 * @param landmarks Number of landmarks; more give tighter bounds but cost memory.
+	 */
+	public PointToPointSearch(Matrix matrix, int landmarks) {
+		this(matrix, null, null, new Tables(matrix.size(), landmarks));
+		selectLandmarks(isSymmetric(matrix));
+	}
+
+	/**
+	 * Selects landmarks by farthest-point sampling and computes their distance
+	 * tables over the edges of a sparse graph.
+	 *
+	 * @param graph     The graph in CSR form.
+	 * @param landmarks Number of landmarks; more give tighter bounds but cost memory.
+	 */
+	public PointToPointSearch(SparseGraph graph, int landmarks) {
+		this(null, graph, graph.transpose(), new Tables(graph.size(), landmarks));
+		if (reverse != graph) {
+			tables.reverse = reverse; // A separate copy, so the tables can keep it
+		}
+		selectLandmarks(reverse == graph);
+	}
+
+	// Create a search over tables that were already built for the same input
+	private PointToPointSearch(Matrix matrix, SparseGraph graph, SparseGraph reverse, Tables tables) {
+		this.matrix = matrix;
+		this.graph = graph;
+		this.reverse = reverse;
+		this.n = graph == null ? matrix.size() : graph.size();
+		this.tables = tables;
+	}
+
+	/**
+	 * Returns the search of a matrix with the default number of landmarks,
+	 * building its tables on first use. Sparse matrices are converted to a
+	 * {@link SparseGraph} once, so their queries only walk existing connections.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @return A search over the cached tables of this matrix.
+	 */
+	public static PointToPointSearch forMatrix(Matrix matrix) {
+		synchronized (TABLES) {
+			Tables tables = TABLES.get(matrix.getSource()); // Views such as counting matrices share their source's tables
+			if (tables != null) {
+				return over(matrix, tables);
+			}
+			PointToPointSearch search = create(matrix);
+			TABLES.put(matrix.getSource(), search.tables);
+			return search;
+		}
+	}
+
+	/**
+	 * Builds and caches the search of an updated matrix if the old matrix had
+	 * one, so the first query after an update does not pay for it. The landmark
+	 * tables hold exact distances, which any change can invalidate, so they are
+	 * computed again rather than repaired.
+	 *
+	 * @param old     The matrix before the update.
+	 * @param updated The matrix after the update.
+	 * @return The search of the updated matrix, or null if the old one had none.
+	 */
+	public static PointToPointSearch forUpdate(Matrix old, Matrix updated) {
+		if (!TABLES.containsKey(old.getSource())) {
+			return null;
+		}
+		PointToPointSearch search = create(updated); // Built outside the lock, so queries on other matrices go on
+		synchronized (TABLES) {
+			Tables existing = TABLES.putIfAbsent(updated.getSource(), search.tables);
+			return existing != null ? over(updated, existing) : search;
+		}
+	}
+
+	// Build the search of a matrix, over a sparse graph if the matrix is sparse
+	private static PointToPointSearch create(Matrix matrix) {
+		if (PrimsAlgorithm.isDense(matrix)) {
+			return new PointToPointSearch(matrix, LANDMARKS);
+		}
+		PointToPointSearch search = new PointToPointSearch(SparseGraph.forMatrix(matrix), LANDMARKS);
+		search.tables.graph = search.graph; // Converted from the matrix, so cached along with the tables
+		return search;
+	}
+
+	// Search a matrix with tables built for it, over the graph converted from it if it is sparse
+	private static PointToPointSearch over(Matrix matrix, Tables tables) {
+		if (tables.graph == null) {
+			return new PointToPointSearch(matrix, null, null, tables);
+		}
+		return over(tables.graph, tables);
+	}
+
+	// Search a graph with tables built for it
+	private static PointToPointSearch over(SparseGraph graph, Tables tables) {
+		return new PointToPointSearch(null, graph, tables.reverse != null ? tables.reverse : graph, tables);
+	}
+
+	/**
+	 * Returns the search of a graph with the default number of landmarks,
+	 * building its tables on first use.
+	 *
+	 * @param graph The graph in CSR form.
+	 * @return A search over the cached tables of this graph.
+	 */
+	public static PointToPointSearch forGraph(SparseGraph graph) {
+		synchronized (TABLES) {
+			Tables tables = TABLES.get(graph);
+			if (tables != null) {
+				return over(graph, tables);
+			}
+			PointToPointSearch search = new PointToPointSearch(graph, LANDMARKS);
+			TABLES.put(graph, search.tables);
+			return search;
+		}
+	}
+
+	// Get the node ids of the landmarks
+	public int[] getLandmarks() {
+		return tables.landmarks.clone();
+	}
+
+	/**
+	 * Dijkstra from the start that stops as soon as the target is settled.
+	 *
+	 * @param from Id of the start node.
+	 * @param to   Id of the target node.
+	 * @return The shortest path, its length and the number of settled nodes.
+	 */
+	public Result dijkstra(int from, int to) {
+		return search(from, to, false);
+	}
+
+	/**
+	 * A* with landmark lower bounds (ALT); stops as soon as the target is settled.
+	 *
+	 * @param from Id of the start node.
+	 * @param to   Id of the target node.
+	 * @return The shortest path, its length and the number of settled nodes.
+	 */
+	public Result alt(int from, int to) {
+		return search(from, to, true);
+	}
+
+	/**
+	 * Dijkstra from both ends at once, always advancing the side with the smaller
+	 * frontier key. It stops when the two smallest keys together reach the best
+	 * path found so far.
+	 *
+	 * @param from Id of the start node.
+	 * @param to   Id of the target node.
+	 * @return The shortest path, its length and the number of settled nodes.
+	 */
+	public Result bidirectional(int from, int to) {
+		Scratch s = tables.scratch.get();
+		s.reset();
+		long operations = s.forward.queue.getOperations() + s.backward.queue.getOperations();
+		s.forward.visit(from, 0, -1, 0);
+		s.backward.visit(to, 0, -1, 0);
+		s.best = from == to ? 0 : Long.MAX_VALUE;
+		s.meeting = from == to ? from : -1;
+		int settled = 0;
+
+		while (!s.forward.queue.isEmpty() && !s.backward.queue.isEmpty()) {
+			int topForward = s.forward.queue.getKey(s.forward.queue.peek());
+			int topBackward = s.backward.queue.getKey(s.backward.queue.peek());
+			if ((long) topForward + topBackward >= s.best) {
+				break; // Neither side can still find a shorter connection
+			}
+			boolean forwardSide = topForward <= topBackward;
+			Side side = forwardSide ? s.forward : s.backward;
+			Side other = forwardSide ? s.backward : s.forward;
+			int u = side.queue.poll();
+			side.settle(u);
+			settled++;
+
+			if (graph != null) {
+				SparseGraph edges = forwardSide ? graph : reverse;
+				for (int e = edges.begin(u); e < edges.end(u); e++) {
+					int v = edges.getTarget(e);
+					meet(s, other, v, relax(side, u, v, edges.getWeight(e), -1));
+				}
+			} else {
+				for (int v = 0; v < n; v++) {
+					int weight = forwardSide ? matrix.getDistance(u, v) : matrix.getDistance(v, u);
+					meet(s, other, v, relax(side, u, v, weight, -1));
+				}
+			}
+		}
+		SolveMetrics.current().addHeapOperations(
+				s.forward.queue.getOperations() + s.backward.queue.getOperations() - operations);
+
+		int meeting = s.meeting;
+		if (meeting == -1) {
+			return new Result(new int[] { to }, Integer.MAX_VALUE, settled);
+		}
+		// Forward predecessors lead back to the start, backward ones on to the target
+		int length = 0;
+		for (int at = meeting; at != -1; at = s.forward.pred[at]) {
+			length++;
+		}
+		for (int at = s.backward.pred[meeting]; at != -1; at = s.backward.pred[at]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int i = 0;
+		for (int at = meeting; at != -1; at = s.forward.pred[at]) {
+			path[i++] = at;
+		}
+		reverse(path, 0, i - 1);
+		for (int at = s.backward.pred[meeting]; at != -1; at = s.backward.pred[at]) {
+			path[i++] = at;
+		}
+		return new Result(path, (int) s.best, settled);
+	}
+
+	// Remember v as the meeting point if the path through it beats the best so far
+	private static void meet(Scratch s, Side other, int v, long candidate) {
+		if (candidate >= 0 && other.isSeen(v) && candidate + other.dist[v] < s.best) {
+			s.best = candidate + other.dist[v]; // The frontiers touch at v
+			s.meeting = v;
+		}
+	}
+
+	/**
+	 * Relaxes the edge from the settled node u to v.
+	 *
+	 * @param side   The search direction.
+	 * @param u      The settled node.
+	 * @param v      The neighbor.
+	 * @param weight Weight of the edge, Integer.MAX_VALUE if it does not exist.
+	 * @param target Target of a goal-directed search, -1 for plain Dijkstra.
+	 * @return The distance of v through u, -1 if the edge is missing or v is settled.
+	 */
+	private long relax(Side side, int u, int v, int weight, int target) {
+		if (weight == Integer.MAX_VALUE || side.isSettled(v)) {
+			return -1;
+		}
+		long candidate = (long) side.dist[u] + weight;
+		if (candidate < Integer.MAX_VALUE && (!side.isSeen(v) || candidate < side.dist[v])) {
+			int bound = target < 0 ? 0 : side.isSeen(v) ? side.bound[v] : lowerBound(v, target);
+			side.visit(v, (int) candidate, u, (int) Math.min(Integer.MAX_VALUE - 1, candidate + bound));
+		}
+		return candidate;
+	}
+
+	// Unidirectional search, with landmark bounds when goal-directed
+	private Result search(int from, int to, boolean goalDirected) {
+		Scratch s = tables.scratch.get();
+		s.reset();
+		Side side = s.forward;
+		long operations = side.queue.getOperations();
+		side.visit(from, 0, -1, goalDirected ? lowerBound(from, to) : 0);
+		int settled = 0;
+		boolean found = false;
+
+		while (!side.queue.isEmpty()) {
+			int u = side.queue.poll();
+			side.settle(u);
+			settled++;
+			if (u == to) {
+				found = true;
+				break; // Early exit: the target's distance is final
+			}
+			int target = goalDirected ? to : -1;
+			if (graph != null) {
+				for (int e = graph.begin(u); e < graph.end(u); e++) {
+					relax(side, u, graph.getTarget(e), graph.getWeight(e), target);
+				}
+			} else {
+				for (int v = 0; v < n; v++) {
+					relax(side, u, v, matrix.getDistance(u, v), target);
+				}
+			}
+		}
+		SolveMetrics.current().addHeapOperations(side.queue.getOperations() - operations);
+
+		if (!found) {
+			return new Result(new int[] { to }, Integer.MAX_VALUE, settled);
+		}
+		int length = 0;
+		for (int at = to; at != -1; at = side.pred[at]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int at = to;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = at;
+			at = side.pred[at];
+		}
+		return new Result(path, side.dist[to], settled);
+	}
+
+	// Lower bound on the distance from v to the target by the triangle inequality over all landmarks
+	int lowerBound(int v, int target) {
+		int bound = 0;
+		for (int l = 0; l < tables.landmarks.length; l++) {
+			int[] from = tables.fromLandmark[l];
+			int[] to = tables.toLandmark[l];
+			// d(L, t) - d(L, v) <= d(v, t)
+			if (from[v] != Integer.MAX_VALUE && from[target] != Integer.MAX_VALUE && from[target] - from[v] > bound) {
+				bound = from[target] - from[v];
+			}
+			// d(v, L) - d(t, L) <= d(v, t)
+			if (to[v] != Integer.MAX_VALUE && to[target] != Integer.MAX_VALUE && to[v] - to[target] > bound) {
+				bound = to[v] - to[target];
+			}
+		}
+		return bound;
+	}
+
+	// Pick each landmark as the node farthest from the landmarks chosen so far
+	private void selectLandmarks(boolean symmetric) {
+		int[] landmarks = tables.landmarks;
+		int[][] fromLandmark = tables.fromLandmark;
+		int[][] toLandmark = tables.toLandmark;
+		if (landmarks.length == 0) {
+			return;
+		}
+		int[] nearest = new int[n]; // Distance from the closest landmark so far, -1 if unreachable
+		int[] start = fullDijkstra(0, false);
+		int next = farthest(start, null);
+		Arrays.fill(nearest, Integer.MAX_VALUE);
+		for (int l = 0; l < landmarks.length; l++) {
+			landmarks[l] = next;
+			fromLandmark[l] = fullDijkstra(next, false);
+			toLandmark[l] = symmetric ? fromLandmark[l] : fullDijkstra(next, true);
+			for (int v = 0; v < n; v++) {
+				nearest[v] = Math.min(nearest[v], fromLandmark[l][v]);
+			}
+			next = farthest(nearest, landmarks);
+		}
+	}
+
+	// Node with the largest finite value, skipping chosen landmarks; 0 if all values are unreachable
+	private int farthest(int[] distance, int[] chosen) {
+		int best = 0;
+		int bestValue = -1;
+		for (int v = 0; v < n; v++) {
+			if (distance[v] != Integer.MAX_VALUE && distance[v] > bestValue && (chosen == null || !contains(chosen, v))) {
+				best = v;
+				bestValue = distance[v];
+			}
+		}
+		if (bestValue == -1) {
+			// Everything reachable is covered: use the next node that is not a landmark yet
+			for (int v = 0; v < n; v++) {
+				if (chosen == null || !contains(chosen, v)) {
+					return v;
+				}
+			}
+		}
+		return best;
+	}
+
+	// Dijkstra from one node to all others, following edges backwards if backwards is set
+	private int[] fullDijkstra(int source, boolean backwards) {
+		return graph != null ? heapDijkstra(backwards ? reverse : graph, source) : arrayDijkstra(source, backwards);
+	}
+
+	// Heap-based Dijkstra over the edges of a graph, O(E log V)
+	private static int[] heapDijkstra(SparseGraph edges, int source) {
+		int n = edges.size();
+		int[] dist = new int[n];
+		boolean[] settled = new boolean[n];
+		IndexedMinHeap queue = new IndexedMinHeap(n);
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		dist[source] = 0;
+		queue.insert(source, 0);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			settled[current] = true;
+			for (int e = edges.begin(current); e < edges.end(current); e++) {
+				int v = edges.getTarget(e);
+				long candidate = (long) dist[current] + edges.getWeight(e);
+				if (!settled[v] && candidate < dist[v]) {
+					dist[v] = (int) candidate;
+					queue.insertOrDecrease(v, dist[v]);
+				}
+			}
+		}
+		SolveMetrics.current().addHeapOperations(queue.getOperations());
+		return dist;
+	}
+
+	// Array-based Dijkstra over the whole matrix, O(V^2)
+	private int[] arrayDijkstra(int source, boolean backwards) {
+		int[] dist = new int[n];
+		boolean[] settled = new boolean[n];
+		Arrays.fill(dist, Integer.MAX_VALUE);
+		dist[source] = 0;
+		for (int round = 0; round < n; round++) {
+			int current = -1;
+			int best = Integer.MAX_VALUE;
+			for (int v = 0; v < n; v++) {
+				if (!settled[v] && dist[v] < best) {
+					best = dist[v];
+					current = v;
+				}
+			}
+			if (current == -1) {
+				break; // Remaining nodes are unreachable
+			}
+			settled[current] = true;
+			for (int v = 0; v < n; v++) {
+				int weight = backwards ? matrix.getDistance(v, current) : matrix.getDistance(current, v);
+				if (!settled[v] && weight != Integer.MAX_VALUE && (long) best + weight < dist[v]) {
+					dist[v] = best + weight;
+				}
+			}
+		}
+		return dist;
+	}
+
+	// Check whether every distance equals the distance in the other direction
+	private static boolean isSymmetric(Matrix matrix) {
+		int n = matrix.size();
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				if (matrix.getDistance(i, j) != matrix.getDistance(j, i)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// Check whether an array contains a value among its assigned landmark slots
+	private static boolean contains(int[] values, int value) {
+		for (int v : values) {
+			if (v == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Reverse a range of an array in place
+	private static void reverse(int[] values, int i, int j) {
+		while (i < j) {
+			int swap = values[i];
+			values[i++] = values[j];
+			values[j--] = swap;
+		}
+	}
+
+	// Landmark distances and per-thread query buffers of one input, without a reference to the input itself
+	private static final class Tables {
+		final int[] landmarks; // Node id of each landmark
+		final int[][] fromLandmark; // Shortest distance from each landmark to each node
+		final int[][] toLandmark; // Shortest distance from each node to each landmark
+		final ThreadLocal<Scratch> scratch; // Per-thread query buffers
+		SparseGraph graph; // Graph converted from a sparse matrix, null when the input is searched directly
+		SparseGraph reverse; // Incoming edges if they are a separate copy, null when the input is symmetric or dense
+
+		Tables(int n, int landmarks) {
+			int count = Math.max(0, Math.min(landmarks, n));
+			this.landmarks = new int[count];
+			this.fromLandmark = new int[count][];
+			this.toLandmark = new int[count][];
+			this.scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+		}
+	}
+
+	/**
+	 * Result of one query.
+	 */
+	public static final class Result {
+		private final int[] path; // Node ids from start to target, only the target if unreachable
+		private final int distance; // Length of the path, Integer.MAX_VALUE if unreachable
+		private final int settled; // Nodes whose distance became final during the search
+
+		Result(int[] path, int distance, int settled) {
+			this.path = path;
+			this.distance = distance;
+			this.settled = settled;
+		}
+
+		// Get the node ids from start to target; only the target if it is unreachable
+		public int[] getPath() {
+			return path.clone();
+		}
+
+		// Get the length of the path, Integer.MAX_VALUE if the target is unreachable
+		public int getDistance() {
+			return distance;
+		}
+
+		// Get the number of nodes settled by the search
+		public int getSettled() {
+			return settled;
+		}
+	}
+
+	// Query buffers of one thread, both search directions
+	private static final class Scratch {
+		final Side forward; // Search from the start
+		final Side backward; // Search from the target along reversed edges
+		long best; // Length of the best connection found by the bidirectional search
+		int meeting; // Node where that connection crosses from one side to the other, -1 if none
+
+		Scratch(int n) {
+			forward = new Side(n);
+			backward = new Side(n);
+		}
+
+		// Forget the previous query
+		void reset() {
+			forward.reset();
+			backward.reset();
+		}
+	}
+
+	// Labels and queue of one search direction; entries count only if stamped with the current version
+	private static final class Side {
+		final int[] dist; // Tentative distance from the search origin
+		final int[] pred; // Previous node on the search tree, -1 at the origin
+		final int[] bound; // Landmark lower bound of the node, for ALT
+		final int[] seen; // Version in which the node was reached
+		final int[] done; // Version in which the node was settled
+		final IndexedMinHeap queue; // Frontier ordered by key
+		int version; // Current query
+
+		Side(int n) {
+			dist = new int[n];
+			pred = new int[n];
+			bound = new int[n];
+			seen = new int[n];
+			done = new int[n];
+			queue = new IndexedMinHeap(n);
+		}
+
+		void reset() {
+			queue.clear();
+			if (++version == Integer.MAX_VALUE) {
+				// Start over before the stamps could repeat
+				Arrays.fill(seen, 0);
+				Arrays.fill(done, 0);
+				version = 1;
+			}
+		}
+
+		boolean isSeen(int v) {
+			return seen[v] == version;
+		}
+
+		boolean isSettled(int v) {
+			return done[v] == version;
+		}
+
+		void settle(int v) {
+			done[v] = version;
+		}
+
+		// Record a shorter distance and queue the node under the given key
+		void visit(int v, int distance, int previous, int key) {
+			if (!isSeen(v)) {
+				seen[v] = version;
+				bound[v] = key - distance;
+			}
+			dist[v] = distance;
+			pred[v] = previous;
+			queue.insertOrDecrease(v, key);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package TSP;
 import java.util.*;
 
 public class PrimsAlgorithm {
+	static final double DENSE_THRESHOLD = 0.25; // Fraction of connected pairs above which the array variant is used
 
 	private PrimsAlgorithm() {
 		// Prevent instantiation as this is a utility class
@@ -10,74 +11,264 @@ public class PrimsAlgorithm {
 
 	/**
 	 * Executes Prim's Algorithm to find the Minimum Spanning Tree (MST).
-	 * 
+	 *
 	 * @param unsortedList List of vertices to process.
 	 * @param matrix       The adjacency matrix for distances between vertices.
 	 * @param indexMap     A mapping of vertex names to their indices.
 	 * @return A list of vertices representing the MST.
 	 */
 	public static List<Vertex> run(List<Vertex> unsortedList, Matrix matrix, Map<String, Integer> indexMap) {
-		Comparator<Vertex> compareMethod = new VertexComparator(); // Comparator for sorting vertices
-		final Vertex baseVertex = unsortedList.get(0); // Start with the first vertex as the base
-
-		// Initialize edges for all vertices based on their distance to the base vertex
-		unsortedList.forEach(vertex -> {
-			int distance = matrix.getDistance(baseVertex.getName(), vertex.getName()); // Calculate distance to base
-																						// vertex
-			vertex.edge = new Edge(vertex, baseVertex, distance); // Assign edge with the calculated distance
-		});
-		Collections.sort(unsortedList, compareMethod); // Sort vertices by edge weight
-
-		List<Vertex> sortedList = new ArrayList<>(); // List to hold vertices in MST order
-		Set<String> addedEdges = new HashSet<>(); // Track edges to prevent duplicates
-
-		while (!unsortedList.isEmpty()) {
-			Vertex pointConnected = unsortedList.get(0); // Get the vertex with the smallest edge weight
-			Edge parentEdge = pointConnected.edge; // Store the parent edge
-			String edgeKey = getEdgeKey(parentEdge); // Generate a unique key for the edge
-
-			if (!addedEdges.contains(edgeKey)) {
-				pointConnected.connectedVertices.add(parentEdge); // Add the edge to its connections
-				addedEdges.add(edgeKey); // Mark the edge as added
+		if (unsortedList.isEmpty()) {
+			return new ArrayList<>(); // Nothing to connect
+		}
+
+		int[] ids = resolveIds(unsortedList, matrix);
+		SpanningTree tree = isDense(matrix, ids) ? dense(matrix, ids, 0) : heap(matrix, ids, 0);
+		return toVertices(tree, unsortedList); // Return the vertices in the order they joined the MST
+	}
+
+	/**
+	 * Array-based Prim for dense matrices, O(V^2) time and O(V) extra memory. Like
+	 * every MST engine, it weighs an edge with the lighter of its two directions;
+	 * on a symmetric matrix only the row of each tree vertex is read.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param root   Local index of the vertex the tree grows from.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree dense(Matrix matrix, int[] ids, int root) {
+		int n = ids.length;
+		int[] parent = new int[n];
+		int[] key = new int[n]; // Cheapest known connection of each vertex to the tree
+		int[] order = new int[n];
+		boolean[] inTree = new boolean[n];
+		Arrays.fill(parent, -1);
+		Arrays.fill(key, Integer.MAX_VALUE);
+		key[root] = 0;
+		boolean symmetric = matrix.isSymmetric(); // Checked once per matrix
+
+		for (int step = 0; step < n; step++) {
+			// Pick the vertex with the cheapest connection; start a new root if none is reachable
+			int current = -1;
+			for (int v = 0; v < n; v++) {
+				if (!inTree[v] && (current == -1 || key[v] < key[current])) {
+					current = v;
+				}
+			}
+			inTree[current] = true;
+			order[step] = current;
+			if (parent[current] == -1) {
+				key[current] = 0; // Root of a new component
 			}
 
-			if (!addedEdges.contains(getReverseEdgeKey(parentEdge))) {
-				Edge reverseEdge = new Edge(parentEdge.Child, parentEdge.Owner, parentEdge.weight); // Create reciprocal
-																									// edge
-				parentEdge.Child.connectedVertices.add(reverseEdge); // Add reciprocal edge to the other vertex
-				addedEdges.add(getReverseEdgeKey(parentEdge)); // Mark reciprocal edge as added
+			// Relax the connections of the new tree vertex
+			int from = ids[current];
+			for (int v = 0; v < n; v++) {
+				if (!inTree[v]) {
+					int distance = symmetric ? matrix.getDistance(from, ids[v])
+							: matrix.getUndirectedDistance(from, ids[v]);
+					if (distance < key[v]) {
+						key[v] = distance;
+						parent[v] = current;
+					}
+				}
 			}
+		}
+		return new SpanningTree(parent, key, order);
+	}
 
-			sortedList.add(pointConnected); // Add the current vertex to the sorted list
-			unsortedList.remove(pointConnected); // Remove it from the unsorted list
-			Collections.sort(unsortedList, compareMethod); // Re-sort the remaining vertices
-
-			// Update edges for the remaining unsorted vertices
-			if (!unsortedList.isEmpty()) {
-				Vertex basedVertex = unsortedList.get(0); // Select the next base vertex
-				unsortedList.forEach(vertex -> {
-					if (vertex != basedVertex) {
-						int distance = matrix.getDistance(vertex.getName(), basedVertex.getName()); // Calculate
-																									// distance to base
-																									// vertex
-						if (distance < vertex.edge.weight) {
-							vertex.edge = new Edge(vertex, basedVertex, distance); // Update edge if the new distance is
-																					// shorter
-						}
+	/**
+	 * Array-based Prim over a flat weight table, for weights that change between
+	 * runs such as the penalized 1-trees of {@link BranchAndBound}. Any int is a
+	 * valid weight except Integer.MAX_VALUE, which marks a missing connection.
+	 *
+	 * @param weights Row-major weights between the local vertices.
+	 * @param n       Number of vertices.
+	 * @param root    Local index of the vertex the tree grows from.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree dense(int[] weights, int n, int root) {
+		int[] parent = new int[n];
+		int[] key = new int[n]; // Cheapest known connection of each vertex to the tree
+		int[] order = new int[n];
+		boolean[] inTree = new boolean[n];
+		Arrays.fill(parent, -1);
+		Arrays.fill(key, Integer.MAX_VALUE);
+		key[root] = 0;
+
+		for (int step = 0; step < n; step++) {
+			// Pick the vertex with the cheapest connection; start a new root if none is reachable
+			int current = -1;
+			for (int v = 0; v < n; v++) {
+				if (!inTree[v] && (current == -1 || key[v] < key[current])) {
+					current = v;
+				}
+			}
+			inTree[current] = true;
+			order[step] = current;
+			if (parent[current] == -1) {
+				key[current] = 0; // Root of a new component
+			}
+
+			// Relax the connections of the new tree vertex
+			int row = current * n;
+			for (int v = 0; v < n; v++) {
+				if (!inTree[v] && weights[row + v] < key[v]) {
+					key[v] = weights[row + v];
+					parent[v] = current;
+				}
+			}
+		}
+		return new SpanningTree(parent, key, order);
+	}
+
+	/**
+	 * Heap-based Prim for sparse matrices, O(E log V): the matrix is converted to
+	 * a {@link SparseGraph} once and cached, so each tree vertex relaxes only its
+	 * existing connections instead of a whole matrix row.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param ids    Matrix ids of the vertices, indexed by local vertex index.
+	 * @param root   Local index of the vertex the tree grows from.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	public static SpanningTree heap(Matrix matrix, int[] ids, int root) {
+		return heap(SparseGraph.forMatrix(matrix), ids, root);
+	}
+
+	/**
+	 * Heap-based Prim over the edges of a sparse graph, O(E log V). Only the real
+	 * neighbors of each tree vertex are relaxed, and edges to nodes outside the
+	 * given vertices are ignored. Edges are taken from
+	 * {@link SparseGraph#undirected}, so each weighs the lighter of its two
+	 * directions.
+	 *
+	 * @param graph The graph in CSR form.
+	 * @param ids   Distinct graph ids of the vertices, indexed by local vertex
+	 *              index.
+	 * @param root  Local index of the vertex the tree grows from.
+	 * @return The spanning tree over the local vertex indices.
+	 * @throws IllegalArgumentException If a graph id appears twice.
+	 */
+	public static SpanningTree heap(SparseGraph graph, int[] ids, int root) {
+		SparseGraph edges = graph.undirected(); // Cached on the graph
+		int n = ids.length;
+		int[] local = new int[graph.size()]; // Local index of each graph node, -1 if not a vertex
+		Arrays.fill(local, -1);
+		for (int i = 0; i < n; i++) {
+			if (local[ids[i]] != -1) { // A second index would hide the first from every edge
+				throw new IllegalArgumentException("Duplicate vertex: " + graph.getName(ids[i]));
+			}
+			local[ids[i]] = i;
+		}
+		int[] parent = new int[n];
+		int[] weight = new int[n];
+		int[] order = new int[n];
+		boolean[] inTree = new boolean[n];
+		IndexedMinHeap queue = new IndexedMinHeap(n);
+		Arrays.fill(parent, -1);
+
+		int step = 0;
+		int nextRoot = 0; // Scan position for roots of further components
+		queue.insert(root, 0);
+		while (step < n) {
+			if (queue.isEmpty()) {
+				while (inTree[nextRoot]) {
+					nextRoot++; // Skip vertices that are already connected
+				}
+				queue.insert(nextRoot, 0);
+			}
+			int current = queue.poll();
+			inTree[current] = true;
+			order[step++] = current;
+
+			// Relax the edges of the new tree vertex
+			int from = ids[current];
+			for (int e = edges.begin(from); e < edges.end(from); e++) {
+				int v = local[edges.getTarget(e)];
+				if (v != -1 && !inTree[v]) {
+					int distance = edges.getWeight(e);
+					if (!queue.contains(v) || distance < queue.getKey(v)) {
+						queue.insertOrDecrease(v, distance);
+						parent[v] = current;
+						weight[v] = distance;
 					}
-				});
+				}
 			}
 		}
-		return sortedList; // Return the sorted list representing the MST
+		SolveMetrics.current().addHeapOperations(queue.getOperations());
+		return new SpanningTree(parent, weight, order);
 	}
 
-	// Helper method to generate a unique key for an edge
-	private static String getEdgeKey(Edge edge) {
-		return edge.Owner.getName() + "-" + edge.Child.getName(); // Forward key
+	/**
+	 * Converts a spanning tree into the vertex list returned by {@link #run}: the
+	 * vertices in the order they joined the tree, each edge stored once in both
+	 * directions.
+	 *
+	 * @param tree     The spanning tree over local vertex indices.
+	 * @param vertices Vertices indexed by local vertex index.
+	 * @return The vertices in the order they joined the tree.
+	 */
+	static List<Vertex> toVertices(SpanningTree tree, List<Vertex> vertices) {
+		List<Vertex> sortedList = new ArrayList<>(vertices.size());
+		for (int step = 0; step < tree.size(); step++) {
+			int child = tree.order[step];
+			Vertex pointConnected = vertices.get(child);
+			int parentIndex = tree.parent[child];
+			if (parentIndex != -1) {
+				Vertex parentVertex = vertices.get(parentIndex);
+				Edge parentEdge = new Edge(pointConnected, parentVertex, child, parentIndex, tree.weight[child]);
+				pointConnected.edge = parentEdge; // Store the parent edge
+				pointConnected.connectedVertices.add(parentEdge); // Add the edge to its connections
+				parentVertex.connectedVertices
+						.add(new Edge(parentVertex, pointConnected, parentIndex, child, tree.weight[child])); // Reciprocal
+			}
+			sortedList.add(pointConnected); // Add the current vertex to the sorted list
+		}
+		return sortedList;
+	}
+
+	// Resolve matrix ids once so distance lookups avoid string hashing
+	static int[] resolveIds(List<Vertex> vertices, Matrix matrix) {
+		int[] ids = new int[vertices.size()];
+		for (int i = 0; i < ids.length; i++) {
+			Vertex vertex = vertices.get(i);
+			vertex.id = matrix.getId(vertex.getName());
+			if (vertex.id < 0) {
+				throw new IllegalArgumentException("Unknown node: " + vertex.getName());
+			}
+			ids[i] = vertex.id;
+		}
+		return ids;
 	}
 
-	// Helper method to generate a unique key for the reverse of an edge
-	private static String getReverseEdgeKey(Edge edge) {
-		return edge.Child.getName() + "-" + edge.Owner.getName(); // Reverse key
+	// Decide whether array-based engines are the better fit for a whole matrix
+	static boolean isDense(Matrix matrix) {
+		int[] ids = new int[matrix.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		return isDense(matrix, ids);
+	}
+
+	// Decide whether the array-based variant is the better fit for these vertices
+	static boolean isDense(Matrix matrix, int[] ids) {
+		int n = ids.length;
+		if (n < 64) {
+			return true; // Too small for the heap to pay off
+		}
+		// Sample a few rows instead of scanning the whole matrix
+		long connected = 0;
+		long sampled = 0;
+		for (int i = 0; i < n; i += Math.max(1, n / 16)) {
+			for (int j = 0; j < n; j++) {
+				if (i != j && matrix.getDistance(ids[i], ids[j]) != Integer.MAX_VALUE) {
+					connected++;
+				}
+				sampled++;
+			}
+		}
+		return connected >= DENSE_THRESHOLD * sampled;
 	}
 }
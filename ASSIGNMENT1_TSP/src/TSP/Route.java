@@ -0,0 +1,37 @@
+package TSP;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Closed route returned by {@link TspSolver}: the stops in visiting order,
+ * starting at the first requested stop, and the length including the way back
+ * to it.
+ */
+public class Route {
+	private final List<String> stops; // Stops in visiting order, the start is not repeated
+	private final long length; // Length of the closed route
+
+	public Route(List<String> stops, long length) {
+		this.stops = Collections.unmodifiableList(stops);
+		this.length = length;
+	}
+
+	// Get the stops in visiting order, without the return to the start
+	public List<String> getStops() {
+		return stops;
+	}
+
+	// Get the length of the closed route
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		if (stops.isEmpty()) {
+			return "";
+		}
+		return String.join(" -> ", stops) + " -> " + stops.get(0);
+	}
+}
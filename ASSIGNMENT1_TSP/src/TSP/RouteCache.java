@@ -0,0 +1,223 @@
+package TSP;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded least-recently-used cache of solved routes.
+ *
+ * <p>
+ * Keys are canonical encodings of a request: the same stops in any order, or
+ * the same pick-up and drop-off pairs in any order, give the same key. Every key
+ * carries the {@link Matrix#getVersion() version} of the matrix it was solved
+ * on. The first lookup with a different version clears the cache, so routes of
+ * a replaced matrix are never returned. A result stored with another version
+ * than the current one is dropped: it comes from a solve that started before
+ * the matrix changed and must not push out the routes of the new matrix.
+ *
+ * <p>
+ * Lookups and inserts hold one lock for a hash lookup and a list relink, which
+ * is short enough for many solver threads to share the cache.
+ *
+ * @param <V> Type of the cached results.
+ */
+public class RouteCache<V> {
+	private final int capacity; // Most entries kept before the least recently used one is evicted
+	private final Map<Key, V> entries; // Entries in access order, guarded by this
+	private long version; // Matrix version of the cached entries, guarded by this
+	private final LongAdder hits = new LongAdder(); // Lookups that found an entry
+	private final LongAdder misses = new LongAdder(); // Lookups that found none
+	private final LongAdder evictions = new LongAdder(); // Entries dropped for capacity
+	private final LongAdder invalidations = new LongAdder(); // Entries dropped because the matrix changed
+
+	public RouteCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<Key, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+				if (size() > RouteCache.this.capacity) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Looks up a result.
+	 *
+	 * @param key Canonical key of the request.
+	 * @return The cached result, or null if there is none.
+	 */
+	public V get(Key key) {
+		V value;
+		synchronized (this) {
+			checkVersion(key.version);
+			value = entries.get(key);
+		}
+		(value == null ? misses : hits).increment();
+		return value;
+	}
+
+	/**
+	 * Stores a result, evicting the least recently used entry if the cache is
+	 * full. Results for another matrix version than that of the last lookup are
+	 * ignored.
+	 *
+	 * @param key   Canonical key of the request.
+	 * @param value The result.
+	 */
+	public synchronized void put(Key key, V value) {
+		if (key.version == version) { // A stale solve finishing late must not clear the newer entries
+			entries.put(key, value);
+		}
+	}
+
+	// Drop every entry once a key of another matrix version arrives
+	private void checkVersion(long keyVersion) {
+		if (keyVersion != version) {
+			invalidations.add(entries.size());
+			entries.clear();
+			version = keyVersion;
+		}
+	}
+
+	// Remove every entry
+	public synchronized void clear() {
+		invalidations.add(entries.size());
+		entries.clear();
+	}
+
+	// Get the number of cached entries
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	// Get the number of lookups that found an entry
+	public long getHits() {
+		return hits.sum();
+	}
+
+	// Get the number of lookups that found no entry
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	// Get the number of entries evicted for capacity
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	// Get the number of entries dropped because the matrix changed
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "RouteCache[size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+				+ getEvictions() + ", invalidations=" + getInvalidations() + "]";
+	}
+
+	/**
+	 * Canonical key of a request: the kind of request, the matrix version and an
+	 * order-independent encoding of the stops and constraints as matrix ids.
+	 */
+	public static final class Key {
+		private static final int TOUR = 0; // Closed route through a set of stops
+		private static final int PICKUP_DELIVERY = 1; // Open route with pick-up and drop-off pairs
+
+		private final long version; // Matrix version
+		private final int[] data; // Kind followed by the encoded request
+		private final int hash; // Cached hash code
+
+		private Key(long version, int[] data) {
+			this.version = version;
+			this.data = data;
+			this.hash = 31 * Long.hashCode(version) + Arrays.hashCode(data);
+		}
+
+		/**
+		 * Key of a closed route through a set of stops; order and repeats do not
+		 * matter.
+		 *
+		 * @param matrix The matrix the route is solved on.
+		 * @param ids    Matrix ids of the stops.
+		 * @param extra  Solver settings that change the result, such as the kick count.
+		 * @return The key.
+		 */
+		public static Key tour(Matrix matrix, int[] ids, int... extra) {
+			int[] sorted = Arrays.stream(ids).sorted().distinct().toArray();
+			int[] data = new int[1 + extra.length + sorted.length];
+			data[0] = TOUR;
+			System.arraycopy(extra, 0, data, 1, extra.length);
+			System.arraycopy(sorted, 0, data, 1 + extra.length, sorted.length);
+			return new Key(matrix.getVersion(), data);
+		}
+
+		/**
+		 * Key of an open route with pick-up and drop-off pairs; the order of the
+		 * pairs and of the unpaired zones does not matter.
+		 *
+		 * @param matrix   The matrix the route is solved on.
+		 * @param start    Matrix id of the start.
+		 * @param end      Matrix id of the end.
+		 * @param pickups  Matrix ids of the pick-up zones.
+		 * @param dropoffs Matrix ids of the drop-off zones, paired by index.
+		 * @return The key.
+		 */
+		public static Key pickupDelivery(Matrix matrix, int start, int end, int[] pickups, int[] dropoffs) {
+			int pairs = Math.min(pickups.length, dropoffs.length);
+			long[] pairKeys = new long[pairs];
+			for (int r = 0; r < pairs; r++) {
+				pairKeys[r] = (long) pickups[r] << 32 | dropoffs[r];
+			}
+			Arrays.sort(pairKeys);
+			int[] extraPickups = Arrays.copyOfRange(pickups, pairs, pickups.length);
+			int[] extraDropoffs = Arrays.copyOfRange(dropoffs, pairs, dropoffs.length);
+			Arrays.sort(extraPickups);
+			Arrays.sort(extraDropoffs);
+
+			int[] data = new int[5 + 2 * pairs + extraPickups.length + extraDropoffs.length];
+			int i = 0;
+			data[i++] = PICKUP_DELIVERY;
+			data[i++] = start;
+			data[i++] = end;
+			data[i++] = pairs;
+			for (long pair : pairKeys) {
+				data[i++] = (int) (pair >>> 32);
+				data[i++] = (int) pair;
+			}
+			data[i++] = extraPickups.length; // Separates the unpaired pick-ups from the drop-offs
+			for (int id : extraPickups) {
+				data[i++] = id;
+			}
+			for (int id : extraDropoffs) {
+				data[i++] = id;
+			}
+			return new Key(matrix.getVersion(), data);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return hash == key.hash && version == key.version && Arrays.equals(data, key.data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
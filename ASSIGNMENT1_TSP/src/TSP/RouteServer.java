@@ -0,0 +1,325 @@
+package TSP;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running HTTP front end of a {@link BatchSolver}, so that one JVM loads
+ * the matrix and warms up once and then answers any number of route requests.
+ *
+ * <p>
+ * {@code POST /solve} takes one job in the batch format, such as
+ * {@code {"id":"42","stops":["A","C","F"]}}, and answers with its result line.
+ * {@code POST /traffic} applies distance changes to the shared
+ * {@link LiveMatrix}, such as {@code {"A":{"B":12,"C":null}}}; solves already
+ * running finish on the distances they started with. {@code GET /stats}
+ * reports the request counters. Every request is handled on
+ * a virtual thread of its own, which only parses, waits and writes. The solves
+ * themselves run on a fixed pool with one platform thread per core, so
+ * thousands of open requests never put more than that many solves on the CPU.
+ *
+ * <p>
+ * At most {@code maxPending} jobs wait for a solve thread; further requests are
+ * turned away at once with 503 instead of queueing without bound. A request
+ * that has no result within the timeout gets 504. Its job is cancelled if it
+ * has not started yet; a running solve cannot be stopped midway, so it keeps
+ * its place until it finishes and the limit stays honest.
+ */
+public class RouteServer {
+	static final int DEFAULT_MAX_PENDING = 1024; // Jobs waiting for a solve thread before requests are refused
+	static final int DEFAULT_TIMEOUT_MILLIS = 10_000; // Time a request may take from arrival to result
+	static final int MAX_BODY_BYTES = 1 << 20; // Largest accepted job
+	private static final int RETRY_AFTER_SECONDS = 1; // Hint sent with 503 responses
+	private static final Type CHANGES_TYPE = new TypeToken<Map<String, Map<String, Integer>>>() {
+	}.getType(); // Distance changes by start node and end node
+
+	private final BatchSolver solver; // Shared solver over the one loaded matrix
+	private final LiveMatrix matrix; // The solver's matrix, updated through /traffic
+	private final RouteCache<Route> cache; // Cache behind the solver for the stats, null if there is none
+	private final int threads; // Number of solve threads
+	private final int maxPending; // Jobs that may wait for a solve thread
+	private final long timeoutMillis; // Request timeout
+	private final Semaphore slots; // One permit per job that may be queued or running
+	private final Gson gson = new Gson(); // Thread-safe JSON mapper
+
+	private final LongAdder solved = new LongAdder(); // Requests answered with a route
+	private final LongAdder invalid = new LongAdder(); // Requests answered with 400
+	private final LongAdder rejected = new LongAdder(); // Requests refused with 503
+	private final LongAdder timedOut = new LongAdder(); // Requests answered with 504
+	private final LongAdder failed = new LongAdder(); // Requests answered with 500
+	private final LongAdder updates = new LongAdder(); // Distance updates applied
+
+	private HttpServer server; // Accepts the connections, null until started
+	private ThreadPoolExecutor solvePool; // Platform threads for the CPU-bound solves
+	private ExecutorService requestThreads; // One virtual thread per request
+
+	public RouteServer(BatchSolver solver, LiveMatrix matrix, RouteCache<Route> cache, int threads) {
+		this(solver, matrix, cache, threads, DEFAULT_MAX_PENDING, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	public RouteServer(BatchSolver solver, LiveMatrix matrix, RouteCache<Route> cache, int threads, int maxPending,
+			long timeoutMillis) {
+		this.solver = solver;
+		this.matrix = matrix;
+		this.cache = cache;
+		this.threads = Math.max(1, threads);
+		this.maxPending = Math.max(0, maxPending);
+		this.timeoutMillis = Math.max(1, timeoutMillis);
+		this.slots = new Semaphore(this.threads + this.maxPending);
+	}
+
+	/**
+	 * Starts accepting requests; returns once the port is bound.
+	 *
+	 * @param address Address to listen on, port 0 for any free port.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Server already started");
+		}
+		solvePool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, maxPending))) {
+			@Override
+			protected void afterExecute(Runnable task, Throwable error) {
+				slots.release(); // Also reached by jobs cancelled while they were queued
+			}
+		};
+		requestThreads = Executors.newVirtualThreadPerTaskExecutor();
+		server = HttpServer.create(address, maxPending);
+		server.setExecutor(requestThreads);
+		server.createContext("/solve", this::handleSolve);
+		server.createContext("/stats", this::handleStats);
+		server.createContext("/traffic", this::handleTraffic);
+		server.start();
+	}
+
+	// Get the port the server listens on
+	public synchronized int getPort() {
+		if (server == null) {
+			throw new IllegalStateException("Server not started");
+		}
+		return server.getAddress().getPort();
+	}
+
+	// Stop accepting requests, give open ones a second to finish and drop the rest
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		server.stop(1);
+		solvePool.shutdownNow();
+		requestThreads.shutdownNow();
+		server = null;
+	}
+
+	// Solve the job in the request body within the timeout
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, error("Use POST"));
+				return;
+			}
+			String line = readBody(exchange.getRequestBody());
+			if (line == null) {
+				invalid.increment();
+				respond(exchange, 413, error("Job larger than " + MAX_BODY_BYTES + " bytes"));
+				return;
+			}
+			Future<BatchSolver.Result> job = submit(exchange, () -> solver.solveJob(line));
+			if (job == null) {
+				return;
+			}
+			BatchSolver.Result result;
+			try {
+				result = job.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				job.cancel(true);
+				timedOut.increment();
+				respond(exchange, 504, error("No result within " + timeoutMillis + " ms"));
+				return;
+			} catch (InterruptedException e) {
+				job.cancel(true);
+				Thread.currentThread().interrupt();
+				rejected.increment();
+				respond(exchange, 503, error("Server is stopping"));
+				return;
+			} catch (ExecutionException e) {
+				failed.increment();
+				respond(exchange, 500, error("Job failed: " + e.getCause()));
+				return;
+			}
+			if (result.error != null) {
+				invalid.increment();
+				respond(exchange, 400, solver.toJson(result));
+			} else {
+				solved.increment();
+				respond(exchange, 200, solver.toJson(result));
+			}
+		}
+	}
+
+	// Apply a batch of distance changes in the matrix file format
+	private void handleTraffic(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				respond(exchange, 405, error("Use POST"));
+				return;
+			}
+			String body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				respond(exchange, 413, error("Update larger than " + MAX_BODY_BYTES + " bytes"));
+				return;
+			}
+			long startTime = System.nanoTime();
+			Future<Matrix> update = submit(exchange, () -> matrix.update(parseChanges(body)));
+			if (update == null) {
+				return;
+			}
+			Matrix updated;
+			try {
+				updated = update.get(); // No timeout: once started, the update is applied anyway
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				respond(exchange, 503, error("Server is stopping"));
+				return;
+			} catch (ExecutionException e) {
+				boolean invalidUpdate = e.getCause() instanceof IllegalArgumentException
+						|| e.getCause() instanceof JsonParseException;
+				respond(exchange, invalidUpdate ? 400 : 500, error(String.valueOf(e.getCause().getMessage())));
+				return;
+			}
+			updates.increment();
+			Map<String, Object> answer = new LinkedHashMap<>();
+			answer.put("epoch", updated.getEpoch());
+			answer.put("version", Long.toHexString(updated.getVersion()));
+			answer.put("millis", (System.nanoTime() - startTime) / 1_000_000);
+			respond(exchange, 200, gson.toJson(answer));
+		}
+	}
+
+	// Parse distance changes such as {"A": {"B": 12, "C": null}}
+	private Map<String, Map<String, Integer>> parseChanges(String body) {
+		Map<String, Map<String, Integer>> changes = gson.fromJson(body, CHANGES_TYPE);
+		if (changes == null) {
+			throw new IllegalArgumentException("Update has no changes");
+		}
+		return changes;
+	}
+
+	/**
+	 * Hands CPU-bound work to the solve pool, or answers 503 if too many jobs are
+	 * pending or the server is stopping.
+	 *
+	 * @param exchange The request, answered here if the work is refused.
+	 * @param work     The work to run.
+	 * @return The pending result, or null if the work was refused.
+	 * @throws IOException If the refusal cannot be sent.
+	 */
+	private <T> Future<T> submit(HttpExchange exchange, Callable<T> work) throws IOException {
+		if (!slots.tryAcquire()) {
+			rejected.increment();
+			exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+			respond(exchange, 503, error("Too many pending jobs"));
+			return null;
+		}
+		try {
+			return solvePool.submit(work);
+		} catch (RejectedExecutionException e) {
+			slots.release(); // The pool is shutting down
+			rejected.increment();
+			respond(exchange, 503, error("Server is stopping"));
+			return null;
+		}
+	}
+
+	// Report the request counters and the cache
+	private void handleStats(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				respond(exchange, 405, error("Use GET"));
+				return;
+			}
+			respond(exchange, 200, gson.toJson(getStats()));
+		}
+	}
+
+	/**
+	 * Gets the request counters since the server was created.
+	 *
+	 * @return Counter names mapped to their values, in a fixed order.
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("solved", solved.sum());
+		stats.put("invalid", invalid.sum());
+		stats.put("rejected", rejected.sum());
+		stats.put("timedOut", timedOut.sum());
+		stats.put("failed", failed.sum());
+		stats.put("updates", updates.sum());
+		stats.put("epoch", matrix.get().getEpoch());
+		stats.put("inFlight", threads + maxPending - slots.availablePermits()); // Queued or running jobs
+		stats.put("solveThreads", threads);
+		stats.put("maxPending", maxPending);
+		if (cache != null) {
+			stats.put("cacheSize", cache.size());
+			stats.put("cacheHits", cache.getHits());
+			stats.put("cacheMisses", cache.getMisses());
+		}
+		return stats;
+	}
+
+	// Format an error response in the result line format
+	private String error(String message) {
+		BatchSolver.Result result = new BatchSolver.Result();
+		result.error = message;
+		return solver.toJson(result);
+	}
+
+	// Read a request body as UTF-8, null if it is larger than MAX_BODY_BYTES
+	private static String readBody(InputStream in) throws IOException {
+		byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+		if (body.length > MAX_BODY_BYTES) {
+			return null;
+		}
+		return new String(body, StandardCharsets.UTF_8);
+	}
+
+	// Send a JSON response with a known length
+	private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package TSP;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+
+/**
+ * Per-solve timings and counters of the pipeline phases.
+ *
+ * <p>
+ * A phase is measured between {@link #begin(Phase)} and {@link #end()}: wall
+ * time, distance lookups made through the matrix returned by
+ * {@link #track(Matrix)}, heap operations, and bytes allocated by the solving
+ * thread. Heap operations come from the engines built on
+ * {@link IndexedMinHeap}: the heap Prim, the point-to-point searches and their
+ * landmark setup; the array-based engines have no heap and report 0.
+ * Allocation counts need the HotSpot thread bean and miss work done on other
+ * threads, such as the parallel all-pairs build for large matrices.
+ *
+ * <p>
+ * {@link #NOOP} does nothing and hands out the matrix unchanged, so a solve
+ * without metrics pays one branch per phase and nothing per distance lookup.
+ */
+public class SolveMetrics {
+	public static final SolveMetrics NOOP = new SolveMetrics(null, false); // Disabled metrics
+
+	private static final ThreadLocal<SolveMetrics> CURRENT = new ThreadLocal<>(); // Metrics of the running phase
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean(); // Null if allocations are not measurable
+
+	public enum Phase {
+		LOAD, // Reading the matrix
+		DIJKSTRA, // Shortest paths between the route points
+		MST, // Minimum spanning tree
+		ODD_DEGREE, // Odd-degree vertices of the tree
+		MATCHING, // Minimum-weight perfect matching
+		MULTIGRAPH, // Union of tree and matching
+		CIRCUIT, // Eulerian circuit and shortcutting
+		IMPROVE, // Local search on the circuit
+		EXACT; // Held-Karp on small stop sets
+
+		// Name used in the exports
+		public String label() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private final String solveId; // Identifies the solve in the exports
+	private final boolean enabled; // False only for NOOP
+	private final long[] nanos = new long[Phase.values().length]; // Wall time of each phase
+	private final long[] lookups = new long[Phase.values().length]; // Distance lookups of each phase
+	private final long[] heapOperations = new long[Phase.values().length]; // Heap operations of each phase
+	private final long[] allocatedBytes = new long[Phase.values().length]; // Bytes allocated in each phase
+	private final boolean[] recorded = new boolean[Phase.values().length]; // Phases that ran at least once
+	private final LongAdder lookupCounter = new LongAdder(); // Lookups through tracked matrices
+	private Phase phase; // Running phase, null between phases
+	private long phaseStart; // System.nanoTime() when the phase began
+	private long phaseLookups; // Lookup count when the phase began
+	private long phaseAllocated; // Allocated bytes of the thread when the phase began
+
+	private SolveMetrics(String solveId, boolean enabled) {
+		this.solveId = solveId;
+		this.enabled = enabled;
+	}
+
+	// Create enabled metrics for one solve
+	public static SolveMetrics create(String solveId) {
+		return new SolveMetrics(solveId, true);
+	}
+
+	// Get the metrics of the phase running on this thread, NOOP if there is none
+	static SolveMetrics current() {
+		SolveMetrics metrics = CURRENT.get();
+		return metrics == null ? NOOP : metrics;
+	}
+
+	// Check whether anything is recorded
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// Get the id of the solve
+	public String getSolveId() {
+		return solveId;
+	}
+
+	/**
+	 * Wraps a matrix so that its distance lookups are counted. Disabled metrics
+	 * return the matrix itself.
+	 *
+	 * @param matrix The matrix the solve reads.
+	 * @return The matrix to pass to the pipeline.
+	 */
+	public Matrix track(Matrix matrix) {
+		return enabled ? new CountingMatrix(matrix, lookupCounter) : matrix;
+	}
+
+	// Start measuring a phase; a running phase is ended first
+	public void begin(Phase next) {
+		if (!enabled) {
+			return;
+		}
+		if (phase != null) {
+			end();
+		}
+		phase = next;
+		CURRENT.set(this);
+		phaseLookups = lookupCounter.sum();
+		phaseAllocated = allocatedBytes();
+		phaseStart = System.nanoTime();
+	}
+
+	// Stop measuring the running phase and add its numbers to the phase totals
+	public void end() {
+		if (!enabled || phase == null) {
+			return;
+		}
+		int i = phase.ordinal();
+		nanos[i] += System.nanoTime() - phaseStart;
+		lookups[i] += lookupCounter.sum() - phaseLookups;
+		allocatedBytes[i] += allocatedBytes() - phaseAllocated;
+		recorded[i] = true;
+		phase = null;
+		CURRENT.remove();
+	}
+
+	// Add heap operations to the running phase
+	void addHeapOperations(long operations) {
+		if (enabled && phase != null) {
+			heapOperations[phase.ordinal()] += operations;
+		}
+	}
+
+	// Get the wall time of a phase in nanoseconds
+	public long getNanos(Phase p) {
+		return nanos[p.ordinal()];
+	}
+
+	// Get the distance lookups of a phase
+	public long getDistanceLookups(Phase p) {
+		return lookups[p.ordinal()];
+	}
+
+	// Get the heap operations of a phase
+	public long getHeapOperations(Phase p) {
+		return heapOperations[p.ordinal()];
+	}
+
+	// Get the bytes allocated in a phase, 0 if the JVM cannot measure them
+	public long getAllocatedBytes(Phase p) {
+		return allocatedBytes[p.ordinal()];
+	}
+
+	// Check whether a phase ran
+	public boolean isRecorded(Phase p) {
+		return recorded[p.ordinal()];
+	}
+
+	// Get the total wall time of all phases in nanoseconds
+	public long getTotalNanos() {
+		long total = 0;
+		for (long value : nanos) {
+			total += value;
+		}
+		return total;
+	}
+
+	/**
+	 * Formats the metrics as a single JSON line, for example
+	 * {@code {"solve":"1","totalNanos":900,"phases":{"mst":{"nanos":500,...}}}}.
+	 */
+	public String toJson() {
+		return new Gson().toJson(toMap());
+	}
+
+	// Get the metrics as nested maps, in the shape of the JSON export
+	public Map<String, Object> toMap() {
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("solve", solveId);
+		root.put("totalNanos", getTotalNanos());
+		Map<String, Object> phases = new LinkedHashMap<>();
+		for (Phase p : Phase.values()) {
+			if (recorded[p.ordinal()]) {
+				Map<String, Long> values = new LinkedHashMap<>();
+				values.put("nanos", getNanos(p));
+				values.put("distanceLookups", getDistanceLookups(p));
+				values.put("heapOperations", getHeapOperations(p));
+				values.put("allocatedBytes", getAllocatedBytes(p));
+				phases.put(p.label(), values);
+			}
+		}
+		root.put("phases", phases);
+		return root;
+	}
+
+	// Formats the metrics in the Prometheus text exposition format, one gauge per phase and value
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder();
+		appendGauge(out, "tsp_phase_seconds", "Wall time of each solve phase.", 0);
+		appendGauge(out, "tsp_phase_distance_lookups", "Distance lookups in each solve phase.", 1);
+		appendGauge(out, "tsp_phase_heap_operations", "Heap operations in each solve phase.", 2);
+		appendGauge(out, "tsp_phase_allocated_bytes", "Bytes allocated by the solving thread in each phase.", 3);
+		return out.toString();
+	}
+
+	// Append one metric family; kind selects the value: 0 time, 1 lookups, 2 heap operations, 3 bytes
+	private void appendGauge(StringBuilder out, String name, String help, int kind) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		for (Phase p : Phase.values()) {
+			if (!recorded[p.ordinal()]) {
+				continue;
+			}
+			out.append(name).append("{solve=\"").append(escape(solveId)).append("\",phase=\"").append(p.label())
+					.append("\"} ");
+			switch (kind) {
+			case 0:
+				out.append(getNanos(p) / 1e9);
+				break;
+			case 1:
+				out.append(getDistanceLookups(p));
+				break;
+			case 2:
+				out.append(getHeapOperations(p));
+				break;
+			default:
+				out.append(getAllocatedBytes(p));
+				break;
+			}
+			out.append('\n');
+		}
+	}
+
+	// Escape a Prometheus label value
+	private static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	// Bytes allocated so far by the current thread, 0 if unsupported
+	private static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+	}
+
+	// Get the HotSpot thread bean if it can measure allocations
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotSpot = (com.sun.management.ThreadMXBean) bean;
+			if (hotSpot.isThreadAllocatedMemorySupported()) {
+				hotSpot.setThreadAllocatedMemoryEnabled(true);
+				return hotSpot;
+			}
+		}
+		return null;
+	}
+
+	// Matrix view that counts every distance lookup
+	private static final class CountingMatrix extends Matrix {
+		private final LongAdder counter; // Shared with the metrics; safe for parallel readers
+
+		CountingMatrix(Matrix source, LongAdder counter) {
+			super(source);
+			this.counter = counter;
+		}
+
+		@Override
+		public int getDistance(int from, int to) {
+			counter.increment();
+			return super.getDistance(from, to);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package TSP;
+
+import java.util.Arrays;
+
+/**
+ * Result of an MST engine over the local vertex indices {@code 0..n-1}.
+ *
+ * <p>
+ * Each vertex stores its parent and the weight of the edge to that parent. Roots
+ * have parent -1 and weight 0; there is more than one root only when the graph
+ * is disconnected.
+ */
+public class SpanningTree {
+	final int[] parent; // Parent of each vertex, -1 for a root
+	final int[] weight; // Weight of the edge to the parent, 0 for a root
+	final int[] order; // Vertices in the order they joined the tree
+
+	SpanningTree(int[] parent, int[] weight, int[] order) {
+		this.parent = parent;
+		this.weight = weight;
+		this.order = order;
+	}
+
+	/**
+	 * Roots a forest given as an edge list. Vertices join the tree in breadth-first
+	 * order from the root; vertices the root cannot reach start further trees in
+	 * index order, like the Prim engines do.
+	 *
+	 * @param n      Number of vertices.
+	 * @param from   First end of each edge.
+	 * @param to     Second end of each edge.
+	 * @param weight Weight of each edge.
+	 * @param count  Number of edges; together they must not form a cycle.
+	 * @param root   Local index of the vertex the first tree grows from.
+	 * @return The spanning tree over the local vertex indices.
+	 */
+	static SpanningTree fromEdges(int n, int[] from, int[] to, int[] weight, int count, int root) {
+		// Adjacency of the forest in CSR form, each edge stored in both directions
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < count; e++) {
+			offsets[from[e] + 1]++;
+			offsets[to[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] next = Arrays.copyOf(offsets, n);
+		int[] adjacent = new int[2 * count]; // Edge index at each position
+		for (int e = 0; e < count; e++) {
+			adjacent[next[from[e]]++] = e;
+			adjacent[next[to[e]]++] = e;
+		}
+
+		int[] parent = new int[n];
+		int[] treeWeight = new int[n];
+		int[] order = new int[n];
+		boolean[] inTree = new boolean[n];
+		Arrays.fill(parent, -1);
+		int tail = 0;
+		for (int start = -1; start < n; start++) {
+			int treeRoot = start == -1 ? root : start; // The given root first, then every vertex not yet reached
+			if (n == 0 || inTree[treeRoot]) {
+				continue;
+			}
+			inTree[treeRoot] = true;
+			int head = tail;
+			order[tail++] = treeRoot;
+			while (head < tail) {
+				int v = order[head++];
+				for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+					int e = adjacent[i];
+					int u = from[e] == v ? to[e] : from[e];
+					if (!inTree[u]) {
+						inTree[u] = true;
+						parent[u] = v;
+						treeWeight[u] = weight[e];
+						order[tail++] = u;
+					}
+				}
+			}
+		}
+		return new SpanningTree(parent, treeWeight, order);
+	}
+
+	// Get the number of vertices in the tree
+	public int size() {
+		return parent.length;
+	}
+
+	// Get the parent of a vertex, -1 for a root
+	public int getParent(int vertex) {
+		return parent[vertex];
+	}
+
+	// Get the weight of the edge from a vertex to its parent
+	public int getWeight(int vertex) {
+		return weight[vertex];
+	}
+
+	// Get the vertex that joined the tree at the given step
+	public int getVertexAt(int step) {
+		return order[step];
+	}
+
+	// Get the total weight of all tree edges
+	public long getTotalWeight() {
+		long total = 0;
+		for (int vertex = 0; vertex < parent.length; vertex++) {
+			if (parent[vertex] != -1) {
+				total += weight[vertex];
+			}
+		}
+		return total;
+	}
+
+	// Count the tree edges at each vertex
+	public int[] getDegrees() {
+		int[] degree = new int[parent.length];
+		for (int vertex = 0; vertex < parent.length; vertex++) {
+			if (parent[vertex] != -1) {
+				degree[vertex]++;
+				degree[parent[vertex]]++;
+			}
+		}
+		return degree;
+	}
+}
@@ -0,0 +1,416 @@
+package TSP;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Directed weighted graph in compressed sparse row (CSR) form.
+ *
+ * <p>
+ * The outgoing edges of node {@code v} occupy positions {@link #begin(int)}
+ * (inclusive) to {@link #end(int)} (exclusive) of the target and weight arrays,
+ * sorted by target id. Only existing connections are stored, so engines that
+ * walk these ranges do work proportional to the number of edges instead of
+ * V^2. Node ids and names match the {@link Matrix} read from the same file.
+ */
+public class SparseGraph {
+	// Graphs converted from matrices, keyed by matrix identity; a graph never references its matrix
+	private static final Map<Matrix, SparseGraph> CONVERTED = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final String[] names; // Node names, indexed by node id
+	private final Map<String, Integer> nodeIds; // Maps each node name to its id
+	private final int[] offsets; // First edge of each node, offsets[size] is the edge count
+	private final int[] targets; // Target node of each edge
+	private final int[] weights; // Weight of each edge
+	private volatile SparseGraph undirected; // Result of undirected(), null until first asked for
+
+	private SparseGraph(String[] names, Map<String, Integer> nodeIds, int[] offsets, int[] targets, int[] weights) {
+		this.names = names;
+		this.nodeIds = nodeIds;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Collects the existing connections of a matrix.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @return The graph with the same node ids.
+	 */
+	public static SparseGraph fromMatrix(Matrix matrix) {
+		int n = matrix.size();
+		String[] names = new String[n];
+		Builder builder = new Builder(n);
+		for (int from = 0; from < n; from++) {
+			names[from] = matrix.getName(from);
+			for (int to = 0; to < n; to++) {
+				int distance = matrix.getDistance(from, to);
+				if (distance != Integer.MAX_VALUE && from != to) {
+					builder.add(from, to, distance);
+				}
+			}
+		}
+		return builder.build(names);
+	}
+
+	/**
+	 * Returns the graph of a matrix, converting it on first use. Engines that run
+	 * many times on stops of the same sparse matrix share one conversion instead
+	 * of scanning the V^2 matrix every time.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @return The cached graph with the same node ids.
+	 */
+	public static SparseGraph forMatrix(Matrix matrix) {
+		SparseGraph graph = CONVERTED.get(matrix.getSource());
+		if (graph == null) {
+			graph = fromMatrix(matrix); // Converted outside the lock, so lookups for other matrices go on
+			SparseGraph existing = CONVERTED.putIfAbsent(matrix.getSource(), graph);
+			if (existing != null) {
+				graph = existing;
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Opens a graph in either matrix format: files ending in ".bin" are mapped as
+	 * binary matrix files and scanned row by row, everything else is streamed as
+	 * a JSON adjacency matrix without building the dense distance array.
+	 *
+	 * @param filePath Path of the matrix file.
+	 * @return The loaded graph.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static SparseGraph open(String filePath) throws IOException {
+		return filePath.endsWith(".bin") ? fromMatrix(MatrixFile.load(filePath)) : loadJson(filePath);
+	}
+
+	/**
+	 * Streams a JSON adjacency matrix of the form
+	 * {@code {"A": {"B": 5, "C": null}, ...}}. Null distances and targets that
+	 * are not nodes of the outer object are skipped, as {@link Matrix} does.
+	 *
+	 * @param filePath Path of the JSON adjacency matrix.
+	 * @return The loaded graph.
+	 * @throws IOException If the file cannot be read or is not an adjacency matrix.
+	 */
+	public static SparseGraph loadJson(String filePath) throws IOException {
+		Map<String, Integer> seen = new LinkedHashMap<>(); // Provisional id of every name met so far
+		Builder builder = new Builder(16);
+		int[] rowOf = new int[16]; // Provisional id of each outer key, in file order
+		int rows = 0;
+
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
+				JsonReader reader = new JsonReader(in)) {
+			if (reader.peek() == JsonToken.END_DOCUMENT) {
+				throw new IOException("Adjacency matrix file is empty: " + filePath);
+			}
+			reader.beginObject();
+			while (reader.hasNext()) {
+				int from = provisionalId(seen, reader.nextName());
+				if (rows == rowOf.length) {
+					rowOf = Arrays.copyOf(rowOf, rows * 2);
+				}
+				rowOf[rows++] = from;
+				if (reader.peek() == JsonToken.NULL) {
+					reader.nextNull(); // Node without connections
+					continue;
+				}
+				reader.beginObject();
+				while (reader.hasNext()) {
+					int to = provisionalId(seen, reader.nextName());
+					if (reader.peek() == JsonToken.NULL) {
+						reader.nextNull();
+					} else {
+						builder.add(from, to, reader.nextInt());
+					}
+				}
+				reader.endObject();
+			}
+			reader.endObject();
+		} catch (IllegalStateException | NumberFormatException e) {
+			throw new IOException("Malformed adjacency matrix " + filePath + ": " + e.getMessage(), e);
+		}
+
+		// Number the outer keys in file order, as the dense matrix does, and drop all other names
+		int[] finalId = new int[seen.size()];
+		Arrays.fill(finalId, -1);
+		String[] provisionalNames = seen.keySet().toArray(new String[0]);
+		String[] names = new String[rows];
+		int n = 0;
+		for (int r = 0; r < rows; r++) {
+			if (finalId[rowOf[r]] == -1) {
+				finalId[rowOf[r]] = n;
+				names[n++] = provisionalNames[rowOf[r]];
+			}
+		}
+		return builder.renumber(finalId, n).build(Arrays.copyOf(names, n));
+	}
+
+	// Get the provisional id of a name, assigning the next one on first sight
+	private static int provisionalId(Map<String, Integer> seen, String name) {
+		Integer id = seen.get(name);
+		if (id == null) {
+			id = seen.size();
+			seen.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the graph with every edge reversed, which is the graph itself when
+	 * all edges exist in both directions with equal weights.
+	 *
+	 * @return The transposed graph.
+	 */
+	public SparseGraph transpose() {
+		if (isSymmetric()) {
+			return this;
+		}
+		int n = size();
+		Builder builder = new Builder(targets.length);
+		for (int from = 0; from < n; from++) {
+			for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+				builder.add(targets[e], from, weights[e]);
+			}
+		}
+		return builder.build(names);
+	}
+
+	/**
+	 * Returns the undirected version of the graph: every edge exists in both
+	 * directions, weighted with the lighter of the two directions. This is the
+	 * graph itself when it is already symmetric. The result is computed once per
+	 * graph.
+	 *
+	 * @return The symmetric graph.
+	 */
+	public SparseGraph undirected() {
+		SparseGraph result = undirected;
+		if (result == null) {
+			result = isSymmetric() ? this : symmetrize();
+			result.undirected = result;
+			undirected = result; // Racing callers build equal graphs
+		}
+		return result;
+	}
+
+	// Add the reverse of every edge, keeping the lighter of duplicate edges
+	private SparseGraph symmetrize() {
+		int n = size();
+		Builder builder = new Builder(2 * targets.length);
+		for (int from = 0; from < n; from++) {
+			for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+				builder.add(from, targets[e], weights[e]);
+				builder.add(targets[e], from, weights[e]); // The builder keeps the lighter duplicate
+			}
+		}
+		return builder.build(names);
+	}
+
+	/**
+	 * Returns the subgraph induced by some nodes, renumbered so that node i of the
+	 * subgraph is node ids[i] of this graph. The graph itself is returned when ids
+	 * lists every node in order.
+	 *
+	 * @param ids Node ids to keep, without repeats.
+	 * @return The subgraph over the local indices of ids.
+	 */
+	public SparseGraph induced(int[] ids) {
+		int n = size();
+		boolean identity = ids.length == n;
+		for (int i = 0; identity && i < n; i++) {
+			identity = ids[i] == i;
+		}
+		if (identity) {
+			return this;
+		}
+		int[] local = new int[n]; // Local index of each node, -1 if it is not kept
+		Arrays.fill(local, -1);
+		String[] subNames = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			local[ids[i]] = i;
+			subNames[i] = names[ids[i]];
+		}
+		Builder builder = new Builder(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			for (int e = offsets[ids[i]]; e < offsets[ids[i] + 1]; e++) {
+				if (local[targets[e]] != -1) {
+					builder.add(i, local[targets[e]], weights[e]);
+				}
+			}
+		}
+		return builder.build(subNames);
+	}
+
+	// Check whether every edge has a reverse edge of the same weight
+	public boolean isSymmetric() {
+		for (int from = 0; from < size(); from++) {
+			for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+				if (getDistance(targets[e], from) != weights[e]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// Get the first edge position of a node
+	public int begin(int node) {
+		return offsets[node];
+	}
+
+	// Get the position after the last edge of a node
+	public int end(int node) {
+		return offsets[node + 1];
+	}
+
+	// Get the target node of an edge position
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	// Get the weight of an edge position
+	public int getWeight(int edge) {
+		return weights[edge];
+	}
+
+	// Get the number of outgoing edges of a node
+	public int getDegree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	// Get the distance between two node ids by binary search, Integer.MAX_VALUE if no connection exists
+	public int getDistance(int from, int to) {
+		int edge = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+		return edge >= 0 ? weights[edge] : Integer.MAX_VALUE;
+	}
+
+	// Get the id of a node, or -1 if the node is unknown
+	public int getId(String name) {
+		Integer id = nodeIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	// Get the name of a node id
+	public String getName(int id) {
+		return names[id];
+	}
+
+	// Get the number of nodes
+	public int size() {
+		return names.length;
+	}
+
+	// Get the number of directed edges
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	// Get all nodes in id order
+	public Set<String> getNodes() {
+		return Collections.unmodifiableSet(nodeIds.keySet());
+	}
+
+	// Collects edges in any order and sorts them into CSR arrays
+	private static final class Builder {
+		private int[] from; // Source of each collected edge
+		private int[] to; // Target of each collected edge
+		private int[] weight; // Weight of each collected edge
+		private int count; // Number of collected edges
+
+		Builder(int capacity) {
+			from = new int[Math.max(16, capacity)];
+			to = new int[from.length];
+			weight = new int[from.length];
+		}
+
+		void add(int source, int target, int distance) {
+			if (count == from.length) {
+				int grown = count + (count >> 1);
+				from = Arrays.copyOf(from, grown);
+				to = Arrays.copyOf(to, grown);
+				weight = Arrays.copyOf(weight, grown);
+			}
+			from[count] = source;
+			to[count] = target;
+			weight[count++] = distance;
+		}
+
+		// Map provisional ids to final ones, dropping edges that touch an unmapped id and self-loops
+		Builder renumber(int[] finalId, int n) {
+			int kept = 0;
+			for (int e = 0; e < count; e++) {
+				int source = finalId[from[e]];
+				int target = finalId[to[e]];
+				if (source != -1 && target != -1 && source != target) {
+					from[kept] = source;
+					to[kept] = target;
+					weight[kept++] = weight[e];
+				}
+			}
+			count = kept;
+			return this;
+		}
+
+		SparseGraph build(String[] names) {
+			int n = names.length;
+			// Counting sort by source
+			int[] offsets = new int[n + 1];
+			for (int e = 0; e < count; e++) {
+				offsets[from[e] + 1]++;
+			}
+			for (int v = 0; v < n; v++) {
+				offsets[v + 1] += offsets[v];
+			}
+			long[] packed = new long[count]; // Target in the high half, weight in the low half
+			int[] next = Arrays.copyOf(offsets, n);
+			for (int e = 0; e < count; e++) {
+				packed[next[from[e]]++] = (long) to[e] << 32 | (weight[e] & 0xFFFFFFFFL);
+			}
+
+			// Sort each row by target and keep the lightest of duplicate edges
+			int[] targets = new int[count];
+			int[] weights = new int[count];
+			int edges = 0;
+			for (int v = 0; v < n; v++) {
+				Arrays.sort(packed, offsets[v], offsets[v + 1]);
+				int rowStart = edges;
+				for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+					int target = (int) (packed[i] >>> 32);
+					int distance = (int) packed[i];
+					if (edges > rowStart && targets[edges - 1] == target) {
+						weights[edges - 1] = Math.min(weights[edges - 1], distance);
+					} else {
+						targets[edges] = target;
+						weights[edges++] = distance;
+					}
+				}
+				offsets[v] = rowStart;
+			}
+			offsets[n] = edges;
+
+			Map<String, Integer> nodeIds = new LinkedHashMap<>();
+			for (int i = 0; i < n; i++) {
+				nodeIds.put(names[i], i);
+			}
+			return new SparseGraph(names, nodeIds, offsets,
+					edges == count ? targets : Arrays.copyOf(targets, edges),
+					edges == count ? weights : Arrays.copyOf(weights, edges));
+		}
+	}
+}
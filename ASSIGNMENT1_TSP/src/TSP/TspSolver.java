@@ -0,0 +1,216 @@
+package TSP;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless solver API: takes a loaded matrix and a list of stops and returns
+ * the closed route through them, without console prompts or windows.
+ *
+ * <p>
+ * Routes of up to {@link HeldKarp#DEFAULT_LIMIT} stops are solved exactly with
+ * Held-Karp. Longer routes are built with Christofides and improved with 2-opt /
+ * Or-opt and chained LK. The solver keeps no state between calls apart from an
+ * optional {@link RouteCache}, so one instance can serve many threads at once.
+ * Over a {@link LiveMatrix}, each solve works on the snapshot current when it
+ * starts.
+ */
+public class TspSolver {
+	static final int KICKS = 50; // Default double-bridge kicks per route
+
+	private final LiveMatrix matrix; // Distances between matrix ids, read once per solve
+	private final int kicks; // Double-bridge kicks per route
+	private final int exactLimit; // Largest stop count solved exactly with Held-Karp
+	private final RouteCache<Route> cache; // Routes of earlier stop sets, null to solve every call
+
+	public TspSolver(Matrix matrix) {
+		this(matrix, KICKS);
+	}
+
+	public TspSolver(Matrix matrix, int kicks) {
+		this(matrix, kicks, HeldKarp.DEFAULT_LIMIT);
+	}
+
+	public TspSolver(Matrix matrix, int kicks, int exactLimit) {
+		this(matrix, kicks, exactLimit, null);
+	}
+
+	public TspSolver(Matrix matrix, int kicks, int exactLimit, RouteCache<Route> cache) {
+		this(new LiveMatrix(matrix), kicks, exactLimit, cache);
+	}
+
+	public TspSolver(LiveMatrix matrix, int kicks, int exactLimit, RouteCache<Route> cache) {
+		this.matrix = matrix;
+		this.kicks = kicks;
+		this.exactLimit = Math.min(exactLimit, HeldKarp.MAX_VERTICES);
+		this.cache = cache;
+	}
+
+	// Get the current snapshot of the matrix the solver works on
+	public Matrix getMatrix() {
+		return matrix.get();
+	}
+
+	/**
+	 * Solves the route through the given stops. Repeated stops are visited once,
+	 * and the route starts at the first stop. With a cache, a set of stops solved
+	 * before returns the cached route, rotated to the new first stop.
+	 *
+	 * @param stops Names of the stops to visit.
+	 * @return The closed route and its length.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the route are not connected.
+	 */
+	public Route solve(List<String> stops) {
+		return solve(stops, SolveMetrics.NOOP);
+	}
+
+	/**
+	 * Solves the route through the given stops and records the phases of the
+	 * solve.
+	 *
+	 * @param stops   Names of the stops to visit.
+	 * @param metrics Receives the phase measurements.
+	 * @return The closed route and its length.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the route are not connected.
+	 */
+	public Route solve(List<String> stops, SolveMetrics metrics) {
+		return solve(this.matrix.get(), stops, metrics);
+	}
+
+	// Solve on one snapshot of the matrix
+	private Route solve(Matrix snapshot, List<String> stops, SolveMetrics metrics) {
+		Matrix matrix = metrics.track(snapshot); // Counts lookups if enabled
+		List<String> names = new ArrayList<>(new LinkedHashSet<>(stops)); // Drop repeated stops, keep order
+		int[] ids = matrix.getIds(names);
+		int n = ids.length;
+		RouteCache.Key key = null;
+		if (cache != null) {
+			key = RouteCache.Key.tour(matrix, ids, kicks, exactLimit);
+			Route cached = cache.get(key);
+			if (cached != null) {
+				return rotate(cached, names.get(0));
+			}
+		}
+
+		int[] tour = null;
+		if (n <= 3) {
+			tour = new int[n]; // Every order of three or fewer stops is the same cycle
+			for (int i = 0; i < n; i++) {
+				tour[i] = i;
+			}
+		} else if (n <= exactLimit) {
+			metrics.begin(SolveMetrics.Phase.EXACT);
+			tour = HeldKarp.solve(matrix, ids); // Null if no closed tour exists; the heuristic then reports why
+			metrics.end();
+		}
+		if (tour == null) {
+			Multigraph graph = Christofides.multigraph(matrix, ids, metrics);
+			metrics.begin(SolveMetrics.Phase.CIRCUIT);
+			tour = graph.hamiltonianCycle(0);
+			metrics.begin(SolveMetrics.Phase.IMPROVE);
+			int[][] neighbors = NeighborLists.nearest(matrix, ids, LinKernighan.NEIGHBORS);
+			new LocalSearch(matrix, ids, tour, neighbors).run();
+			LinKernighan lk = new LinKernighan(matrix, ids, tour, neighbors);
+			lk.optimize(kicks, new Random(0)); // Fixed seed: the same stops give the same route
+			tour = lk.getTour(0);
+			metrics.end();
+		}
+
+		Route result = toRoute(matrix, names, ids, tour);
+		if (cache != null) {
+			cache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Solves the route through the given stops by a deadline with
+	 * {@link AnytimeSolver} on the calling thread. The cache is bypassed, since
+	 * the route depends on the time it was given.
+	 *
+	 * @param stops    Names of the stops to visit.
+	 * @param deadline When to stop improving and return the best route so far.
+	 * @return The best route found and the time and length after each stage.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the route are not connected.
+	 */
+	public AnytimeSolver.Result solve(List<String> stops, Deadline deadline) {
+		return solve(stops, deadline, SolveMetrics.NOOP);
+	}
+
+	/**
+	 * Solves the route through the given stops by a deadline and records the
+	 * phases of the solve.
+	 *
+	 * @param stops    Names of the stops to visit.
+	 * @param deadline When to stop improving and return the best route so far.
+	 * @param metrics  Receives the phase measurements.
+	 * @return The best route found and the time and length after each stage.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the route are not connected.
+	 */
+	public AnytimeSolver.Result solve(List<String> stops, Deadline deadline, SolveMetrics metrics) {
+		return new AnytimeSolver(matrix, exactLimit, 1).solve(stops, deadline, null, metrics);
+	}
+
+	/**
+	 * Turns a tour of local vertices into a closed route of stop names.
+	 *
+	 * @param matrix The adjacency matrix.
+	 * @param names  Stop name of each local vertex.
+	 * @param ids    Matrix id of each local vertex.
+	 * @param tour   Every local vertex exactly once, in visiting order.
+	 * @return The route and its length.
+	 * @throws IllegalArgumentException If two consecutive stops are not connected.
+	 */
+	static Route toRoute(Matrix matrix, List<String> names, int[] ids, int[] tour) {
+		int n = tour.length;
+		List<String> route = new ArrayList<>(n);
+		long length = 0;
+		for (int i = 0; i < n; i++) {
+			route.add(names.get(tour[i]));
+			if (n > 1) {
+				int from = ids[tour[i]];
+				int to = ids[tour[(i + 1) % n]];
+				int distance = matrix.getDistance(from, to);
+				if (distance == Integer.MAX_VALUE) {
+					throw new IllegalArgumentException(
+							"No connection between " + matrix.getName(from) + " and " + matrix.getName(to));
+				}
+				length += distance;
+			}
+		}
+		return new Route(route, length);
+	}
+
+	// Rotate a closed route so that it starts at the given stop
+	private static Route rotate(Route route, String start) {
+		List<String> stops = route.getStops();
+		int offset = stops.indexOf(start);
+		if (offset <= 0) {
+			return route;
+		}
+		List<String> rotated = new ArrayList<>(stops.size());
+		rotated.addAll(stops.subList(offset, stops.size()));
+		rotated.addAll(stops.subList(0, offset));
+		return new Route(rotated, route.getLength());
+	}
+
+	/**
+	 * Solves the route through the given stops and keeps it open for adding and
+	 * removing stops without a full solve.
+	 *
+	 * @param stops Names of the stops to visit.
+	 * @return The solved route, ready for edits.
+	 * @throws IllegalArgumentException If a stop is unknown or two consecutive
+	 *                                  stops of the route are not connected.
+	 */
+	public IncrementalRoute solveIncremental(List<String> stops) {
+		Matrix snapshot = matrix.get(); // The route and its edits use the same distances
+		return new IncrementalRoute(snapshot, solve(snapshot, stops, SolveMetrics.NOOP));
+	}
+}
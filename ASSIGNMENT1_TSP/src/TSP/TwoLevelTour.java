@@ -0,0 +1,326 @@
+package TSP;
+
+/**
+ * Two-level doubly-linked list representation of a tour.
+ *
+ * <p>
+ * The cities are kept in a flat array that is cut into segments of about
+ * sqrt(n) cities. Each segment is a contiguous slice with its own reversal
+ * bit, and the segments form a doubly-linked ring. Reversing a tour path
+ * splits at most two segments and then flips the reversal bits and links of
+ * whole segments, so a 2-opt move costs O(sqrt(n)) instead of O(n).
+ * Splits only ever shrink segments; once too many segments exist the structure
+ * is rebuilt in O(n), which is amortized over many moves.
+ */
+public class TwoLevelTour {
+	static final int SINGLE_SEGMENT_LIMIT = 1000; // Largest tour kept as one plain array segment
+
+	private final int n; // Number of cities
+	private final int groupSize; // Segment length after a rebuild
+	private final int capacity; // Maximum number of segments before a rebuild
+
+	private final int[] cities; // Cities, each segment is a contiguous slice
+	private final int[] index; // Position of each city in the cities array
+	private final int[] parent; // Segment of each city
+
+	private final int[] low; // First array position of each segment
+	private final int[] high; // Last array position of each segment
+	private final boolean[] reversed; // Whether a segment is traversed from high to low
+	private final int[] segmentNext; // Next segment in the ring
+	private final int[] segmentPrev; // Previous segment in the ring
+	private final int[] rank; // Position of each segment in the ring, counted from segment head
+	private int segmentCount; // Number of segments in use
+
+	/**
+	 * Creates the representation of a tour.
+	 *
+	 * @param tour Every city {@code 0..n-1} exactly once, in tour order.
+	 */
+	public TwoLevelTour(int[] tour) {
+		n = tour.length;
+		// Small tours are one segment: plain array reversals beat the segment bookkeeping there
+		groupSize = n <= SINGLE_SEGMENT_LIMIT ? Math.max(1, n) : Math.max(8, (int) Math.sqrt(n));
+		capacity = 2 * ((n + groupSize - 1) / groupSize) + 8;
+		cities = new int[n];
+		index = new int[n];
+		parent = new int[n];
+		low = new int[capacity];
+		high = new int[capacity];
+		reversed = new boolean[capacity];
+		segmentNext = new int[capacity];
+		segmentPrev = new int[capacity];
+		rank = new int[capacity];
+		layout(tour);
+	}
+
+	// Get the number of cities
+	public int size() {
+		return n;
+	}
+
+	// Successor of a city in tour order
+	public int next(int city) {
+		int s = parent[city];
+		int i = index[city];
+		if (!reversed[s]) {
+			return i < high[s] ? cities[i + 1] : firstCity(segmentNext[s]);
+		}
+		return i > low[s] ? cities[i - 1] : firstCity(segmentNext[s]);
+	}
+
+	// Predecessor of a city in tour order
+	public int prev(int city) {
+		int s = parent[city];
+		int i = index[city];
+		if (!reversed[s]) {
+			return i > low[s] ? cities[i - 1] : lastCity(segmentPrev[s]);
+		}
+		return i < high[s] ? cities[i + 1] : lastCity(segmentPrev[s]);
+	}
+
+	// Check whether b lies on the tour path that starts at a and ends at c
+	public boolean between(int a, int b, int c) {
+		long pa = order(a);
+		long pb = order(b);
+		long pc = order(c);
+		if (pa <= pc) {
+			return pa <= pb && pb <= pc;
+		}
+		return pb >= pa || pb <= pc; // The path wraps around the head segment
+	}
+
+	/**
+	 * Replaces the tour edges (a, b) and (c, d) by (a, c) and (b, d). The edges
+	 * must point the same way: either b and d follow a and c, or they precede them.
+	 */
+	public void twoOptMove(int a, int b, int c, int d) {
+		if (next(a) == b) {
+			reversePath(b, c);
+		} else {
+			reversePath(a, d);
+		}
+	}
+
+	// Write the cities in tour order, starting at the given city
+	public int[] toArray(int start) {
+		int[] tour = new int[n];
+		int city = start;
+		for (int i = 0; i < n; i++) {
+			tour[i] = city;
+			city = next(city);
+		}
+		return tour;
+	}
+
+	// Reverse the tour path from a forward to b
+	private void reversePath(int a, int b) {
+		if (a == b || next(b) == a) {
+			return; // A single city or the whole cycle: the cycle stays the same
+		}
+		int sa = parent[a];
+		int sb = parent[b];
+		if (sa == sb) {
+			if (offset(a) > offset(b)) {
+				reversePath(next(b), prev(a)); // The complement lies within the segment, mostly
+			} else if (segmentCount == 1 && 2 * (offset(b) - offset(a) + 1) > n) {
+				reverseWrapped(next(b), prev(a)); // The complement wraps around the array but is shorter
+			} else {
+				reverseInSegment(a, b);
+			}
+			return;
+		}
+
+		if (segmentCount + 2 > capacity) {
+			layout(toArray(a)); // Too many small segments: start over with even ones
+		}
+		splitBefore(a);
+		if (next(b) != firstCity(parent[b])) {
+			splitBefore(next(b));
+		}
+		int first = parent[a];
+		int last = parent[b];
+
+		// Reverse the shorter of the segment run and its complement
+		int length = rank[last] - rank[first];
+		if (length < 0) {
+			length += segmentCount;
+		}
+		length++;
+		if (2 * length > segmentCount) {
+			int complementFirst = segmentNext[last];
+			last = segmentPrev[first];
+			first = complementFirst;
+		}
+		reverseSegments(first, last);
+	}
+
+	// Reverse a path whose cities all lie in one segment, in logical order a before b
+	private void reverseInSegment(int a, int b) {
+		int i = Math.min(index[a], index[b]);
+		int j = Math.max(index[a], index[b]);
+		while (i < j) {
+			int ci = cities[i];
+			int cj = cities[j];
+			cities[i] = cj;
+			index[cj] = i;
+			cities[j] = ci;
+			index[ci] = j;
+			i++;
+			j--;
+		}
+	}
+
+	// Reverse a path of the single segment that runs past the array end back to the start
+	private void reverseWrapped(int a, int b) {
+		int step = reversed[0] ? -1 : 1; // Array direction of the tour order
+		int i = index[a];
+		int j = index[b];
+		int length = offset(b) - offset(a);
+		if (length < 0) {
+			length += n;
+		}
+		for (int swaps = (length + 1) / 2; swaps > 0; swaps--) {
+			int ci = cities[i];
+			int cj = cities[j];
+			cities[i] = cj;
+			index[cj] = i;
+			cities[j] = ci;
+			index[ci] = j;
+			i = Math.floorMod(i + step, n);
+			j = Math.floorMod(j - step, n);
+		}
+	}
+
+	// Reverse the run of whole segments from first to last in ring order
+	private void reverseSegments(int first, int last) {
+		int before = segmentPrev[first];
+		int after = segmentNext[last];
+		int s = first;
+		while (true) {
+			int following = segmentNext[s];
+			segmentNext[s] = segmentPrev[s];
+			segmentPrev[s] = following;
+			reversed[s] = !reversed[s];
+			if (s == last) {
+				break;
+			}
+			s = following;
+		}
+		if (before == last) {
+			// The run and its neighbors make up the whole ring
+			segmentNext[last] = first;
+			segmentPrev[first] = last;
+		} else {
+			segmentNext[before] = last;
+			segmentPrev[last] = before;
+			segmentNext[first] = after;
+			segmentPrev[after] = first;
+		}
+		renumber(last);
+	}
+
+	// Split the segment of a city so that the city becomes its logical first city
+	private void splitBefore(int city) {
+		int s = parent[city];
+		if (firstCity(s) == city) {
+			return;
+		}
+		int i = index[city];
+		// Array ranges of the logical head (cities before the split) and tail (from the city on)
+		int headLow;
+		int headHigh;
+		int tailLow;
+		int tailHigh;
+		if (!reversed[s]) {
+			headLow = low[s];
+			headHigh = i - 1;
+			tailLow = i;
+			tailHigh = high[s];
+		} else {
+			headLow = i + 1;
+			headHigh = high[s];
+			tailLow = low[s];
+			tailHigh = i;
+		}
+
+		// The smaller part moves to a new segment so that fewer parents change
+		int t = segmentCount++;
+		reversed[t] = reversed[s];
+		boolean headMoves = headHigh - headLow <= tailHigh - tailLow;
+		if (headMoves) {
+			low[t] = headLow;
+			high[t] = headHigh;
+			low[s] = tailLow;
+			high[s] = tailHigh;
+			// Link t before s
+			int before = segmentPrev[s];
+			segmentNext[before] = t;
+			segmentPrev[t] = before;
+			segmentNext[t] = s;
+			segmentPrev[s] = t;
+		} else {
+			low[t] = tailLow;
+			high[t] = tailHigh;
+			low[s] = headLow;
+			high[s] = headHigh;
+			// Link t after s
+			int after = segmentNext[s];
+			segmentPrev[after] = t;
+			segmentNext[t] = after;
+			segmentPrev[t] = s;
+			segmentNext[s] = t;
+		}
+		for (int p = low[t]; p <= high[t]; p++) {
+			parent[cities[p]] = t;
+		}
+		renumber(t);
+	}
+
+	// Assign ring ranks starting from the given segment
+	private void renumber(int head) {
+		int s = head;
+		for (int r = 0; r < segmentCount; r++) {
+			rank[s] = r;
+			s = segmentNext[s];
+		}
+	}
+
+	// Logical first city of a segment
+	private int firstCity(int s) {
+		return reversed[s] ? cities[high[s]] : cities[low[s]];
+	}
+
+	// Logical last city of a segment
+	private int lastCity(int s) {
+		return reversed[s] ? cities[low[s]] : cities[high[s]];
+	}
+
+	// Logical position of a city within its segment
+	private int offset(int city) {
+		int s = parent[city];
+		return reversed[s] ? high[s] - index[city] : index[city] - low[s];
+	}
+
+	// Position of a city in tour order, counted from the head segment
+	private long order(int city) {
+		return ((long) rank[parent[city]] << 32) | offset(city);
+	}
+
+	// Lay the tour out in even segments
+	private void layout(int[] tour) {
+		segmentCount = (n + groupSize - 1) / groupSize;
+		for (int i = 0; i < n; i++) {
+			cities[i] = tour[i];
+			index[tour[i]] = i;
+			parent[tour[i]] = i / groupSize;
+		}
+		for (int s = 0; s < segmentCount; s++) {
+			low[s] = s * groupSize;
+			high[s] = Math.min(n, (s + 1) * groupSize) - 1;
+			reversed[s] = false;
+			segmentNext[s] = s + 1 == segmentCount ? 0 : s + 1;
+			segmentPrev[s] = s == 0 ? segmentCount - 1 : s - 1;
+			rank[s] = s;
+		}
+	}
+}
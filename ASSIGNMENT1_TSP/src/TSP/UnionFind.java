@@ -0,0 +1,68 @@
+package TSP;
+
+/**
+ * Disjoint sets over the integers {@code 0..n-1}, with union by size and path
+ * halving, so any sequence of operations runs in near-constant amortized time
+ * per operation.
+ *
+ * <p>
+ * Not thread-safe: {@link #find} shortens paths as it walks them.
+ */
+public class UnionFind {
+	private final int[] parent; // Parent of each element, the element itself for a set representative
+	private final int[] size; // Number of elements in each set, valid for representatives only
+	private int count; // Number of disjoint sets
+
+	public UnionFind(int n) {
+		parent = new int[n];
+		size = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i; // Every element starts in a set of its own
+			size[i] = 1;
+		}
+		count = n;
+	}
+
+	// Get the representative of the set that contains an element
+	public int find(int element) {
+		while (parent[element] != element) {
+			parent[element] = parent[parent[element]]; // Halve the path while walking it
+			element = parent[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Merges the sets of two elements; the larger set's representative stays.
+	 *
+	 * @param a An element.
+	 * @param b Another element.
+	 * @return True if the elements were in different sets.
+	 */
+	public boolean union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if (rootA == rootB) {
+			return false;
+		}
+		if (size[rootA] < size[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+		count--;
+		return true;
+	}
+
+	// Check whether two elements are in the same set
+	public boolean connected(int a, int b) {
+		return find(a) == find(b);
+	}
+
+	// Get the number of disjoint sets
+	public int count() {
+		return count;
+	}
+}
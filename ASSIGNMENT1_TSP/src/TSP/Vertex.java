@@ -7,6 +7,7 @@ public class Vertex {
 	private String name; // Name of the vertex
 	List<Edge> connectedVertices = new ArrayList<>(); // List of edges connected to the vertex
 	Edge edge; // Current edge of the vertex
+	int id = -1; // Matrix id of the vertex, -1 until resolved
 
 	public Vertex(String name) {
 		this.name = name; // Initialize the vertex with its name
@@ -0,0 +1,94 @@
+package TSP;
+
+import static TSP.TestMatrices.X;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class AllPairsShortestPathsTest {
+	// Raise, lower, add and remove a few random connections
+	static EdgeArrays randomChanges(Random random, Matrix matrix) {
+		int n = matrix.size();
+		EdgeArrays changes = new EdgeArrays();
+		int count = 1 + random.nextInt(6);
+		for (int i = 0; i < count; i++) {
+			int from = random.nextInt(n);
+			int to = (from + 1 + random.nextInt(n - 1)) % n; // The diagonal stays 0
+			int weight = matrix.getDistance(from, to);
+			switch (random.nextInt(4)) {
+			case 0:
+				changes.add(from, to, X);
+				break;
+			case 1:
+				changes.add(from, to, random.nextInt(100));
+				break;
+			default:
+				changes.add(from, to, weight == X ? random.nextInt(100) : Math.max(0, weight + random.nextInt(40) - 20));
+			}
+		}
+		return changes;
+	}
+
+	@Test
+	void repairMatchesRebuild() {
+		Random random = new Random(1);
+		for (int trial = 0; trial < 300; trial++) {
+			int n = 2 + random.nextInt(trial < 290 ? 30 : 200);
+			Matrix matrix = TestMatrices.random(random, n, random.nextDouble());
+			AllPairsShortestPaths table = AllPairsShortestPaths.build(matrix);
+			for (int step = 0; step < 4; step++) {
+				EdgeArrays changes = randomChanges(random, matrix);
+				Matrix updated = matrix.withDistances(changes);
+				AllPairsShortestPaths repaired = table.repair(matrix, updated, changes);
+				AllPairsShortestPaths rebuilt = AllPairsShortestPaths.build(updated);
+				for (int from = 0; from < n; from++) {
+					for (int to = 0; to < n; to++) {
+						int distance = rebuilt.getDistance(from, to);
+						assertEquals(distance, repaired.getDistance(from, to), "distance " + from + " -> " + to);
+						if (distance != X) {
+							assertEquals(distance, pathLength(updated, repaired.getPath(from, to)), "path " + from + " -> " + to);
+						}
+					}
+				}
+				matrix = updated;
+				table = repaired;
+			}
+		}
+	}
+
+	// Length of a path of node ids over the matrix
+	private static long pathLength(Matrix matrix, int[] path) {
+		long length = 0;
+		for (int i = 0; i + 1 < path.length; i++) {
+			length += matrix.getDistance(path[i], path[i + 1]);
+		}
+		return length;
+	}
+
+	@Test
+	void concurrentCallersShareOneBuild() throws Exception {
+		Matrix matrix = TestMatrices.random(new Random(7), 400, 0.5);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<AllPairsShortestPaths>> calls = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				calls.add(pool.submit(() -> AllPairsShortestPaths.forMatrix(matrix)));
+			}
+			AllPairsShortestPaths first = calls.get(0).get();
+			for (Future<AllPairsShortestPaths> call : calls) {
+				assertSame(first, call.get());
+			}
+			assertSame(first, AllPairsShortestPaths.forMatrix(matrix));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class AnytimeSolverTest {
+	@Test
+	void exactStageIsSkippedWhenItWouldMissTheDeadline() {
+		Matrix matrix = TestMatrices.symmetric(new Random(8), HeldKarp.MAX_VERTICES, 1.0);
+		List<String> stops = new ArrayList<>(matrix.getNodes());
+		AnytimeSolver solver = new AnytimeSolver(new LiveMatrix(matrix), HeldKarp.MAX_VERTICES, 1);
+
+		AnytimeSolver.Result result = solver.solve(stops, Deadline.after(20));
+		assertEquals("christofides", result.getStages().get(0).getName());
+		assertEquals(stops.size(), result.getTour().length);
+
+		result = solver.solve(stops.subList(0, 10), Deadline.after(60_000));
+		assertEquals("exact", result.getStages().get(0).getName());
+		assertTrue(AnytimeSolver.exactFits(HeldKarp.MAX_VERTICES, Deadline.never()));
+	}
+
+	@Test
+	void interruptStopsSolveWhileWaitingForHelpers() throws InterruptedException {
+		Matrix matrix = TestMatrices.symmetric(new Random(7), 30, 1.0);
+		List<String> stops = new ArrayList<>(matrix.getNodes());
+		ForkJoinPool pool = new ForkJoinPool(1);
+		CountDownLatch release = new CountDownLatch(1);
+		pool.submit(() -> {
+			release.await(); // Occupies the only pool thread, so the LK helpers stay queued
+			return null;
+		});
+		AnytimeSolver solver = new AnytimeSolver(new LiveMatrix(matrix), 0, 4, pool);
+		AtomicReference<AnytimeSolver.Result> result = new AtomicReference<>();
+		AtomicBoolean interruptKept = new AtomicBoolean();
+		Thread solving = new Thread(() -> {
+			result.set(solver.solve(stops, Deadline.never()));
+			interruptKept.set(Thread.currentThread().isInterrupted());
+		});
+
+		try {
+			solving.start();
+			Thread.sleep(500); // The worker on the solving thread runs out of kicks long before
+			solving.interrupt();
+			solving.join(2000);
+			assertFalse(solving.isAlive(), "the solve ignored the interrupt while waiting for its helpers");
+		} finally {
+			release.countDown();
+			pool.shutdown();
+		}
+		assertTrue(result.get().isDeadlineReached());
+		assertTrue(interruptKept.get());
+	}
+}
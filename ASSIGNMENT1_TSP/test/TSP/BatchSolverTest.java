@@ -0,0 +1,36 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BatchSolverTest {
+	private final BatchSolver batch = new BatchSolver(
+			new TspSolver(TestMatrices.symmetric(new Random(8), 40, 1.0), 50, 0), 1, true);
+
+	@Test
+	void deadlineJobsCarryMetrics() {
+		BatchSolver.Result result = batch.solveJob(
+				"{\"id\":\"1\",\"deadline\":200,\"stops\":[\"N0\",\"N5\",\"N9\",\"N12\",\"N20\",\"N33\"]}");
+
+		assertNull(result.error);
+		assertEquals(6, result.route.size());
+		assertNotNull(result.anytime);
+		assertNotNull(result.metrics);
+		Map<?, ?> phases = (Map<?, ?>) result.metrics.get("phases");
+		assertTrue(phases.containsKey("mst"));
+		assertTrue(phases.containsKey("improve"));
+	}
+
+	@Test
+	void badJobsReportErrors() {
+		assertEquals("Unknown node: Q", batch.solveJob("{\"stops\":[\"N0\",\"Q\"]}").error);
+		assertNotNull(batch.solveJob("{\"stops\":").error);
+	}
+}
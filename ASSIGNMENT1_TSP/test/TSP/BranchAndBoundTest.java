@@ -0,0 +1,67 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class BranchAndBoundTest {
+	@Test
+	void matchesHeldKarpOnSymmetricMatrices() {
+		Random random = new Random(19);
+		for (int trial = 0; trial < 300; trial++) {
+			checkOptimal(TestMatrices.symmetric(random, 4 + random.nextInt(9), 1));
+		}
+	}
+
+	@Test
+	void matchesHeldKarpOnAsymmetricMatrices() {
+		Random random = new Random(20);
+		for (int trial = 0; trial < 60; trial++) {
+			checkOptimal(TestMatrices.random(random, 4 + random.nextInt(9), 1));
+		}
+	}
+
+	@Test
+	void timeLimitReportsGap() {
+		Matrix matrix = TestMatrices.symmetric(new Random(21), 150, 1);
+		int[] ids = TestMatrices.identity(150);
+		int[] start = TestMatrices.identity(150); // A poor tour, so the search cannot finish in time
+
+		long begin = System.nanoTime();
+		BranchAndBound.Result result = BranchAndBound.solve(matrix, ids, start, 50, ForkJoinPool.commonPool());
+		long millis = (System.nanoTime() - begin) / 1_000_000;
+
+		assertTrue(millis < 5000, "Took " + millis + " ms");
+		assertFalse(result.isOptimal());
+		assertTrue(result.getLowerBound() <= result.getLength());
+		assertTrue(result.getGap() > 0 && result.getGap() < 1);
+		assertTrue(result.getLength() <= TestMatrices.tourLength(matrix, start));
+		assertEquals(TestMatrices.tourLength(matrix, result.getTour()), result.getLength());
+		assertEquals(0, result.getTour()[0]);
+		int[] sorted = result.getTour();
+		Arrays.sort(sorted);
+		assertArrayEquals(ids, sorted);
+	}
+
+	// Solve with a generous time limit and compare with the dynamic program
+	private static void checkOptimal(Matrix matrix) {
+		int[] ids = TestMatrices.identity(matrix.size());
+		long expected = HeldKarp.length(matrix, ids, HeldKarp.solve(matrix, ids));
+
+		BranchAndBound.Result result = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> BranchAndBound.solve(matrix, ids, 10_000));
+
+		assertTrue(result.isOptimal());
+		assertEquals(expected, result.getLength());
+		assertEquals(expected, TestMatrices.tourLength(matrix, result.getTour()));
+	}
+}
@@ -0,0 +1,60 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class HeldKarpTest {
+	@Test
+	void matchesBruteForce() {
+		Random random = new Random(12);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 4 + random.nextInt(5);
+			Matrix matrix = TestMatrices.random(random, n, 1.0);
+			int[] ids = new int[n];
+			for (int i = 0; i < n; i++) {
+				ids[i] = i;
+			}
+			int[] tour = new int[n];
+			for (int i = 0; i < n; i++) {
+				tour[i] = i;
+			}
+			assertEquals(shortest(matrix, ids, tour, 1), HeldKarp.length(matrix, ids, HeldKarp.solve(matrix, ids)));
+		}
+	}
+
+	@Test
+	void rejectsTablesTooLargeForTheHeap() {
+		int n = HeldKarp.MAX_VERTICES + 1;
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			ids[i] = i;
+		}
+		Matrix matrix = TestMatrices.random(new Random(13), n, 1.0);
+
+		assertThrows(IllegalArgumentException.class, () -> HeldKarp.solve(matrix, ids));
+	}
+
+	// Shortest closed tour over all orders of tour[from..], vertex 0 fixed in front
+	private static long shortest(Matrix matrix, int[] ids, int[] tour, int from) {
+		if (from == tour.length) {
+			return HeldKarp.length(matrix, ids, tour);
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = from; i < tour.length; i++) {
+			swap(tour, from, i);
+			best = Math.min(best, shortest(matrix, ids, tour, from + 1));
+			swap(tour, from, i);
+		}
+		return best;
+	}
+
+	private static void swap(int[] values, int i, int j) {
+		int swap = values[i];
+		values[i] = values[j];
+		values[j] = swap;
+	}
+}
@@ -0,0 +1,62 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalRouteTest {
+	private static final int X = Integer.MAX_VALUE; // No connection
+
+	// A -> B is missing, so the route already pays for one missing connection
+	private static final String[] NAMES = { "A", "B", "C", "D" };
+	private static final int[] DISTANCES = {
+			0, X, 10, 1,
+			10, 0, 10, 20,
+			10, 10, 0, 20,
+			1, X, 1, 0 };
+
+	private static IncrementalRoute route() {
+		Matrix matrix = new Matrix(NAMES, DISTANCES.clone());
+		return new IncrementalRoute(matrix, new Route(List.of("A", "B", "C"), (long) X + 20));
+	}
+
+	@Test
+	void addStopSkipsInsertionsOverMissingConnections() {
+		IncrementalRoute route = route();
+
+		// Between A and B the insertion looks free (1 + X - X) but D -> B does not exist
+		assertTrue(route.addStop("D"));
+
+		assertEquals(List.of("A", "B", "D", "C"), route.getRoute().getStops());
+		assertEquals((long) X + 20 + 11, route.getLength());
+	}
+
+	@Test
+	void addStopRejectsStopWithoutConnections() {
+		int[] distances = DISTANCES.clone();
+		for (int i = 0; i < 3; i++) {
+			distances[i * 4 + 3] = X;
+			distances[3 * 4 + i] = X;
+		}
+		IncrementalRoute route = new IncrementalRoute(new Matrix(NAMES, distances),
+				new Route(List.of("A", "B", "C"), (long) X + 20));
+
+		assertThrows(IllegalArgumentException.class, () -> route.addStop("D"));
+
+		assertFalse(route.contains("D"));
+		assertEquals(List.of("A", "B", "C"), route.getRoute().getStops());
+	}
+
+	@Test
+	void addStopIgnoresStopsOnTheRoute() {
+		IncrementalRoute route = route();
+
+		assertFalse(route.addStop("B"));
+		assertEquals(3, route.size());
+	}
+}
@@ -0,0 +1,64 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LinKernighanTest {
+	@Test
+	void asymmetricMatricesTerminate() {
+		Random random = new Random(14);
+		for (int trial = 0; trial < 40; trial++) {
+			checkImproves(TestMatrices.random(random, 5 + random.nextInt(60), random.nextDouble() < 0.5 ? 1 : 0.6));
+		}
+	}
+
+	@Test
+	void symmetricMatricesImprove() {
+		Random random = new Random(15);
+		for (int trial = 0; trial < 20; trial++) {
+			checkImproves(TestMatrices.symmetric(random, 5 + random.nextInt(60), 1));
+		}
+	}
+
+	@Test
+	void solverFinishesOnAsymmetricMatrices() {
+		Random random = new Random(16);
+		for (int n : new int[] { 14, 39, 53 }) {
+			Matrix matrix = TestMatrices.random(random, n, 1);
+			List<String> stops = new ArrayList<>(matrix.getNodes());
+
+			Route route = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> new TspSolver(matrix).solve(stops));
+
+			assertEquals(TestMatrices.tourLength(matrix, matrix.getIds(route.getStops())), route.getLength());
+			assertEquals(stops.get(0), route.getStops().get(0));
+		}
+	}
+
+	// Improve the identity tour with kicks and check the result is a shorter tour whose length is reported correctly
+	private static void checkImproves(Matrix matrix) {
+		int n = matrix.size();
+		int[] ids = TestMatrices.identity(n);
+		int[] tour = TestMatrices.identity(n);
+		long before = TestMatrices.tourLength(matrix, tour);
+
+		long after = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> LinKernighan.improve(matrix, ids, tour, 50, 1));
+
+		assertEquals(TestMatrices.tourLength(matrix, tour), after);
+		assertTrue(after <= before);
+		assertEquals(0, tour[0]);
+		int[] sorted = tour.clone();
+		Arrays.sort(sorted);
+		assertArrayEquals(TestMatrices.identity(n), sorted);
+	}
+}
@@ -0,0 +1,82 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LiveMatrixTest {
+	@Test
+	void updateKeepsOldSnapshotUnchanged() {
+		Random random = new Random(2);
+		LiveMatrix live = new LiveMatrix(TestMatrices.random(random, 20, 0.5));
+		Matrix old = live.get();
+		EdgeArrays changes = new EdgeArrays();
+		changes.add(0, 1, 7);
+		int before = old.getDistance(0, 1);
+
+		Matrix updated = live.update(changes);
+
+		assertEquals(updated, live.get());
+		assertEquals(7, updated.getDistance(0, 1));
+		assertEquals(before, old.getDistance(0, 1));
+		assertEquals(old.getEpoch() + 1, updated.getEpoch());
+		assertNotEquals(old.getVersion(), updated.getVersion());
+	}
+
+	@Test
+	void updatesDoNotKeepOldSnapshotsAlive() throws InterruptedException {
+		Random random = new Random(3);
+		LiveMatrix live = new LiveMatrix(TestMatrices.random(random, 300, 0.5));
+		AllPairsShortestPaths.forMatrix(live.get()); // Cached tables are carried over to every update
+		PointToPointSearch.forMatrix(live.get());
+		WeakReference<Matrix> first = new WeakReference<>(live.get());
+
+		for (int i = 0; i < 40; i++) {
+			live.update(AllPairsShortestPathsTest.randomChanges(random, live.get()));
+		}
+		for (int i = 0; i < 50 && first.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertNull(first.get(), "the first snapshot is still reachable from the caches");
+	}
+
+	@Test
+	void diagonalChangesAreRejected() {
+		LiveMatrix live = new LiveMatrix(TestMatrices.symmetric(new Random(17), 10, 1));
+		Matrix before = live.get();
+		String a = before.getName(0);
+
+		assertThrows(IllegalArgumentException.class, () -> live.update(Map.of(a, Map.of(a, 5))));
+		assertSame(before, live.get());
+	}
+
+	@Test
+	void oneDirectionUpdatesKeepSolvesFinishing() {
+		Random random = new Random(18);
+		LiveMatrix live = new LiveMatrix(TestMatrices.symmetric(random, 40, 1));
+		String a = live.get().getName(0);
+		String b = live.get().getName(1);
+		live.update(Map.of(a, Map.of(b, 1))); // Only A to B, the way back keeps its distance
+
+		assertFalse(live.get().isSymmetric());
+		List<String> stops = new ArrayList<>(live.get().getNodes());
+		Route route = assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> new TspSolver(live, TspSolver.KICKS, HeldKarp.DEFAULT_LIMIT, null).solve(stops));
+		assertEquals(TestMatrices.tourLength(live.get(), live.get().getIds(route.getStops())), route.getLength());
+	}
+}
@@ -0,0 +1,46 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LocalSearchTest {
+	@Test
+	void asymmetricMatricesTerminate() {
+		Random random = new Random(12);
+		for (int trial = 0; trial < 40; trial++) {
+			checkImproves(TestMatrices.random(random, 5 + random.nextInt(60), random.nextDouble() < 0.5 ? 1 : 0.6));
+		}
+	}
+
+	@Test
+	void symmetricMatricesImprove() {
+		Random random = new Random(13);
+		for (int trial = 0; trial < 20; trial++) {
+			checkImproves(TestMatrices.symmetric(random, 5 + random.nextInt(60), 1));
+		}
+	}
+
+	// Improve the identity tour and check the result is a shorter tour whose length is reported correctly
+	private static void checkImproves(Matrix matrix) {
+		int n = matrix.size();
+		int[] ids = TestMatrices.identity(n);
+		int[] tour = TestMatrices.identity(n);
+		long before = TestMatrices.tourLength(matrix, tour);
+
+		long after = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> LocalSearch.improve(matrix, ids, tour));
+
+		assertEquals(TestMatrices.tourLength(matrix, tour), after);
+		assertTrue(after <= before);
+		int[] sorted = tour.clone();
+		Arrays.sort(sorted);
+		assertArrayEquals(TestMatrices.identity(n), sorted);
+	}
+}
@@ -0,0 +1,67 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MatrixFileTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripKeepsNamesAndDistances() throws IOException {
+		Matrix matrix = TestMatrices.random(new Random(12), 9, 0.6);
+		Path file = dir.resolve("matrix.bin");
+		MatrixFile.write(matrix, file.toString());
+
+		Matrix loaded = MatrixFile.load(file.toString());
+		assertEquals(matrix.getNodes(), loaded.getNodes());
+		for (int from = 0; from < matrix.size(); from++) {
+			for (int to = 0; to < matrix.size(); to++) {
+				assertEquals(matrix.getDistance(from, to), loaded.getDistance(from, to));
+			}
+		}
+	}
+
+	@Test
+	void corruptFilesAreRejectedWithIOException() throws IOException {
+		Path file = dir.resolve("matrix.bin");
+		MatrixFile.write(TestMatrices.random(new Random(13), 9, 1), file.toString());
+		byte[] valid = Files.readAllBytes(file);
+
+		assertRejected(Arrays.copyOf(valid, 10)); // Header cut short
+		assertRejected(Arrays.copyOf(valid, valid.length - 1)); // Distance block cut short
+		assertRejected(Arrays.copyOf(valid, 30)); // Name table cut short
+		assertRejected(withInt(valid, 8, 10)); // One node more than the file holds
+		assertRejected(withInt(valid, 8, Integer.MAX_VALUE)); // Node count far beyond the file
+		assertRejected(withInt(valid, 12, Integer.MAX_VALUE)); // Name table longer than the file
+		assertRejected(withInt(valid, 12, -4)); // Negative name table length
+
+		byte[] longName = valid.clone();
+		longName[16] = (byte) 0xFF; // First name claims more bytes than the table has
+		longName[17] = (byte) 0xFF;
+		assertRejected(longName);
+	}
+
+	private void assertRejected(byte[] contents) throws IOException {
+		Path file = Files.write(dir.resolve("corrupt.bin"), contents);
+		assertThrows(IOException.class, () -> MatrixFile.load(file.toString()));
+	}
+
+	// Copy of the file with a little-endian int replaced
+	private static byte[] withInt(byte[] contents, int position, int value) {
+		byte[] copy = contents.clone();
+		ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+		return copy;
+	}
+}
@@ -0,0 +1,52 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MatrixTest {
+	@Test
+	void oversizedMatricesAreRejected() {
+		String[] names = new String[1 << 16]; // names.length * names.length wraps around to 0 in int arithmetic
+
+		assertThrows(IllegalArgumentException.class, () -> new Matrix(names, new int[0]));
+		assertTrue((long) Matrix.MAX_SIZE * Matrix.MAX_SIZE <= Integer.MAX_VALUE);
+		assertTrue((long) (Matrix.MAX_SIZE + 1) * (Matrix.MAX_SIZE + 1) > Integer.MAX_VALUE);
+	}
+
+	@Test
+	void symmetryIsCheckedOnceAndCarriedThroughUpdates() {
+		Random random = new Random(11);
+		Matrix symmetric = TestMatrices.symmetric(random, 150, 0.5);
+		Matrix asymmetric = TestMatrices.random(random, 150, 0.5);
+
+		assertTrue(symmetric.isSymmetric());
+		assertFalse(asymmetric.isSymmetric());
+
+		EdgeArrays both = new EdgeArrays();
+		both.add(3, 7, 42);
+		both.add(7, 3, 42);
+		assertTrue(symmetric.withDistances(both).isSymmetric());
+		EdgeArrays one = new EdgeArrays();
+		one.add(3, 7, 42);
+		assertFalse(symmetric.withDistances(one).isSymmetric());
+		one.add(7, 3, 42); // The later change restores the reverse distance
+		assertTrue(symmetric.withDistances(one).isSymmetric());
+	}
+
+	@Test
+	void unknownStopsAreRejected() {
+		Matrix matrix = TestMatrices.symmetric(new Random(9), 10, 1);
+		String a = matrix.getName(0);
+		String b = matrix.getName(1);
+
+		assertThrows(IllegalArgumentException.class, () -> matrix.getIds(List.of(a, "Nowhere")));
+		assertThrows(IllegalArgumentException.class,
+				() -> new PickupDeliverySolver(matrix).solve("Nowhere", b, List.of(a), List.of(b)));
+	}
+}
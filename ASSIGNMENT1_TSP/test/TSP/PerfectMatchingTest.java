@@ -0,0 +1,107 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PerfectMatchingTest {
+	@Test
+	void blossomMatchesBruteForce() {
+		Random random = new Random(22);
+		double[] densities = { 1, 0.7, 0.4 };
+		for (int trial = 0; trial < 600; trial++) {
+			int n = 1 + random.nextInt(12);
+			Matrix matrix = TestMatrices.symmetric(random, n, densities[trial % densities.length]);
+			int[] ids = TestMatrices.identity(n);
+
+			int[] mate = PerfectMatching.blossom(matrix, ids);
+
+			long[] best = bruteForce(matrix, new int[n], 0, new long[] { -1, 0 }, 0, 0);
+			checkMatching(matrix, mate);
+			assertEquals(best[0], pairs(mate), "Pairs for n = " + n);
+			assertEquals(best[1], weight(matrix, mate), "Weight for n = " + n);
+		}
+	}
+
+	@Test
+	void greedyIsValidAndNoBetterThanBlossom() {
+		Random random = new Random(23);
+		for (int trial = 0; trial < 10; trial++) {
+			int n = 2 * (50 + random.nextInt(150));
+			Matrix matrix = TestMatrices.symmetric(random, n, 1);
+			int[] ids = TestMatrices.identity(n);
+
+			int[] greedy = PerfectMatching.greedy(matrix, ids);
+			int[] exact = PerfectMatching.blossom(matrix, ids);
+
+			checkMatching(matrix, greedy);
+			checkMatching(matrix, exact);
+			assertEquals(n / 2, pairs(greedy));
+			assertEquals(n / 2, pairs(exact));
+			assertTrue(weight(matrix, greedy) >= weight(matrix, exact));
+		}
+	}
+
+	// Every mate points back, and every matched pair is connected
+	private static void checkMatching(Matrix matrix, int[] mate) {
+		for (int v = 0; v < mate.length; v++) {
+			if (mate[v] != -1) {
+				assertNotEquals(v, mate[v]);
+				assertEquals(v, mate[mate[v]]);
+				assertNotEquals(TestMatrices.X, matrix.getDistance(v, mate[v]));
+			}
+		}
+	}
+
+	private static long pairs(int[] mate) {
+		long pairs = 0;
+		for (int v = 0; v < mate.length; v++) {
+			if (mate[v] > v) {
+				pairs++;
+			}
+		}
+		return pairs;
+	}
+
+	private static long weight(Matrix matrix, int[] mate) {
+		long weight = 0;
+		for (int v = 0; v < mate.length; v++) {
+			if (mate[v] > v) {
+				weight += matrix.getDistance(v, mate[v]);
+			}
+		}
+		return weight;
+	}
+
+	// Most pairs, then least weight, over all matchings that extend the choices made for vertices before from
+	private static long[] bruteForce(Matrix matrix, int[] mate, int from, long[] best, long pairs, long weight) {
+		int n = mate.length;
+		while (from < n && mate[from] != 0) {
+			from++; // Already matched, stored as mate + 1
+		}
+		if (from == n) {
+			if (pairs > best[0] || (pairs == best[0] && weight < best[1])) {
+				best[0] = pairs;
+				best[1] = weight;
+			}
+			return best;
+		}
+		mate[from] = -1; // Leave unmatched
+		bruteForce(matrix, mate, from + 1, best, pairs, weight);
+		for (int other = from + 1; other < n; other++) {
+			int distance = matrix.getDistance(from, other);
+			if (mate[other] == 0 && distance != TestMatrices.X) {
+				mate[from] = other + 1;
+				mate[other] = from + 1;
+				bruteForce(matrix, mate, from + 1, best, pairs + 1, weight + distance);
+				mate[other] = 0;
+			}
+		}
+		mate[from] = 0;
+		return best;
+	}
+}
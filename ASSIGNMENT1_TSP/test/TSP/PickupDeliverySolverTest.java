@@ -0,0 +1,64 @@
+package TSP;
+
+import static TSP.TestMatrices.X;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PickupDeliverySolverTest {
+	@Test
+	void keepsPrecedenceAndFixedEnds() {
+		Random random = new Random(24);
+		for (int trial = 0; trial < 100; trial++) {
+			Matrix matrix = trial % 2 == 0 ? TestMatrices.symmetric(random, 30, 0.3) : TestMatrices.random(random, 30, 1);
+			List<String> names = new ArrayList<>(matrix.getNodes());
+			Collections.shuffle(names, random);
+			int pickupCount = random.nextInt(8);
+			int dropoffCount = random.nextInt(8); // Unequal counts leave unpaired zones
+			String start = names.get(0);
+			String end = names.get(1);
+			List<String> pickups = names.subList(2, 2 + pickupCount);
+			List<String> dropoffs = names.subList(2 + pickupCount, 2 + pickupCount + dropoffCount);
+			AllPairsShortestPaths paths = AllPairsShortestPaths.build(matrix);
+
+			PickupDeliverySolver.Plan plan = new PickupDeliverySolver(matrix).solve(start, end, pickups, dropoffs);
+
+			List<String> stops = plan.getStops();
+			assertEquals(2 + pickupCount + dropoffCount, stops.size());
+			assertEquals(start, stops.get(0));
+			assertEquals(end, stops.get(stops.size() - 1));
+			assertTrue(stops.containsAll(pickups) && stops.containsAll(dropoffs));
+			for (int i = 0; i < Math.min(pickupCount, dropoffCount); i++) {
+				assertTrue(stops.indexOf(pickups.get(i)) < stops.indexOf(dropoffs.get(i)),
+						"Drop-off " + dropoffs.get(i) + " before its pick-up in " + plan);
+			}
+			long length = 0;
+			for (int i = 0; i + 1 < stops.size(); i++) {
+				length += paths.getDistance(matrix.getId(stops.get(i)), matrix.getId(stops.get(i + 1)));
+			}
+			assertEquals(length, plan.getLength());
+		}
+	}
+
+	@Test
+	void unreachableStopsAreRejected() {
+		String[] names = { "A", "B", "C", "D" };
+		int[] distances = { //
+				0, 5, 3, X, //
+				5, 0, 4, X, //
+				3, 4, 0, X, //
+				2, 2, 2, 0 }; // D can leave but never be reached
+		Matrix matrix = new Matrix(names, distances);
+		PickupDeliverySolver solver = new PickupDeliverySolver(matrix);
+
+		assertThrows(IllegalArgumentException.class, () -> solver.solve("A", "B", List.of("C"), List.of("D")));
+		assertEquals(List.of("A", "C", "B"), solver.solve("A", "B", List.of("C"), List.of()).getStops());
+	}
+}
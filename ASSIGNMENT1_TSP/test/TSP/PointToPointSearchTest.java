@@ -0,0 +1,28 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PointToPointSearchTest {
+	@Test
+	void cachedSearchesMatchAllPairs() {
+		Random random = new Random(4);
+		for (double density : new double[] { 1.0, 0.6, 0.05 }) { // Dense, dense with gaps and sparse
+			Matrix matrix = TestMatrices.random(random, 120, density);
+			AllPairsShortestPaths table = AllPairsShortestPaths.build(matrix);
+			PointToPointSearch.forMatrix(matrix); // Build the tables, the next call reuses them
+			PointToPointSearch search = PointToPointSearch.forMatrix(matrix);
+			for (int query = 0; query < 500; query++) {
+				int from = random.nextInt(matrix.size());
+				int to = random.nextInt(matrix.size());
+				int distance = table.getDistance(from, to);
+				assertEquals(distance, search.dijkstra(from, to).getDistance());
+				assertEquals(distance, search.alt(from, to).getDistance());
+				assertEquals(distance, search.bidirectional(from, to).getDistance());
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RouteCacheTest {
+	@Test
+	void lateResultOfAnOldMatrixIsIgnored() {
+		Matrix old = TestMatrices.symmetric(new Random(14), 6, 1.0);
+		EdgeArrays changes = new EdgeArrays();
+		changes.add(0, 1, old.getDistance(0, 1) + 5);
+		Matrix updated = old.withDistances(changes);
+		int[] ids = TestMatrices.identity(6);
+		RouteCache.Key oldKey = RouteCache.Key.tour(old, ids);
+		RouteCache.Key newKey = RouteCache.Key.tour(updated, ids);
+		RouteCache<String> cache = new RouteCache<>(4);
+
+		assertNull(cache.get(oldKey)); // A solve on the old matrix misses and starts
+		assertNull(cache.get(newKey)); // The matrix changes and a new solve starts
+		cache.put(newKey, "new");
+		cache.put(oldKey, "old"); // The old solve finishes last
+
+		assertEquals("new", cache.get(newKey));
+		assertEquals(1, cache.size());
+		assertNull(cache.get(oldKey)); // Lookups of the old matrix still never see a newer route
+	}
+}
@@ -0,0 +1,71 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RouteOptimizerTest {
+	@Test
+	void sparseMatricesUseLandmarkSearch() {
+		Random random = new Random(5);
+		Matrix matrix = TestMatrices.random(random, 300, 0.03);
+		AllPairsShortestPaths table = AllPairsShortestPaths.build(matrix);
+
+		assertFalse(RouteOptimizer.useAllPairs(matrix));
+		for (int query = 0; query < 200; query++) {
+			int from = random.nextInt(matrix.size());
+			int to = random.nextInt(matrix.size());
+			if (table.getDistance(from, to) == TestMatrices.X) {
+				continue;
+			}
+			List<String> path = RouteOptimizer.findShortestPath(matrix.getName(from), matrix.getName(to), matrix);
+			long length = 0;
+			for (int i = 0; i + 1 < path.size(); i++) {
+				length += matrix.getDistance(path.get(i), path.get(i + 1));
+			}
+			assertEquals(table.getDistance(from, to), length);
+		}
+	}
+
+	@Test
+	void sparseSpanningTreeMatchesDensePrim() {
+		Random random = new Random(6);
+		Matrix matrix = TestMatrices.symmetric(random, 200, 0.1);
+		int[] ids = new int[matrix.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+
+		SpanningTree sparse = Main.findMST(matrix, ids, "prim");
+		SpanningTree dense = PrimsAlgorithm.dense(matrix, ids, 0);
+
+		assertEquals(totalWeight(dense), totalWeight(sparse));
+	}
+
+	@Test
+	void unknownNodesAreRejected() {
+		Matrix matrix = TestMatrices.symmetric(new Random(8), 20, 1);
+		String known = matrix.getName(0);
+
+		assertThrows(IllegalArgumentException.class, () -> RouteOptimizer.findShortestPath(known, "Nowhere", matrix));
+		assertThrows(IllegalArgumentException.class,
+				() -> RouteOptimizer.optimizeRoute(List.of("Nowhere", known), matrix));
+		SparseGraph graph = SparseGraph.forMatrix(matrix);
+		assertThrows(IllegalArgumentException.class, () -> RouteOptimizer.findShortestPath("Nowhere", known, graph));
+	}
+
+	private static long totalWeight(SpanningTree tree) {
+		long total = 0;
+		for (int v = 0; v < tree.size(); v++) {
+			if (tree.parent[v] != -1) {
+				total += tree.weight[v];
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,34 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SolveMetricsTest {
+	@Test
+	void trackedMatricesShareTheCachesOfTheirSource() {
+		Matrix matrix = TestMatrices.symmetric(new Random(10), 40, 1.0);
+		AllPairsShortestPaths table = AllPairsShortestPaths.forMatrix(matrix);
+
+		SolveMetrics metrics = SolveMetrics.create("test");
+		Matrix tracked = metrics.track(matrix);
+
+		assertSame(table, AllPairsShortestPaths.forMatrix(tracked));
+		assertSame(table, AllPairsShortestPaths.forMatrix(SolveMetrics.create("other").track(matrix)));
+	}
+
+	@Test
+	void landmarkSetupCountsHeapOperations() {
+		Matrix matrix = TestMatrices.random(new Random(11), 300, 0.03); // Sparse, so searched over CSR
+		SolveMetrics metrics = SolveMetrics.create("test");
+
+		metrics.begin(SolveMetrics.Phase.DIJKSTRA);
+		PointToPointSearch.forMatrix(metrics.track(matrix));
+		metrics.end();
+
+		assertTrue(metrics.getHeapOperations(SolveMetrics.Phase.DIJKSTRA) > 0);
+	}
+}
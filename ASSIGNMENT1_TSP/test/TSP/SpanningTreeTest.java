@@ -0,0 +1,72 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SpanningTreeTest {
+	@Test
+	void enginesAgreeOnAsymmetricMatrices() {
+		Random random = new Random(10);
+		for (int trial = 0; trial < 60; trial++) {
+			int n = 2 + random.nextInt(60);
+			Matrix matrix = TestMatrices.random(random, n, random.nextDouble());
+			int[] ids = randomSubset(random, n);
+			SparseGraph graph = SparseGraph.forMatrix(matrix);
+			long expected = totalWeight(PrimsAlgorithm.dense(lighterDirection(matrix), ids, 0));
+
+			assertEquals(expected, totalWeight(PrimsAlgorithm.dense(matrix, ids, 0)));
+			assertEquals(expected, totalWeight(PrimsAlgorithm.heap(matrix, ids, 0)));
+			assertEquals(expected, totalWeight(PrimsAlgorithm.heap(graph, ids, 0)));
+			assertEquals(expected, totalWeight(BoruvkaAlgorithm.run(matrix, ids, 0)));
+			assertEquals(expected, totalWeight(BoruvkaAlgorithm.run(graph, ids, 0)));
+			assertEquals(expected, totalWeight(KruskalAlgorithm.run(matrix, ids, 0)));
+			assertEquals(expected, totalWeight(KruskalAlgorithm.run(graph, ids, 0)));
+		}
+	}
+
+	@Test
+	void sparsePrimRejectsDuplicateVertices() {
+		SparseGraph graph = SparseGraph.forMatrix(TestMatrices.symmetric(new Random(11), 5, 1));
+		assertThrows(IllegalArgumentException.class, () -> PrimsAlgorithm.heap(graph, new int[] { 0, 2, 2 }, 0));
+	}
+
+	// Some distinct node ids in random order
+	private static int[] randomSubset(Random random, int n) {
+		int[] nodes = new int[n];
+		for (int i = 0; i < n; i++) {
+			int j = random.nextInt(i + 1);
+			nodes[i] = nodes[j];
+			nodes[j] = i;
+		}
+		return Arrays.copyOf(nodes, 1 + random.nextInt(n));
+	}
+
+	// Copy of a matrix where both directions of a connection have the lighter distance
+	private static Matrix lighterDirection(Matrix matrix) {
+		int n = matrix.size();
+		String[] names = new String[n];
+		int[] distances = new int[n * n];
+		for (int i = 0; i < n; i++) {
+			names[i] = matrix.getName(i);
+			for (int j = 0; j < n; j++) {
+				distances[i * n + j] = Math.min(matrix.getDistance(i, j), matrix.getDistance(j, i));
+			}
+		}
+		return new Matrix(names, distances);
+	}
+
+	private static long totalWeight(SpanningTree tree) {
+		long total = 0;
+		for (int v = 0; v < tree.size(); v++) {
+			if (tree.parent[v] != -1) {
+				total += tree.weight[v];
+			}
+		}
+		return total;
+	}
+}
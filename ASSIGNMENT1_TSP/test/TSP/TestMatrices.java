@@ -0,0 +1,56 @@
+package TSP;
+
+import java.util.Random;
+
+// Matrices shared by the tests
+final class TestMatrices {
+	static final int X = Integer.MAX_VALUE; // No connection
+
+	private TestMatrices() {
+	}
+
+	// Random matrix of n nodes where each connection exists with the given probability
+	static Matrix random(Random random, int n, double density) {
+		String[] names = new String[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = "N" + i;
+		}
+		int[] distances = new int[n * n];
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = i % (n + 1) == 0 ? 0 : random.nextDouble() < density ? random.nextInt(100) : X;
+		}
+		return new Matrix(names, distances);
+	}
+
+	// Ids 0 to n - 1 in order
+	static int[] identity(int n) {
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			ids[i] = i;
+		}
+		return ids;
+	}
+
+	// Length of a closed tour over matrix ids, following the tour direction
+	static long tourLength(Matrix matrix, int[] tour) {
+		long length = 0;
+		for (int i = 0; i < tour.length && tour.length > 1; i++) {
+			length += matrix.getDistance(tour[i], tour[(i + 1) % tour.length]);
+		}
+		return length;
+	}
+
+	// Random matrix like random(), with each connection mirrored to the same distance in the other direction
+	static Matrix symmetric(Random random, int n, double density) {
+		Matrix matrix = random(random, n, density);
+		String[] names = new String[n];
+		int[] distances = new int[n * n];
+		for (int i = 0; i < n; i++) {
+			names[i] = matrix.getName(i);
+			for (int j = 0; j < n; j++) {
+				distances[i * n + j] = matrix.getDistance(Math.min(i, j), Math.max(i, j));
+			}
+		}
+		return new Matrix(names, distances);
+	}
+}
@@ -0,0 +1,77 @@
+package TSP;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TwoLevelTourTest {
+	@Test
+	void twoOptMovesMatchPlainArray() {
+		Random random = new Random(9);
+		// Single segment up to the limit, segments beyond it
+		for (int n : new int[] { 5, 50, TwoLevelTour.SINGLE_SEGMENT_LIMIT, 3000 }) {
+			int[] reference = new int[n];
+			for (int i = 0; i < n; i++) {
+				reference[i] = i;
+			}
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = reference[i];
+				reference[i] = reference[j];
+				reference[j] = swap;
+			}
+			TwoLevelTour tour = new TwoLevelTour(reference.clone());
+			int[] position = new int[n];
+			for (int i = 0; i < n; i++) {
+				position[reference[i]] = i;
+			}
+
+			for (int move = 0; move < 2000; move++) {
+				int a = random.nextInt(n);
+				int c = random.nextInt(n);
+				int b = tour.next(a);
+				int d = tour.next(c);
+				if (a == c || b == c || d == a) {
+					continue;
+				}
+				boolean forward = reference[(position[a] + 1) % n] == b; // Whether the tour runs the array's way
+				tour.twoOptMove(a, b, c, d);
+				if (forward) {
+					reverse(reference, position, position[b], position[c]);
+				} else {
+					reverse(reference, position, position[c], position[b]);
+				}
+				assertSameCycle(reference, tour);
+			}
+		}
+	}
+
+	// Reverse the cyclic run of the array from index i forward to index j
+	private static void reverse(int[] tour, int[] position, int i, int j) {
+		int n = tour.length;
+		int length = Math.floorMod(j - i, n) + 1;
+		for (int k = 0; k < length / 2; k++) {
+			int x = (i + k) % n;
+			int y = Math.floorMod(j - k, n);
+			int swap = tour[x];
+			tour[x] = tour[y];
+			tour[y] = swap;
+			position[tour[x]] = x;
+			position[tour[y]] = y;
+		}
+	}
+
+	// The tour may run either way round the cycle
+	private static void assertSameCycle(int[] reference, TwoLevelTour tour) {
+		int n = reference.length;
+		boolean forward = tour.next(reference[0]) == reference[1 % n];
+		for (int i = 0; i < n; i++) {
+			int city = reference[i];
+			int expected = forward ? reference[(i + 1) % n] : reference[(i - 1 + n) % n];
+			assertEquals(expected, tour.next(city));
+			assertEquals(city, tour.prev(expected));
+		}
+	}
+}